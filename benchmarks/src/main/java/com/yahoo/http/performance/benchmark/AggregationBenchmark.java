@@ -0,0 +1,154 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.benchmark;
+
+import com.yahoo.http.performance.Histograms;
+import com.yahoo.http.performance.Metrics;
+import com.yahoo.http.performance.Worker;
+import com.yahoo.http.performance.report.IntervalRecorder;
+import com.yahoo.http.performance.schedule.Pacer;
+
+import org.HdrHistogram.Histogram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End of run aggregation of the workers' results into {@link Metrics}, after {@code samples} requests were recorded
+ * over {@code workers} workers. It should depend on the number of workers and not on the number of samples.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregationBenchmark {
+    @Param({"10000000", "100000000"})
+    private long samples;
+
+    @Param({"16", "1024"})
+    private int workers;
+
+    private List<Worker> results;
+
+    @Setup
+    public void setUp() {
+        long[] latencies = Samples.latencies(1 << 20, 42);
+        results = new ArrayList<>();
+        long samplesPerWorker = samples / workers;
+        for (int w = 0; w < workers; w++) {
+            Histogram histogram = Histograms.create(Histograms.DEFAULT_PRECISION);
+            for (long i = 0; i < samplesPerWorker; i++) {
+                Histograms.record(histogram, latencies[(int) ((w + i) & (latencies.length - 1))]);
+            }
+            results.add(new RecordedWorker(histogram, samplesPerWorker));
+        }
+    }
+
+    @Benchmark
+    public Metrics aggregate() {
+        return new Metrics(results);
+    }
+
+    @Benchmark
+    public String aggregateToJson() {
+        return new Metrics(results).toJsonString();
+    }
+
+    /**
+     * The results of a worker that already ran, as they are when the run is over.
+     */
+    private static class RecordedWorker implements Worker {
+        private final Histogram latencies;
+        private final Histogram warmupLatencies = Histograms.create(Histograms.DEFAULT_PRECISION);
+        private final long requestCount;
+
+        RecordedWorker(Histogram latencies, long requestCount) {
+            this.latencies = latencies;
+            this.requestCount = requestCount;
+        }
+
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public Histogram getLatencies() {
+            return latencies;
+        }
+
+        @Override
+        public Histogram getCorrectedLatencies() {
+            return null;
+        }
+
+        @Override
+        public Histogram getWarmupLatencies() {
+            return warmupLatencies;
+        }
+
+        @Override
+        public IntervalRecorder getIntervalRecorder() {
+            return null;
+        }
+
+        @Override
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        @Override
+        public long getWarmupRequestCount() {
+            return 0;
+        }
+
+        @Override
+        public long getStartTime() {
+            return 0;
+        }
+
+        @Override
+        public long getMeasurementStartTime() {
+            return 0;
+        }
+
+        @Override
+        public long getEndTime() {
+            return TimeUnit.MINUTES.toNanos(1);
+        }
+
+        @Override
+        public long getFailedRequest() {
+            return 0;
+        }
+
+        @Override
+        public long getRequestDelay() {
+            return 0;
+        }
+
+        @Override
+        public Pacer getPacer() {
+            return null;
+        }
+
+        @Override
+        public int getConcurrency() {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.yahoo.http.performance.ConnectionPoolConfig;
+import com.yahoo.http.performance.SharedHttpClient;
+import com.yahoo.http.performance.request.GetRequest;
+import com.yahoo.http.performance.request.Payload;
+import com.yahoo.http.performance.request.PostRequest;
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.request.RequestType;
+import com.yahoo.http.performance.server.LoopbackServer;
+import com.yahoo.http.performance.server.LoopbackServerConfig;
+import com.yahoo.http.performance.validation.ResponseCodeValidation;
+import com.yahoo.http.performance.validation.ResponseDataValidation;
+import com.yahoo.http.performance.validation.ResponseValidator;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full request round trips through the blocking engine's shared client and validator against the in-process
+ * {@link LoopbackServer}, which echoes POST bodies and answers GET requests with a fixed body. The server does next
+ * to nothing, so the time per request is an upper bound of the client's own overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+    @Param({"GET", "POST"})
+    private RequestType type;
+
+    @Param({"false", "true"})
+    private boolean validate;
+
+    private LoopbackServer server;
+    private SharedHttpClient client;
+    private ResponseValidator validator;
+    private Request request;
+
+    @Setup
+    public void setUp() throws Exception {
+        // The client logs every request and header at debug level, which would cost more than the request itself.
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        LoopbackServerConfig serverConfig = new LoopbackServerConfig();
+        serverConfig.setIoThreads(1);
+        server = new LoopbackServer(serverConfig);
+
+        if (type == RequestType.POST) {
+            byte[] body = new byte[LoopbackServerConfig.DEFAULT_BODY_SIZE];
+            ThreadLocalRandom.current().nextBytes(body);
+            request = new PostRequest(server.getUrl(), Payload.of(body));
+        } else {
+            request = new GetRequest(server.getUrl());
+        }
+        request.setExpectedResponse(server.expectedResponse(request));
+        validator = new ResponseValidator(validate
+                ? Arrays.asList(new ResponseCodeValidation(), new ResponseDataValidation())
+                : Arrays.asList());
+        client = new SharedHttpClient(false, new ConnectionPoolConfig(1));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        validator.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void request() throws IOException {
+        try (CloseableHttpResponse response = request.makeRequest(client.getHttpClient())) {
+            validator.validate(request, response, failure -> {
+                throw new IllegalStateException("Request failed: " + failure);
+            });
+        }
+    }
+}
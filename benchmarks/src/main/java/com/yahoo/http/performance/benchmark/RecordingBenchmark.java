@@ -0,0 +1,73 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.benchmark;
+
+import com.yahoo.http.performance.Histograms;
+import com.yahoo.http.performance.PhaseTimer;
+import com.yahoo.http.performance.report.IntervalRecorder;
+
+import org.HdrHistogram.Histogram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of recording a sample: into a worker's latency histogram, into the live interval recorder, and of
+ * timing all the phases of a request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordingBenchmark {
+    private long[] latencies;
+    private int next;
+    private Histogram histogram;
+    private IntervalRecorder intervalRecorder;
+    private PhaseTimer phaseTimer;
+
+    @Setup
+    public void setUp() {
+        latencies = Samples.latencies(1 << 16, 42);
+        histogram = Histograms.create(Histograms.DEFAULT_PRECISION);
+        intervalRecorder = new IntervalRecorder(Histograms.DEFAULT_PRECISION);
+        phaseTimer = new PhaseTimer(Histograms.DEFAULT_PRECISION);
+    }
+
+    private long nextLatency() {
+        next = (next + 1) & (latencies.length - 1);
+        return latencies[next];
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        Histograms.record(histogram, nextLatency());
+    }
+
+    @Benchmark
+    public void intervalRecorderRecord() {
+        intervalRecorder.recordLatency(nextLatency());
+    }
+
+    @Benchmark
+    public void phaseTimerRequest() {
+        phaseTimer.start(System.nanoTime());
+        phaseTimer.connectStarted();
+        phaseTimer.writeStarted();
+        phaseTimer.writeDone();
+        phaseTimer.headReceived();
+        phaseTimer.record(System.nanoTime());
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.benchmark;
+
+import com.yahoo.http.performance.request.GetRequest;
+import com.yahoo.http.performance.request.Payload;
+import com.yahoo.http.performance.request.PostRequest;
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.request.RequestType;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the http request for each {@link RequestType}, and of writing its body as the blocking engine
+ * does. GET requests have no body, so their results do not depend on the body size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestBenchmark {
+    @Param({"GET", "POST"})
+    private RequestType type;
+
+    @Param({"1024", "1048576"})
+    private int bodySize;
+
+    private Request request;
+
+    @Setup
+    public void setUp() {
+        String url = "http://localhost:8080/";
+        switch (type) {
+            case GET:
+                request = new GetRequest(url);
+                break;
+            case POST:
+                byte[] body = new byte[bodySize];
+                ThreadLocalRandom.current().nextBytes(body);
+                request = new PostRequest(url, Payload.of(body));
+                break;
+            default:
+                throw new IllegalStateException("Invalid request type: " + type);
+        }
+    }
+
+    @Benchmark
+    public HttpUriRequest create() {
+        return request.createHttpRequest();
+    }
+
+    @Benchmark
+    public HttpUriRequest createAndWrite() throws IOException {
+        HttpUriRequest httpRequest = request.createHttpRequest();
+        if (httpRequest instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) httpRequest).getEntity();
+            entity.writeTo(OutputStream.nullOutputStream());
+        }
+        return httpRequest;
+    }
+}
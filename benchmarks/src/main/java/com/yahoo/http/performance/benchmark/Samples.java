@@ -0,0 +1,29 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synthetic latencies, spread log-uniformly from 50 microseconds to 1 second so samples land in every histogram
+ * bucket range a real run would use.
+ */
+final class Samples {
+    private static final double MIN_LATENCY = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final double MAX_LATENCY = TimeUnit.SECONDS.toNanos(1);
+
+    private Samples() {
+    }
+
+    static long[] latencies(int count, long seed) {
+        Random random = new Random(seed);
+        double logRange = Math.log(MAX_LATENCY / MIN_LATENCY);
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            latencies[i] = (long) (MIN_LATENCY * Math.exp(random.nextDouble() * logRange));
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,63 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.benchmark;
+
+import com.yahoo.http.performance.request.Payload;
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.request.RequestType;
+import com.yahoo.http.performance.request.WorkloadRequest;
+import com.yahoo.http.performance.template.Template;
+
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.message.BasicHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building a workload request whose url, header and body are fixed, against one where they are templates
+ * rendered for each request. Run with {@code -prof gc} to see the allocation rate of each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemplateBenchmark {
+    @Param({"false", "true"})
+    private boolean templated;
+
+    private Request request;
+
+    @Setup
+    public void setUp() {
+        if (templated) {
+            request = new WorkloadRequest(RequestType.PUT, "http://localhost:8080/item/${zipf:1000000}",
+                    new Header[] {new BasicHeader("X-Request-Id", "${thread}-${counter}")},
+                    Template.compile("{\"id\":${uniform:1:1000000},\"ts\":${timestamp}}"));
+        } else {
+            request = new WorkloadRequest(RequestType.PUT, "http://localhost:8080/item/42",
+                    new Header[] {new BasicHeader("X-Request-Id", "0-0")},
+                    Payload.of("{\"id\":42,\"ts\":1500000000000}".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Benchmark
+    public HttpUriRequest create() {
+        return request.createHttpRequest();
+    }
+}
@@ -0,0 +1,90 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.benchmark;
+
+import com.yahoo.http.performance.request.ExpectedResponse;
+import com.yahoo.http.performance.request.Payload;
+import com.yahoo.http.performance.request.PostRequest;
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.validation.ResponseCodeValidation;
+import com.yahoo.http.performance.validation.ResponseDataValidation;
+import com.yahoo.http.performance.validation.Validation;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each validation on a matching response body: the response code check, the comparison with the expected
+ * bytes and the comparison with the expected digest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+    @Param({"code", "body", "digest"})
+    private String validation;
+
+    @Param({"1024", "1048576"})
+    private int bodySize;
+
+    private Validation validator;
+    private Request request;
+    private HttpResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+        byte[] body = new byte[bodySize];
+        ThreadLocalRandom.current().nextBytes(body);
+        request = new PostRequest("http://localhost:8080/", Payload.of(body));
+        switch (validation) {
+            case "code":
+                validator = new ResponseCodeValidation();
+                break;
+            case "body":
+                validator = new ResponseDataValidation();
+                request.setExpectedResponse(ExpectedResponse.of(Payload.of(body.clone())));
+                break;
+            case "digest":
+                validator = new ResponseDataValidation();
+                request.setExpectedResponse(ExpectedResponse.ofDigest(
+                        MessageDigest.getInstance(ExpectedResponse.DIGEST_ALGORITHM).digest(body)));
+                break;
+            default:
+                throw new IllegalStateException("Invalid validation: " + validation);
+        }
+        // The entity is repeatable, so the same response can be read again by every invocation.
+        response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        response.setEntity(new ByteArrayEntity(body));
+    }
+
+    @Benchmark
+    public boolean validate() {
+        boolean valid = validator.isValid(request, response);
+        if (!valid) {
+            throw new IllegalStateException("Benchmark response is invalid");
+        }
+        return valid;
+    }
+}
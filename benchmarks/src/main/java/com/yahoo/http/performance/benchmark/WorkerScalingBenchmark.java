@@ -0,0 +1,153 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.yahoo.http.performance.ClientThread;
+import com.yahoo.http.performance.ConnectionPoolConfig;
+import com.yahoo.http.performance.Histograms;
+import com.yahoo.http.performance.HttpClientFactory;
+import com.yahoo.http.performance.SharedHttpClient;
+import com.yahoo.http.performance.VirtualThreads;
+import com.yahoo.http.performance.request.GetRequest;
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.schedule.RunSchedule;
+import com.yahoo.http.performance.server.LoopbackServer;
+import com.yahoo.http.performance.server.LoopbackServerConfig;
+import com.yahoo.http.performance.validation.ResponseValidator;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many blocking workers one machine sustains on platform threads and on virtual threads. The workers send GET
+ * requests back to back through one shared connection pool, bounded like the command line bounds it for virtual
+ * threads, to the in-process {@link LoopbackServer}, which answers each request after {@link #SERVER_DELAY} without
+ * holding a thread. Throughput would grow with the worker count up to the pool's limit if the workers cost nothing, so
+ * where it stops growing is where the client runs out of CPU or memory.
+ *
+ * The primary result only counts the samples taken and is meaningless, the secondary result {@code requests} is the
+ * requests per second of all workers. At the end of each trial the benchmark also prints the heap each worker
+ * retains, its share of the connections included, once the workers have recorded all their latencies. Thread stacks
+ * are not on the heap and not included.
+ * Virtual threads require running the benchmark on Java 21 or later, eg.
+ * {@code java -jar target/benchmarks.jar WorkerScalingBenchmark -p workers=1000,10000}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class WorkerScalingBenchmark {
+    private static final String SERVER_DELAY = "10ms";
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+
+    @Param({"100", "1000", "10000"})
+    private int workers;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private LoopbackServer server;
+    private SharedHttpClient client;
+    private RunSchedule schedule;
+    private final List<ClientThread> clientThreads = new ArrayList<>();
+    private final List<Thread> running = new ArrayList<>();
+    private long baselineHeap;
+
+    /**
+     * Requests completed by all workers, per second.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Requests {
+        public long requests;
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        // The client logs every request and header at debug level, which would cost more than the request itself.
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        boolean virtual = threads.equals("virtual");
+        if (virtual && !VirtualThreads.isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on "
+                    + System.getProperty("java.version"));
+        }
+
+        LoopbackServerConfig serverConfig = new LoopbackServerConfig();
+        serverConfig.setDelay(SERVER_DELAY);
+        server = new LoopbackServer(serverConfig);
+        Request request = new GetRequest(server.getUrl());
+        request.setExpectedResponse(server.expectedResponse(request));
+        List<Request> requests = Collections.singletonList(request);
+        client = new SharedHttpClient(false,
+                new ConnectionPoolConfig(Math.min(workers, HttpClientFactory.DEFAULT_MAX_CONNECTIONS)));
+
+        baselineHeap = usedHeap();
+        // The workers run through all iterations, until the tear down ends their schedule.
+        schedule = new RunSchedule(0, TimeUnit.DAYS.toNanos(1));
+        for (int i = 0; i < workers; i++) {
+            clientThreads.add(new ClientThread(Long.MAX_VALUE, requests, new ResponseValidator(Collections.emptyList()),
+                    0, client, null, schedule, Histograms.DEFAULT_PRECISION));
+        }
+        schedule.start(System.nanoTime());
+        for (ClientThread clientThread : clientThreads) {
+            Thread thread = virtual ? VirtualThreads.newThread(clientThread) : new Thread(clientThread);
+            thread.start();
+            running.add(thread);
+        }
+    }
+
+    @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+    public void startIteration() {
+        // Leaves out the requests completed between iterations.
+        clientThreads.forEach(t -> t.getIntervalRecorder().getIntervalHistogram());
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException, IOException {
+        System.out.println("Heap retained per worker: " + (usedHeap() - baselineHeap) / workers + " bytes");
+        // Moves the start of the schedule back by its duration, so it is over for the workers.
+        schedule.start(System.nanoTime() - schedule.getDuration());
+        for (Thread thread : running) {
+            thread.join();
+        }
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void sample(Requests counter) throws InterruptedException {
+        Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+        for (ClientThread clientThread : clientThreads) {
+            counter.requests += clientThread.getIntervalRecorder().getIntervalHistogram().getTotalCount();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.schedule.Pacer;
+import com.yahoo.http.performance.schedule.RunSchedule;
+import com.yahoo.http.performance.validation.ResponseValidator;
+
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+
+import java.io.IOException;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * A worker that drives up to {@code concurrency} in-flight HTTP/1.1 requests over a non-blocking client with a single
+ * event loop thread, each in-flight request holding its own connection.
+ */
+public class AsyncClientThread extends AsyncWorker {
+    private final CloseableHttpAsyncClient httpClient;
+
+    /**
+     * @param requestCount maximum number of requests to send, including warmup.
+     */
+    public AsyncClientThread(long requestCount, List<Request> requests, ResponseValidator validator, long requestDelay,
+                             boolean sslEnabled, Pacer pacer, RunSchedule schedule, int histogramPrecision, int concurrency)
+            throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+        super(requestCount, requests, validator, requestDelay, pacer, schedule, histogramPrecision, concurrency);
+        this.httpClient = HttpClientFactory.createAsyncClient(sslEnabled, concurrency);
+    }
+
+    @Override
+    protected void startClient() {
+        httpClient.start();
+    }
+
+    @Override
+    protected void execute(Request request, Completion completion) {
+        httpClient.execute(request.createHttpRequest(), completion);
+    }
+
+    @Override
+    protected void closeClient() throws IOException {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,377 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import com.yahoo.http.performance.replay.TraceReplay;
+import com.yahoo.http.performance.report.IntervalRecorder;
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.request.RequestMix;
+import com.yahoo.http.performance.resultlog.ResultLog;
+import com.yahoo.http.performance.resultlog.ResultLogWriter;
+import com.yahoo.http.performance.schedule.Pacer;
+import com.yahoo.http.performance.schedule.RunSchedule;
+import com.yahoo.http.performance.schedule.Scenario;
+import com.yahoo.http.performance.validation.ResponseValidator;
+
+import org.HdrHistogram.Histogram;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class of the workers that drive up to {@code concurrency} in-flight requests over a non-blocking client.
+ *
+ * The thread running {@link #run()} only dispatches: it waits for the pacer or request delay, takes one of the
+ * {@code concurrency} in-flight permits and hands the request to the client through {@link #execute}. Responses are
+ * completed and recorded by a {@link Completion} on the client's event loop thread, which is the only thread writing
+ * the histograms; the dispatching thread reads them after taking back every permit. Failures can also be reported
+ * from the dispatching thread or a validation thread, so they are counted atomically.
+ *
+ * As with {@link ClientThread}, requests sent during the {@link RunSchedule} warmup are recorded separately. Results
+ * are logged from the event loop thread, except for requests the client fails right away on the dispatching thread,
+ * so appending to the result log is synchronized; the lock is practically never contended.
+ *
+ * With a {@link TraceReplay}, the dispatching thread sends the trace's requests at their scheduled times instead of
+ * its own requests. A rate {@link Scenario} is followed through the pacer; the concurrency of these workers is fixed, so
+ * they do not follow concurrency scenarios.
+ */
+public abstract class AsyncWorker implements Worker {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncWorker.class);
+    private final List<Request> requests;
+    private final RequestMix mix;
+    private final ResponseValidator validator;
+    private final long requestDelay;
+    private final Pacer pacer;
+    private final RunSchedule schedule;
+    private final int concurrency;
+    private final Semaphore inFlight;
+    private final long maxRequestCount;
+
+    private long startTime = 0;
+    private long measurementStartTime = 0;
+    private long endTime = 0;
+    private final AtomicLong failedRequest = new AtomicLong();
+    private long requestCount = 0;
+    private long warmupRequestCount = 0;
+    private Histogram latencies;
+    private Histogram correctedLatencies;
+    private Histogram warmupLatencies;
+    private IntervalRecorder intervalRecorder;
+    private ResultLogWriter resultLog;
+    private TraceReplay replay;
+    private Scenario scenario;
+    private StageBreakdown stages;
+    private final RequestBreakdown breakdown;
+
+    /**
+     * @param requestCount maximum number of requests to send, including warmup.
+     */
+    protected AsyncWorker(long requestCount, List<Request> requests, ResponseValidator validator, long requestDelay,
+                          Pacer pacer, RunSchedule schedule, int histogramPrecision, int concurrency) {
+        this.maxRequestCount = requestCount;
+        this.requests = requests;
+        this.mix = new RequestMix(requests);
+        this.validator = validator;
+        this.latencies = Histograms.create(histogramPrecision);
+        this.correctedLatencies = pacer == null ? null : Histograms.create(histogramPrecision);
+        this.warmupLatencies = Histograms.create(histogramPrecision);
+        this.intervalRecorder = new IntervalRecorder(histogramPrecision);
+        this.requestDelay = requestDelay;
+        this.pacer = pacer;
+        this.schedule = schedule;
+        this.concurrency = concurrency;
+        this.inFlight = new Semaphore(concurrency);
+        this.breakdown = new RequestBreakdown(requests, histogramPrecision);
+    }
+
+    protected abstract void startClient();
+
+    /**
+     * Sends the request without blocking. The completion must be notified exactly once when it is done.
+     */
+    protected abstract void execute(Request request, Completion completion);
+
+    protected abstract void closeClient() throws IOException;
+
+    @Override
+    public void run() {
+        startTime = System.nanoTime();
+        measurementStartTime = schedule.getWarmup() > 0 ? schedule.getMeasurementStartTime() : startTime;
+        startClient();
+
+        for (long i = 0; i < maxRequestCount; i++) {
+            TraceReplay.Entry entry = null;
+            if (replay != null && (entry = replay.next()) == null) {
+                break;
+            }
+            long intendedStart = 0;
+            if (entry != null) {
+                intendedStart = replay.intendedStartTime(entry);
+                Pacer.waitUntil(intendedStart);
+            } else if (pacer != null) {
+                intendedStart = pacer.intendedStartTime(i);
+                Pacer.waitUntil(intendedStart);
+            } else if (requestDelay > 0) {
+                Pacer.waitUntil(System.nanoTime() + requestDelay);
+            }
+            inFlight.acquireUninterruptibly();
+            int requestIndex = entry != null ? entry.getNameIndex() : mix.next(i);
+            Request request = entry != null ? entry.getRequest() : requests.get(requestIndex);
+            long start = System.nanoTime();
+            if (schedule.isOver(start)) {
+                inFlight.release();
+                break;
+            }
+            boolean warmup = schedule.isWarmup(start);
+            int stage = stages != null ? scenario.stageAt(pacer != null ? intendedStart : start) : 0;
+            if (entry != null) {
+                replay.recordDrift(entry, start - intendedStart, warmup);
+            }
+            if (warmup) {
+                warmupRequestCount++;
+            } else {
+                requestCount++;
+            }
+            execute(request, new Completion(request, requestIndex, start, intendedStart, warmup, stage));
+        }
+        inFlight.acquireUninterruptibly(concurrency);
+        endTime = System.nanoTime();
+
+        try {
+            closeClient();
+        } catch (IOException e) {
+            LOG.error("Client failed to close.");
+        }
+        if (resultLog != null) {
+            try {
+                resultLog.close();
+            } catch (IOException e) {
+                LOG.error("Result log failed to close.", e);
+            }
+        }
+    }
+
+    /**
+     * Records the outcome of one request and gives back its in-flight permit.
+     */
+    protected class Completion implements FutureCallback<HttpResponse> {
+        private final Request request;
+        private final int requestIndex;
+        private final long start;
+        private final long intendedStart;
+        private final boolean warmup;
+        private final int stage;
+
+        Completion(Request request, int requestIndex, long start, long intendedStart, boolean warmup, int stage) {
+            this.request = request;
+            this.requestIndex = requestIndex;
+            this.start = start;
+            this.intendedStart = intendedStart;
+            this.warmup = warmup;
+            this.stage = stage;
+        }
+
+        @Override
+        public void completed(HttpResponse response) {
+            try {
+                long end = System.nanoTime();
+                int status = response.getStatusLine().getStatusCode();
+                if (resultLog != null) {
+                    synchronized (resultLog) {
+                        resultLog.append(start, end - start, status, requestIndex,
+                                ClientThread.contentLength(response.getEntity()), warmup ? ResultLog.WARMUP : 0);
+                    }
+                }
+                long recordedLatency = correctedLatencies != null ? end - intendedStart : end - start;
+                intervalRecorder.recordLatency(recordedLatency);
+                if (stages != null && !warmup) {
+                    stages.recordResponse(stage, recordedLatency);
+                }
+                if (warmup) {
+                    Histograms.record(warmupLatencies, end - start);
+                } else {
+                    Histograms.record(latencies, end - start);
+                    if (correctedLatencies != null) {
+                        Histograms.record(correctedLatencies, end - intendedStart);
+                    }
+                    breakdown.recordResponse(requestIndex, status, end - start);
+                }
+
+                validator.validate(request, response,
+                        failure -> fail(new IOException("Request failed: " + failure), ErrorClass.VALIDATION, end));
+            } catch (IOException e) {
+                fail(e, ErrorClass.of(e), System.nanoTime());
+            } finally {
+                inFlight.release();
+            }
+        }
+
+        @Override
+        public void failed(Exception e) {
+            logFailure();
+            fail(e, ErrorClass.of(e), System.nanoTime());
+            inFlight.release();
+        }
+
+        @Override
+        public void cancelled() {
+            logFailure();
+            fail(new IOException("Request cancelled"), ErrorClass.CANCELLED, System.nanoTime());
+            inFlight.release();
+        }
+
+        private void logFailure() {
+            if (resultLog != null) {
+                synchronized (resultLog) {
+                    resultLog.append(start, System.nanoTime() - start, 0, requestIndex, -1,
+                            ResultLog.FAILED | (warmup ? ResultLog.WARMUP : 0));
+                }
+            }
+        }
+
+        /**
+         * @param end {@link System#nanoTime()} at which the request failed, or got the response that failed validation.
+         */
+        private void fail(Exception e, ErrorClass errorClass, long end) {
+            LOG.error("Request failed", e);
+            intervalRecorder.recordFailure();
+            if (!warmup) {
+                failedRequest.incrementAndGet();
+                breakdown.recordFailure(requestIndex, errorClass, end - start);
+                if (stages != null) {
+                    stages.recordFailure(stage);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setResultLog(ResultLogWriter resultLog) {
+        this.resultLog = resultLog;
+    }
+
+    @Override
+    public void setReplay(TraceReplay replay) {
+        this.replay = replay;
+        if (correctedLatencies == null) {
+            correctedLatencies = Histograms.create(latencies.getNumberOfSignificantValueDigits());
+        }
+    }
+
+    @Override
+    public void setScenario(Scenario scenario, int workerIndex) {
+        if (scenario.getTarget() != Scenario.Target.RATE) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " keeps a fixed concurrency");
+        }
+        this.scenario = scenario;
+        this.stages = new StageBreakdown(scenario, latencies.getNumberOfSignificantValueDigits());
+    }
+
+    @Override
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    @Override
+    public Map<String, Histogram> getStageLatencies() {
+        return stages == null ? null : stages.getStageLatencies();
+    }
+
+    @Override
+    public Map<String, Long> getStageFailures() {
+        return stages == null ? null : stages.getStageFailures();
+    }
+
+    @Override
+    public Histogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public Histogram getCorrectedLatencies() {
+        return correctedLatencies;
+    }
+
+    @Override
+    public Histogram getWarmupLatencies() {
+        return warmupLatencies;
+    }
+
+    @Override
+    public Map<String, Histogram> getRequestLatencies() {
+        return breakdown.getRequestLatencies();
+    }
+
+    @Override
+    public Map<String, Long> getRequestFailures() {
+        return breakdown.getRequestFailures();
+    }
+
+    @Override
+    public Map<String, Histogram> getOutcomeLatencies() {
+        return breakdown.getOutcomeLatencies();
+    }
+
+    @Override
+    public IntervalRecorder getIntervalRecorder() {
+        return intervalRecorder;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    @Override
+    public long getWarmupRequestCount() {
+        return warmupRequestCount;
+    }
+
+    @Override
+    public long getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public long getMeasurementStartTime() {
+        return measurementStartTime;
+    }
+
+    @Override
+    public long getEndTime() {
+        return endTime;
+    }
+
+    @Override
+    public long getFailedRequest() {
+        return failedRequest.get();
+    }
+
+    @Override
+    public long getRequestDelay() {
+        return requestDelay;
+    }
+
+    @Override
+    public Pacer getPacer() {
+        return pacer;
+    }
+
+    @Override
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public int getInFlight() {
+        return concurrency - inFlight.availablePermits();
+    }
+}
@@ -0,0 +1,44 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency statistics of one request or outcome of a {@link RequestBreakdown} over a run. Times are in nanoseconds.
+ */
+@Getter
+public class BreakdownStats {
+    /**
+     * Number of latencies recorded: responses for a request or a status, failures for an error class.
+     */
+    private final long count;
+    /**
+     * Number of failed requests, only set for requests.
+     */
+    private final long failures;
+    private final double avg;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+    /**
+     * The histogram in compressed base64 HdrHistogram form, see {@link Histograms#decodePacked(String)}.
+     */
+    private final String histogram;
+
+    public BreakdownStats(Histogram histogram, long failures) {
+        this.count = histogram.getTotalCount();
+        this.failures = failures;
+        this.avg = histogram.getMean();
+        this.p50 = histogram.getValueAtPercentile(50);
+        this.p90 = histogram.getValueAtPercentile(90);
+        this.p99 = histogram.getValueAtPercentile(99);
+        this.p999 = histogram.getValueAtPercentile(99.9);
+        this.max = histogram.getMaxValue();
+        this.histogram = Histograms.encode(histogram);
+    }
+}
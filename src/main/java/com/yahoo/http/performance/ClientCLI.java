@@ -3,12 +3,40 @@
 
 package com.yahoo.http.performance;
 
+import com.yahoo.http.performance.compare.Comparison;
+import com.yahoo.http.performance.compare.RegressionGate;
+import com.yahoo.http.performance.compare.RunSummary;
+import com.yahoo.http.performance.distributed.Coordinator;
+import com.yahoo.http.performance.distributed.WorkerProcess;
+import com.yahoo.http.performance.replay.TraceReplay;
+import com.yahoo.http.performance.report.IntervalReporter;
+import com.yahoo.http.performance.report.LiveMetrics;
+import com.yahoo.http.performance.report.MetricsEndpoint;
+import com.yahoo.http.performance.request.ExpectedResponse;
 import com.yahoo.http.performance.request.GetRequest;
+import com.yahoo.http.performance.request.Payload;
+import com.yahoo.http.performance.request.PayloadPack;
 import com.yahoo.http.performance.request.PostRequest;
 import com.yahoo.http.performance.request.Request;
 import com.yahoo.http.performance.request.RequestType;
+import com.yahoo.http.performance.request.Trace;
+import com.yahoo.http.performance.request.Workload;
+import com.yahoo.http.performance.request.WorkloadRequest;
+import com.yahoo.http.performance.resultlog.ResultLog;
+import com.yahoo.http.performance.resultlog.ResultLogAnalyzer;
+import com.yahoo.http.performance.resultlog.ResultLogWriter;
+import com.yahoo.http.performance.schedule.Pacer;
+import com.yahoo.http.performance.schedule.RunSchedule;
+import com.yahoo.http.performance.schedule.Scenario;
+import com.yahoo.http.performance.search.RateSearch;
+import com.yahoo.http.performance.search.RateSearchResult;
+import com.yahoo.http.performance.search.Slo;
+import com.yahoo.http.performance.server.LoopbackServer;
+import com.yahoo.http.performance.server.LoopbackServerConfig;
+import com.yahoo.http.performance.template.Template;
 import com.yahoo.http.performance.validation.ResponseDataValidation;
 import com.yahoo.http.performance.validation.ResponseCodeValidation;
+import com.yahoo.http.performance.validation.ResponseValidator;
 import com.yahoo.http.performance.validation.Validation;
 
 import org.apache.commons.cli.BasicParser;
@@ -19,6 +47,7 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
+import org.apache.http.Header;
 
 import java.io.File;
 import java.io.FilenameFilter;
@@ -26,9 +55,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -36,13 +68,221 @@ import java.util.stream.Collectors;
  * Example usage:
  * java -jar httpperformance-1.0.jar -u [url] -m GET -c 500000 -t 64
  * java -jar httpperformance-1.0.jar -u [url] -m POST -d [postDataPath] -c 500000 -t 64
+ * java -jar httpperformance-1.0.jar -u [url] -m GET -c 500000 -t 64 --rate 50000/s
+ * java -jar httpperformance-1.0.jar -u [url] -m GET -t 64 --duration 5m --warmup 30s
+ * java -jar httpperformance-1.0.jar -u [url] -m GET -c 500000 -t 4 --engine async --concurrency 20000
+ * java -jar httpperformance-1.0.jar -u [url] -m GET -c 50000 -t 10000 --virtualThreads --maxConnections 500
+ * java -jar httpperformance-1.0.jar -u [url] -m GET -c 500000 -t 4 --engine http2 --maxStreamsPerConnection 100
+ * java -jar httpperformance-1.0.jar -u [url] -m GET -t 64 --duration 5m --rate 200000/s --workerProcesses 4
+ * java -jar httpperformance-1.0.jar --joinCoordinator [coordinatorHost]:7171
+ * java -jar httpperformance-1.0.jar -u [url] -m GET -t 64 --duration 30s --warmup 10s --findMaxRate --slo p99<20ms
+ * java -jar httpperformance-1.0.jar --selfTest -m GET -t 8 --duration 30s --selfTestBodySize 4096
+ * java -jar httpperformance-1.0.jar -u [url] -m GET -t 64 --duration 5m --resultLog /tmp/results
+ * java -jar httpperformance-1.0.jar --analyzeResults /tmp/results --window 1s --top 20
+ * java -jar httpperformance-1.0.jar -u [url] -m GET -t 16 --duration 60s --compareTo base1.json,base2.json --runs 3
+ * java -jar httpperformance-1.0.jar -u [baseUrl] --workload workload.jsonl -t 64 --duration 5m
+ * java -jar httpperformance-1.0.jar -u 'http://[host]/item/${zipf:1000000}' -m GET -t 64 --duration 5m
+ * java -jar httpperformance-1.0.jar -u [baseUrl] --replay trace.jsonl --replaySpeed 2 -t 256
+ * java -jar httpperformance-1.0.jar -u [url] -m GET -t 64 --scenario spike.jsonl --reportInterval 5s
  *
  * See help options for more details.
  */
 public class ClientCLI {
+    private static final int DEFAULT_MAX_STREAMS_PER_CONNECTION = 100;
+    private static final String JOIN_COORDINATOR_OPTION = "--joinCoordinator";
+    private static final String ANALYZE_RESULTS_OPTION = "--analyzeResults";
+    /**
+     * Exit code of a comparison with a baseline that found a regression, to tell it apart from errors.
+     */
+    private static final int REGRESSION_EXIT_CODE = 2;
+
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(ANALYZE_RESULTS_OPTION)) {
+            ResultLogAnalyzer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(JOIN_COORDINATOR_OPTION)) {
+            if (args.length != 2) {
+                System.err.println("Usage: " + JOIN_COORDINATOR_OPTION + " [host:port]");
+                System.exit(1);
+            }
+            WorkerProcess process = WorkerProcess.join(args[1]);
+            process.sendResult(run(parseArgs(process.getArgs()), process.getIndex(), process.getCount(),
+                    process::awaitStart));
+            return;
+        }
+
         Map<String, String> argMap = parseArgs(args);
-        List<Request> requests = getRequests(argMap);
+        if (Boolean.valueOf(argMap.get("findMaxRate"))) {
+            RateSearchResult result = findMaxRate(argMap);
+            String outputType = argMap.get("outputType");
+            print(argMap, outputType != null && outputType.equals("json") ? result.toJsonString() : result.toString());
+            return;
+        }
+
+        if (argMap.get("compareTo") != null) {
+            Comparison comparison = compareToBaseline(argMap, args);
+            String outputType = argMap.get("outputType");
+            print(argMap, outputType != null && outputType.equals("json")
+                    ? comparison.toJsonString() : comparison.toString());
+            if (comparison.isRegressed()) {
+                System.exit(REGRESSION_EXIT_CODE);
+            }
+            return;
+        }
+
+        Metrics metrics;
+        if (argMap.get("workerProcesses") != null) {
+            int port = argMap.get("coordinatorPort") == null
+                    ? Coordinator.DEFAULT_PORT : Integer.valueOf(argMap.get("coordinatorPort"));
+            Coordinator coordinator = new Coordinator(port, Integer.valueOf(argMap.get("workerProcesses")));
+            metrics = coordinator.run(Coordinator.workerArgs(args));
+        } else {
+            metrics = run(argMap, 0, 1, () -> 0L);
+        }
+
+        String outputType = argMap.get("outputType");
+        String output = null;
+        if (outputType != null && outputType.equals("json")) {
+            output = metrics.toJsonString();
+        } else {
+            output = metrics.toString();
+        }
+        print(argMap, output);
+    }
+
+    private static void print(Map<String, String> argMap, String output) throws IOException {
+        String outputFile = argMap.get("outputFile");
+        if (outputFile != null) {
+            FileUtils.writeStringToFile(new File(outputFile), output);
+        }
+
+        System.out.print(output);
+    }
+
+    /**
+     * Runs the test the given number of times and compares the pooled results with the baseline runs.
+     */
+    private static Comparison compareToBaseline(Map<String, String> argMap, String[] args) throws Exception {
+        int runs = argMap.get("runs") == null ? 1 : Integer.valueOf(argMap.get("runs"));
+        if (runs < 1) {
+            throw new IllegalArgumentException("Number of runs must be positive: " + runs);
+        }
+        if (Boolean.valueOf(argMap.get("findMaxRate"))) {
+            throw new IllegalArgumentException("compareTo cannot be combined with findMaxRate");
+        }
+        if (argMap.get("workerProcesses") != null && runs > 1) {
+            throw new IllegalArgumentException("Worker processes only take part in one run, use runs 1");
+        }
+        List<Path> baselineFiles = new ArrayList<>();
+        for (String file : argMap.get("compareTo").split(",")) {
+            baselineFiles.add(new File(file.trim()).toPath());
+        }
+        RunSummary baseline = RunSummary.read(baselineFiles);
+
+        List<Metrics> results = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            System.err.println("Run " + (i + 1) + " of " + runs);
+            if (argMap.get("workerProcesses") != null) {
+                int port = argMap.get("coordinatorPort") == null
+                        ? Coordinator.DEFAULT_PORT : Integer.valueOf(argMap.get("coordinatorPort"));
+                Coordinator coordinator = new Coordinator(port, Integer.valueOf(argMap.get("workerProcesses")));
+                results.add(coordinator.run(Coordinator.workerArgs(args)));
+            } else {
+                results.add(run(argMap, 0, 1, () -> 0L));
+            }
+        }
+
+        RegressionGate gate = new RegressionGate(
+                fraction(argMap, "maxThroughputDrop", RegressionGate.DEFAULT_MAX_THROUGHPUT_DROP),
+                fraction(argMap, "maxLatencyIncrease", RegressionGate.DEFAULT_MAX_LATENCY_INCREASE),
+                fraction(argMap, "maxErrorRateIncrease", RegressionGate.DEFAULT_MAX_ERROR_RATE_INCREASE),
+                fraction(argMap, "maxDistributionShift", RegressionGate.DEFAULT_MAX_DISTRIBUTION_SHIFT),
+                fraction(argMap, "significance", RegressionGate.DEFAULT_SIGNIFICANCE));
+        return gate.compare(baseline, new RunSummary(results));
+    }
+
+    private static double fraction(Map<String, String> argMap, String name, double defaultValue) {
+        return argMap.get(name) == null ? defaultValue : Double.valueOf(argMap.get(name));
+    }
+
+    /**
+     * Runs one open-loop step per offered rate, each with the given warmup and duration, to find the highest rate
+     * meeting the slo.
+     */
+    private static RateSearchResult findMaxRate(Map<String, String> argMap) throws Exception {
+        if (argMap.get("slo") == null) {
+            throw new IllegalArgumentException("findMaxRate needs an slo, eg. --slo p99<20ms");
+        }
+        if (argMap.get("duration") == null) {
+            throw new IllegalArgumentException("findMaxRate needs a duration to hold each rate for");
+        }
+        if (argMap.get("workerProcesses") != null) {
+            throw new IllegalArgumentException("findMaxRate cannot be combined with workerProcesses");
+        }
+        if (argMap.get("scenario") != null) {
+            throw new IllegalArgumentException("findMaxRate cannot be combined with a scenario");
+        }
+        RateSearch search = new RateSearch(
+                Slo.parse(argMap.get("slo")),
+                argMap.get("maxErrorRate") == null
+                        ? RateSearch.DEFAULT_MAX_ERROR_RATE : Double.valueOf(argMap.get("maxErrorRate")),
+                argMap.get("rate") == null ? RateSearch.DEFAULT_START_RATE : Pacer.parseRate(argMap.get("rate")),
+                RunSchedule.parseDuration(argMap.get("duration")),
+                rate -> {
+                    Map<String, String> stepArgs = new HashMap<>(argMap);
+                    stepArgs.put("rate", Double.toString(rate));
+                    return run(stepArgs, 0, 1, () -> 0L);
+                });
+        return search.run();
+    }
+
+    /**
+     * Runs this process's share of the load and returns its metrics.
+     *
+     * @param processIndex index of this process among the processes sharing the load, 0 for a local run.
+     * @param processCount number of processes sharing the load, 1 for a local run.
+     * @param startAt      called once the clients are ready; returns the {@link System#currentTimeMillis()} at which
+     *                     to start sending, or 0 to start right away.
+     */
+    public static Metrics run(Map<String, String> argMap, int processIndex, int processCount, Callable<Long> startAt)
+            throws Exception {
+        RunPhaseEvent setupPhase = RunPhaseEvent.begin("setup");
+        // A self test sends the requests to a server of its own, which also tells what each response should hold.
+        LoopbackServer selfTestServer = null;
+        LoopbackServerConfig selfTestConfig = null;
+        if (Boolean.valueOf(argMap.get("selfTest"))) {
+            if (Boolean.valueOf(argMap.get("sslEnabled"))) {
+                throw new IllegalArgumentException("The self test server does not support ssl");
+            }
+            selfTestConfig = getSelfTestConfig(argMap);
+            selfTestServer = new LoopbackServer(selfTestConfig);
+            argMap = new HashMap<>(argMap);
+            argMap.put("url", selfTestServer.getUrl());
+        }
+
+        // A replay sends the requests of the trace instead, its own list only names them for the breakdown.
+        TraceReplay replay = null;
+        List<Request> requests;
+        if (argMap.get("replay") != null) {
+            if (argMap.get("rate") != null || argMap.get("workload") != null || argMap.get("dataPath") != null
+                    || Boolean.valueOf(argMap.get("postRequestValidation")) || argMap.get("getRequestValidation") != null) {
+                throw new IllegalArgumentException("The trace defines the requests and their schedule, rate, workload, " +
+                        "dataPath and response body validation cannot be used with replay");
+            }
+            replay = new TraceReplay(
+                    Trace.open(new File(argMap.get("replay")).toPath(), argMap.get("url")),
+                    argMap.get("replaySpeed") == null ? 1 : Double.valueOf(argMap.get("replaySpeed")),
+                    processIndex, processCount);
+            requests = replay.getRequests();
+        } else {
+            requests = getRequests(argMap);
+        }
+        if (selfTestServer != null && replay == null) {
+            for (Request request : requests) {
+                request.setExpectedResponse(selfTestServer.expectedResponse(request));
+            }
+        }
         List<Validation> validations = new ArrayList<>();
         if (Boolean.valueOf(argMap.get("responseCodeValidation"))) {
             validations.add(new ResponseCodeValidation());
@@ -51,26 +291,233 @@ public class ClientCLI {
         if (Boolean.valueOf(argMap.get("postRequestValidation")) || argMap.get("getRequestValidation") != null) {
             validations.add(new ResponseDataValidation());
         }
+        ResponseValidator validator = new ResponseValidator(
+                validations,
+                argMap.get("validationSampleRate") == null ? 1 : Double.valueOf(argMap.get("validationSampleRate")),
+                argMap.get("validationThreads") == null ? 0 : Integer.valueOf(argMap.get("validationThreads")));
+
+        // A scenario sets the length of the run and how the load changes over it.
+        Scenario scenario = null;
+        if (argMap.get("scenario") != null) {
+            if (argMap.get("duration") != null || argMap.get("warmup") != null || argMap.get("rate") != null
+                    || replay != null) {
+                throw new IllegalArgumentException("The scenario defines the length of the run and its load, duration, " +
+                        "warmup, rate and replay cannot be used with a scenario");
+            }
+            scenario = Scenario.read(new File(argMap.get("scenario")).toPath());
+        }
 
-        long requestDelay = Long.valueOf(argMap.get("requestDelay"));
-        int count = Integer.valueOf(argMap.get("count"));
+        long requestDelay = argMap.get("requestDelay") == null ? 0 : Long.valueOf(argMap.get("requestDelay"));
+        long count = argMap.get("count") == null ? Long.MAX_VALUE : Long.valueOf(argMap.get("count"));
+        RunSchedule schedule = new RunSchedule(
+                argMap.get("warmup") == null ? 0 : RunSchedule.parseDuration(argMap.get("warmup")),
+                scenario != null ? scenario.getDuration()
+                        : argMap.get("duration") == null ? 0 : RunSchedule.parseDuration(argMap.get("duration")));
+        int histogramPrecision = argMap.get("histogramPrecision") == null
+                ? Histograms.DEFAULT_PRECISION : Integer.valueOf(argMap.get("histogramPrecision"));
+        int threadCount = Integer.valueOf(argMap.get("threads"));
         boolean sslEnabled = Boolean.valueOf(argMap.get("sslEnabled"));
+        Double rate = argMap.get("rate") == null ? null : Pacer.parseRate(argMap.get("rate"));
+        String engine = argMap.get("engine") == null ? "blocking" : argMap.get("engine");
+        int concurrency = argMap.get("concurrency") == null ? threadCount : Integer.valueOf(argMap.get("concurrency"));
+        int maxStreamsPerConnection = argMap.get("maxStreamsPerConnection") == null
+                ? DEFAULT_MAX_STREAMS_PER_CONNECTION : Integer.valueOf(argMap.get("maxStreamsPerConnection"));
+        boolean virtualThreads = Boolean.valueOf(argMap.get("virtualThreads"));
+
+        // The blocking threads share one connection pool. Virtual threads are cheap enough to run far more threads
+        // than it is sensible to open connections, so their pool is bounded by default.
+        SharedHttpClient sharedClient = null;
+        if (engine.equals("blocking")) {
+            int maxConnections = argMap.get("maxConnections") != null ? Integer.valueOf(argMap.get("maxConnections"))
+                    : virtualThreads ? Math.min(threadCount, HttpClientFactory.DEFAULT_MAX_CONNECTIONS) : threadCount;
+            ConnectionPoolConfig poolConfig = new ConnectionPoolConfig(maxConnections);
+            if (argMap.get("maxConnectionsPerRoute") != null) {
+                poolConfig.setMaxPerRoute(Integer.valueOf(argMap.get("maxConnectionsPerRoute")));
+            }
+            if (argMap.get("keepAliveTtl") != null) {
+                poolConfig.setKeepAliveTtl(durationMillis(argMap.get("keepAliveTtl")));
+            }
+            if (argMap.get("validateAfterInactivity") != null) {
+                poolConfig.setValidateAfterInactivity((int) durationMillis(argMap.get("validateAfterInactivity")));
+            }
+            if (argMap.get("connectTimeout") != null) {
+                poolConfig.setConnectTimeout((int) durationMillis(argMap.get("connectTimeout")));
+            }
+            if (argMap.get("socketTimeout") != null) {
+                poolConfig.setSocketTimeout((int) durationMillis(argMap.get("socketTimeout")));
+            }
+            if (argMap.get("requestsPerConnection") != null) {
+                poolConfig.setRequestsPerConnection(Integer.valueOf(argMap.get("requestsPerConnection")));
+            }
+            poolConfig.setTlsSessionResumption(!Boolean.valueOf(argMap.get("disableTlsResumption")));
+            sharedClient = new SharedHttpClient(sslEnabled, poolConfig);
+        }
 
-        List<ClientThread> clientThreads = new ArrayList();
+        List<Worker> clientThreads = new ArrayList();
+        List<Pacer> pacers = new ArrayList<>();
+
+        for (int i = 0; i < threadCount; i++) {
+            Pacer pacer = null;
+            if (rate != null) {
+                // Every process runs the same number of threads, whose requests are interleaved across processes.
+                pacer = new Pacer(0, rate, processIndex * threadCount + i, processCount * threadCount);
+                pacers.add(pacer);
+            } else if (scenario != null && scenario.getTarget() == Scenario.Target.RATE) {
+                pacer = new Pacer(0, scenario, processIndex * threadCount + i, processCount * threadCount);
+                pacers.add(pacer);
+            }
+            switch (engine) {
+                case "blocking":
+                    clientThreads.add(
+                            new ClientThread(
+                                    count,
+                                    requests,
+                                    validator,
+                                    requestDelay,
+                                    sharedClient,
+                                    pacer,
+                                    schedule,
+                                    histogramPrecision
+                            )
+                    );
+                    break;
+                case "async":
+                    // Spread the in-flight requests over the event loop threads as evenly as possible.
+                    int threadConcurrency = concurrency / threadCount + (i < concurrency % threadCount ? 1 : 0);
+                    clientThreads.add(
+                            new AsyncClientThread(
+                                    count,
+                                    requests,
+                                    validator,
+                                    requestDelay,
+                                    sslEnabled,
+                                    pacer,
+                                    schedule,
+                                    histogramPrecision,
+                                    Math.max(1, threadConcurrency)
+                            )
+                    );
+                    break;
+                case "http2":
+                    clientThreads.add(
+                            new Http2ClientThread(
+                                    count,
+                                    requests,
+                                    validator,
+                                    requestDelay,
+                                    sslEnabled,
+                                    pacer,
+                                    schedule,
+                                    histogramPrecision,
+                                    maxStreamsPerConnection
+                            )
+                    );
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid engine: " + engine);
+            }
+        }
 
-        for (int i = 0; i < Integer.valueOf(argMap.get("threads")); i++) {
-            clientThreads.add(
-                    new ClientThread(
-                            count,
-                            requests,
-                            validations,
-                            requestDelay,
-                            sslEnabled
-                    )
-            );
+        if (argMap.get("resultLog") != null) {
+            Path resultLogDir = new File(argMap.get("resultLog")).toPath();
+            Files.createDirectories(resultLogDir);
+            for (int i = 0; i < clientThreads.size(); i++) {
+                clientThreads.get(i).setResultLog(new ResultLogWriter(resultLogDir.resolve(
+                        "worker-" + (processIndex * threadCount + i) + ResultLog.EXTENSION)));
+            }
         }
 
-        List<Thread> threads = clientThreads.stream().map(t -> new Thread(t)).collect(Collectors.toList());
+        if (replay != null) {
+            for (Worker worker : clientThreads) {
+                worker.setReplay(replay);
+            }
+            replay.start();
+        }
+
+        if (scenario != null) {
+            if (scenario.getTarget() == Scenario.Target.CONCURRENCY) {
+                if (!engine.equals("blocking")) {
+                    throw new IllegalArgumentException("Concurrency scenarios are only supported by the blocking engine");
+                }
+                if (scenario.getPeakTarget() > processCount * threadCount) {
+                    throw new IllegalArgumentException("The scenario needs " + (long) Math.ceil(scenario.getPeakTarget())
+                            + " threads across all processes, only " + processCount * threadCount + " are running");
+                }
+            }
+            for (int i = 0; i < clientThreads.size(); i++) {
+                clientThreads.get(i).setScenario(scenario, processIndex * threadCount + i);
+            }
+        }
+
+        if (virtualThreads && !engine.equals("blocking")) {
+            throw new IllegalArgumentException("Virtual threads are only supported by the blocking engine");
+        }
+        if ((argMap.get("requestsPerConnection") != null || Boolean.valueOf(argMap.get("disableTlsResumption")))
+                && !engine.equals("blocking")) {
+            throw new IllegalArgumentException("Connection churn is only supported by the blocking engine");
+        }
+        List<Thread> threads = clientThreads.stream()
+                .map(t -> virtualThreads ? VirtualThreads.newThread(t) : new Thread(t))
+                .collect(Collectors.toList());
+        PinningMonitor pinningMonitor = virtualThreads ? new PinningMonitor() : null;
+        if (pinningMonitor != null) {
+            pinningMonitor.start();
+        }
+
+        // All pacers share one start time, taken after the clients have been built so no request starts out late.
+        // Processes sharing the load also agree on the wall clock time at which they all start.
+        long startTimeMillis = startAt.call();
+        if (startTimeMillis > 0) {
+            Thread.sleep(Math.max(0, startTimeMillis - System.currentTimeMillis()));
+        }
+        setupPhase.commit();
+        long startTime = System.nanoTime();
+        pacers.forEach(p -> p.setStartTime(startTime));
+        if (replay != null) {
+            replay.setStartTime(startTime);
+        }
+        if (scenario != null) {
+            scenario.start(startTime);
+        }
+        schedule.start(startTime);
+
+        // Samples the load generator's own GC pauses, allocation, CPU time and scheduler lag, and marks the phases of
+        // the run in flight recordings.
+        OverheadMonitor overheadMonitor = new OverheadMonitor();
+        if (schedule.getWarmup() > 0) {
+            overheadMonitor.addPhase("warmup", schedule.getWarmup());
+        }
+        if (scenario != null) {
+            scenario.getStages().forEach(stage -> overheadMonitor.addPhase(stage.getName(), stage.getDuration()));
+        } else {
+            overheadMonitor.addPhase("measurement", schedule.getDuration());
+        }
+        overheadMonitor.start(startTime, schedule.getMeasurementStartTime());
+
+        long reportInterval = argMap.get("reportInterval") == null
+                ? TimeUnit.SECONDS.toNanos(1) : RunSchedule.parseDuration(argMap.get("reportInterval"));
+        LiveMetrics liveMetrics = null;
+        MetricsEndpoint metricsEndpoint = null;
+        if (Boolean.valueOf(argMap.get("jmx")) || argMap.get("metricsPort") != null) {
+            liveMetrics = new LiveMetrics(reportInterval > 0 ? reportInterval : TimeUnit.SECONDS.toNanos(1),
+                    histogramPrecision);
+            if (Boolean.valueOf(argMap.get("jmx"))) {
+                liveMetrics.register();
+            }
+            if (argMap.get("metricsPort") != null) {
+                metricsEndpoint = new MetricsEndpoint(Integer.valueOf(argMap.get("metricsPort")), liveMetrics);
+                System.err.println("Serving live metrics at http://localhost:" + metricsEndpoint.getPort()
+                        + MetricsEndpoint.PATH);
+            }
+        }
+        IntervalReporter reporter = null;
+        if (reportInterval > 0 || liveMetrics != null) {
+            // Live lines go to stderr so they do not end up in the json printed to stdout.
+            reporter = new IntervalReporter(clientThreads, schedule,
+                    reportInterval > 0 ? reportInterval : TimeUnit.SECONDS.toNanos(1), histogramPrecision,
+                    reportInterval > 0 ? System.err : null, liveMetrics);
+            reporter.start(startTime);
+        }
 
         threads.forEach(Thread::start);
 
@@ -82,49 +529,108 @@ public class ClientCLI {
                     }
         });
 
-        Metrics metrics = new Metrics(clientThreads);
-
-        String outputType = argMap.get("outputType");
-        String output = null;
-        if (outputType != null && outputType.equals("json")) {
-            output = metrics.toJsonString();
-        } else {
-            output = metrics.toString();
+        overheadMonitor.stop();
+        RunPhaseEvent reportPhase = RunPhaseEvent.begin("report");
+        validator.close();
+        if (reporter != null) {
+            reporter.stop();
         }
-
-        String outputFile = argMap.get("outputFile");
-        if (outputFile != null) {
-            FileUtils.writeStringToFile(new File(outputFile), output);
+        if (metricsEndpoint != null) {
+            metricsEndpoint.close();
+        }
+        if (liveMetrics != null) {
+            liveMetrics.unregister();
+        }
+        if (selfTestServer != null) {
+            selfTestServer.close();
+        }
+        if (replay != null) {
+            replay.close();
+        }
+        ConnectionStats connectionStats = null;
+        if (sharedClient != null) {
+            connectionStats = sharedClient.getConnectionStats(System.nanoTime() - startTime);
+            sharedClient.close();
         }
 
-        System.out.print(output);
+        Metrics metrics = new Metrics(clientThreads);
+        metrics.setEngine(engine);
+        metrics.setThreadMode(virtualThreads ? "virtual" : "platform");
+        metrics.setServerStreamLimit(clientThreads.stream()
+                .filter(t -> t instanceof Http2ClientThread)
+                .mapToInt(t -> ((Http2ClientThread) t).getServerStreamLimit())
+                .filter(limit -> limit > 0)
+                .min().orElse(0));
+        if (metrics.getServerStreamLimit() > 0) {
+            System.err.println("WARNING: The server allowed only " + metrics.getServerStreamLimit() + " concurrent "
+                    + "streams per connection, fewer than maxStreamsPerConnection: the other requests waited for a "
+                    + "free stream, and their latencies include that wait.");
+        }
+        metrics.setConnectionStats(connectionStats);
+        if (replay != null) {
+            metrics.setReplay(replay.getStats());
+        }
+        metrics.setSelfTestServer(selfTestConfig);
+        if (reporter != null && reportInterval > 0) {
+            metrics.setIntervals(reporter.getIntervals());
+        }
+        if (pinningMonitor != null) {
+            metrics.setVirtualThreadPinning(pinningMonitor.stop());
+        }
+        metrics.setOverhead(overheadMonitor.getStats(metrics.getTotalRequestCount() + metrics.getWarmupRequestCount(),
+                metrics.getPercentiles().get(99)));
+        // The report may go to a file or be json, so the warnings are also printed where they are seen.
+        metrics.getOverhead().getWarnings().forEach(warning -> System.err.println("WARNING: " + warning));
+        reportPhase.commit();
+        return metrics;
     }
 
     private static List<Request> getRequests(Map<String, String> argMap) throws IOException {
         List<Request> requests = new ArrayList<>();
 
+        if (argMap.get("workload") != null) {
+            if (argMap.get("dataPath") != null || argMap.get("getRequestValidation") != null) {
+                throw new IllegalArgumentException("The workload file defines the requests, dataPath and " +
+                        "getRequestValidation cannot be used with it");
+            }
+            if (Boolean.valueOf(argMap.get("postRequestValidation")) && !Boolean.valueOf(argMap.get("selfTest"))) {
+                throw new IllegalArgumentException("postRequestValidation of a workload only works with selfTest");
+            }
+            return Workload.read(new File(argMap.get("workload")).toPath(), argMap.get("url"));
+        }
+
         RequestType type = RequestType.valueOf(argMap.get("method"));
         switch (type) {
             case GET:
-                Request request = new GetRequest(argMap.get("url"));
+                Request request = Template.isTemplate(argMap.get("url"))
+                        ? new WorkloadRequest(RequestType.GET, argMap.get("url"), new Header[0], (Payload) null)
+                        : new GetRequest(argMap.get("url"));
                 requests.add(request);
                 break;
             case POST:
+                if (Boolean.valueOf(argMap.get("selfTest")) && argMap.get("dataPath") == null) {
+                    Request selfTestRequest = new PostRequest(argMap.get("url"), Payload.of(selfTestPayload(argMap)));
+                    selfTestRequest.setName("selfTestPayload");
+                    requests.add(selfTestRequest);
+                    break;
+                }
                 requests = getPostRequests(
                             argMap.get("url"),
                             argMap.get("dataPath"),
                             requests,
                             Boolean.valueOf(argMap.get("postRequestValidation"))
+                                    && !Boolean.valueOf(argMap.get("selfTest"))
                         );
                 break;
             default:
-                throw new IllegalStateException("Invalid method");
+                throw new IllegalArgumentException("Only GET and POST can be sent with -m, define " + type +
+                        " requests in a workload file");
         }
 
         String expectedFilePath = argMap.get("getRequestValidation");
         if (expectedFilePath != null && type == RequestType.GET) {
-            String expectedResponseData = new String(Files.readAllBytes(new File(expectedFilePath).toPath()));
-            requests.forEach(request -> { request.setExpectedResponseData(expectedResponseData); });
+            ExpectedResponse expectedResponse = ExpectedResponse.fromFile(new File(expectedFilePath).toPath());
+            requests.forEach(request -> { request.setExpectedResponse(expectedResponse); });
         } else if (argMap.get("getRequestValidation") != null) {
             throw new RuntimeException("Invalid use of getRequestValidation argument");
         }
@@ -135,18 +641,36 @@ public class ClientCLI {
     private static List<Request> getPostRequests(String url, String dataPath, List<Request> requests, boolean validationEnabled) throws IOException {
         File path = new File(dataPath);
 
+        // Payloads are only listed here, they are mapped from disk the first time they are sent.
+        if (path.isFile() && path.getName().endsWith(PayloadPack.EXTENSION)) {
+            if (validationEnabled) {
+                throw new IllegalArgumentException("postRequestValidation needs a dataPath directory with expected files");
+            }
+            PayloadPack pack = PayloadPack.open(path.toPath());
+            // The pack holds the files in name order, so the index points back to the file.
+            for (int i = 0; i < pack.size(); i++) {
+                Request request = new PostRequest(url, pack.get(i));
+                request.setName(path.getName() + "#" + i);
+                requests.add(request);
+            }
+            return requests;
+        }
+
         File[] files = path.listFiles(new FilenameFilter(){
             public boolean accept( File dir, String name ) {
-                return ! name.matches( ".*\\.expected$" );
+                return ! ExpectedResponse.isExpectedFile(name);
             }
         });
         for (File file : files) {
-            String data = new String(Files.readAllBytes(file.toPath()));
-            Request request = new PostRequest(url, data);
+            Request request = new PostRequest(url, Payload.map(file.toPath()));
+            request.setName(file.getName());
 
             if (validationEnabled) {
-                Path expectedResultPath = new File(file.getPath().concat(".expected")).toPath();
-                request.setExpectedResponseData(new String(Files.readAllBytes(expectedResultPath)));
+                Path expectedResultPath = new File(file.getPath().concat(ExpectedResponse.EXTENSION)).toPath();
+                if (!Files.exists(expectedResultPath)) {
+                    expectedResultPath = new File(expectedResultPath + ExpectedResponse.DIGEST_EXTENSION).toPath();
+                }
+                request.setExpectedResponse(ExpectedResponse.fromFile(expectedResultPath));
             }
 
             requests.add(request);
@@ -155,44 +679,252 @@ public class ClientCLI {
         return requests;
     }
 
+    private static LoopbackServerConfig getSelfTestConfig(Map<String, String> argMap) {
+        LoopbackServerConfig config = new LoopbackServerConfig();
+        if (argMap.get("selfTestBodySize") != null) {
+            config.setBodySize(Integer.valueOf(argMap.get("selfTestBodySize")));
+        }
+        config.setDelay(argMap.get("selfTestDelay"));
+        if (argMap.get("selfTestErrorRate") != null) {
+            config.setErrorRate(Double.valueOf(argMap.get("selfTestErrorRate")));
+        }
+        if (argMap.get("selfTestThreads") != null) {
+            config.setIoThreads(Integer.valueOf(argMap.get("selfTestThreads")));
+        }
+        if (argMap.get("selfTestMaxStreams") != null) {
+            config.setMaxConcurrentStreams(Integer.valueOf(argMap.get("selfTestMaxStreams")));
+        }
+        return config;
+    }
+
+    /**
+     * @return the payload posted in a self test without dataPath, of the self test body size.
+     */
+    private static byte[] selfTestPayload(Map<String, String> argMap) {
+        int size = argMap.get("selfTestBodySize") == null
+                ? LoopbackServerConfig.DEFAULT_BODY_SIZE : Integer.valueOf(argMap.get("selfTestBodySize"));
+        byte[] payload = new byte[size];
+        for (int i = 0; i < size; i++) {
+            payload[i] = (byte) ('A' + i % 26);
+        }
+        return payload;
+    }
+
+    private static long durationMillis(String duration) {
+        return TimeUnit.NANOSECONDS.toMillis(RunSchedule.parseDuration(duration));
+    }
+
     private static Map<String, String> parseArgs(String[] args) {
         Map<String, String> argMap = new HashMap();
 
         Option numThreads = new Option("t", "threads", true, "Number of threads to run.");
-        Option numRequests = new Option("c", "count", true, "Number of requests to send per thread.");
-        Option url = new Option("u", "url", true, "Url to send request to.");
+        Option numRequests = new Option("c", "count", true, "Number of requests to send per thread, including warmup. " +
+                "Unlimited when only duration is set.");
+        Option duration = new Option(null, "duration", true, "Run for this long after the warmup, eg. 30s, 5m, 1h. The run " +
+                "stops at the end of the duration or once count requests were sent, whichever comes first.");
+        Option warmup = new Option(null, "warmup", true, "Send requests for this long before measuring, eg. 30s. Warmup " +
+                "requests are reported separately and excluded from the latency metrics and requests per second.");
+        Option url = new Option("u", "url", true, "Url to send request to. A GET url may hold placeholders that " +
+                "change for each request, eg. http://host/item/${zipf:1000000} or ${uniform:1:1000}, ${counter}, " +
+                "${thread} and ${timestamp}.");
         Option requestType = new Option("m", "method", true, "Http method to use. eg. POST or GET");
+        Option workload = new Option(null, "workload", true, "File defining the requests to send instead of " +
+                "method and dataPath: one json object per line with a url, relative to the -u url or absolute, and " +
+                "optionally a method (GET, POST, PUT, DELETE, PATCH or HEAD), headers, a body or bodyFile, a name " +
+                "and a weight. Requests are drawn at random in proportion to their weights.");
         Option postDataPath = new Option("d", "dataPath", true, "Directory containing file data to be posted. Each file will be " +
-                "posted independently.");
+                "posted independently, as raw bytes mapped from disk when first sent. For corpora of many files, pass a " +
+                PayloadPack.EXTENSION + " file built with PayloadPack instead.");
         Option responseCodeValidation = new Option("r", "responseCodeValidation", false, "Check that all requests give 200 response.");
         Option getRequestValidation = new Option("g", "getRequestValidation", true, "Only for GET requests: Validate the servers response " +
-                "against some expected string read from the file specified in this arg.");
+                "against the expected bytes read from the file specified in this arg, or against the hex encoded " +
+                "SHA-256 digest in it if the file name ends with .sha256.");
         Option postRequestValidation = new Option("p", "postRequestValidation", false, "Only for POST requests: Looks for a file with " +
-                ".expected extension corresponding to each input file from postDataPath arg path.");
-        Option requestDelay = new Option("rd", "requestDelay", true, "Delay between each request in nanoseconds. The code will busy wait " +
-                "instead of sleep inorder to allow smaller delays than 1ms.");
+                ".expected extension corresponding to each input file from postDataPath arg path, or else for a " +
+                ".expected.sha256 file holding the hex encoded SHA-256 digest of the expected response.");
+        Option validationSampleRate = new Option(null, "validationSampleRate", true, "Fraction of the responses to " +
+                "validate, eg. 0.01. Defaults to 1.");
+        Option validationThreads = new Option(null, "validationThreads", true, "Validate responses on this many " +
+                "separate threads, so workers only drain the response and go on with their next request. Defaults to " +
+                "0, validating on the workers.");
+        Option requestDelay = new Option("rd", "requestDelay", true, "Delay between each request in nanoseconds. The code parks and " +
+                "only spins for the last few microseconds inorder to allow smaller delays than 1ms.");
+        Option rate = new Option(null, "rate", true, "Open-loop mode: target request rate across all threads, eg. 50000/s, " +
+                "3000/m. Requests are sent at fixed intended start times regardless of how long earlier requests took, " +
+                "and coordinated omission corrected latencies are reported. Overrides requestDelay.");
+        Option replay = new Option(null, "replay", true, "Trace to replay instead of sending the same requests: one " +
+                "json object per line with the time the request was received at in milliseconds, and the fields of a " +
+                "workload line. Each request is sent at its offset from the first one, by whichever thread is free, " +
+                "and the report shows how far send times drifted from the schedule. The run ends with the trace.");
+        Option replaySpeed = new Option(null, "replaySpeed", true, "How many times faster than recorded to replay the " +
+                "trace, eg. 2 sends the requests of an hour in 30 minutes. Defaults to 1.");
+        Option scenario = new Option(null, "scenario", true, "File defining the stages of the run instead of its " +
+                "duration and rate: one json object per line with a duration, a target rate or concurrency and " +
+                "optionally a ramp ('step', the default, or 'linear' from the previous target) and a name, eg. " +
+                "{\"name\": \"spike\", \"duration\": \"30s\", \"rate\": \"8000/s\"}. Threads and connections are " +
+                "kept through the run, threads above the concurrency of the moment are parked. Results are also reported " +
+                "by stage.");
         Option sslEnabled = new Option("s", "sslEnabled", false, "Enables ssl support with a truststrategy that returns true instead " +
                 "of verifying the certificate.");
+        Option engine = new Option(null, "engine", true, "Possible values: 'blocking' (default) runs one blocking connection " +
+                "per thread. 'async' runs a non-blocking client with one event loop per thread, each driving many " +
+                "in-flight requests over its own connections. 'http2' runs one HTTP/2 connection per thread, each driven by " +
+                "its own event loop and multiplexing up to maxStreamsPerConnection in-flight requests: h2c with prior " +
+                "knowledge for http urls, h2 negotiated through ALPN for https urls.");
+        Option concurrency = new Option(null, "concurrency", true, "Only for the async engine: total number of in-flight " +
+                "requests, spread over the threads. Defaults to the number of threads.");
+        Option maxStreamsPerConnection = new Option(null, "maxStreamsPerConnection", true, "Only for the http2 engine: " +
+                "maximum number of in-flight requests on each connection, enforced by the client as the server may " +
+                "allow more concurrent streams. A server allowing fewer is reported. Defaults to " +
+                DEFAULT_MAX_STREAMS_PER_CONNECTION + ".");
+        Option reportInterval = new Option(null, "reportInterval", true, "Print throughput, failures and latency " +
+                "percentiles to stderr at this interval while the test runs, and include them as a time series in the " +
+                "output. Defaults to 1s, 0 disables it.");
+        Option metricsPort = new Option(null, "metricsPort", true, "Serve the running request and failure counts, " +
+                "in-flight requests, requests per second and latency percentiles over the last " +
+                TimeUnit.NANOSECONDS.toSeconds(LiveMetrics.ROLLING_WINDOW) + "s in Prometheus text format at " +
+                "http://[host]:[metricsPort]" + MetricsEndpoint.PATH + " while the test runs. 0 picks a free port.");
+        Option jmx = new Option(null, "jmx", false, "Register the same live metrics as metricsPort as the MBean " +
+                LiveMetrics.OBJECT_NAME + ". Enable remote access with the usual com.sun.management.jmxremote " +
+                "system properties.");
+        Option virtualThreads = new Option(null, "virtualThreads", false, "Only for the blocking engine: run each thread as " +
+                "a virtual thread (requires Java 21). The threads share one connection pool bounded by maxConnections, " +
+                "and virtual thread pinning is reported.");
+        Option maxConnections = new Option(null, "maxConnections", true, "Maximum number of connections in the pool shared " +
+                "by the blocking threads. Defaults to the number of threads, at most " +
+                HttpClientFactory.DEFAULT_MAX_CONNECTIONS + " when virtualThreads is set.");
+        Option maxConnectionsPerRoute = new Option(null, "maxConnectionsPerRoute", true, "Maximum number of pooled " +
+                "connections per host. Defaults to maxConnections.");
+        Option keepAliveTtl = new Option(null, "keepAliveTtl", true, "Maximum lifetime of a pooled connection, eg. 30s. " +
+                "Defaults to as long as the server keeps it alive.");
+        Option validateAfterInactivity = new Option(null, "validateAfterInactivity", true, "Check pooled connections idle " +
+                "for longer than this for staleness before reusing them, eg. 2s, 0 to never check. Defaults to 2s.");
+        Option connectTimeout = new Option(null, "connectTimeout", true, "Connect timeout, eg. 1s. Defaults to none.");
+        Option socketTimeout = new Option(null, "socketTimeout", true, "Socket read timeout, eg. 5s. Defaults to none.");
+        Option requestsPerConnection = new Option(null, "requestsPerConnection", true, "Only for the blocking engine: " +
+                "close each connection after this many requests, 1 to open a new connection for every request, to " +
+                "load the connection setup and TLS handshake path of the server. Defaults to keeping connections " +
+                "alive for as long as the server allows.");
+        Option disableTlsResumption = new Option(null, "disableTlsResumption", false, "Only for the blocking engine: " +
+                "make every new https connection go through a full TLS handshake instead of resuming an earlier " +
+                "session. The rate and latency of full and resumed handshakes are reported.");
+        Option histogramPrecision = new Option(null, "histogramPrecision", true, "Number of significant digits kept by the " +
+                "latency histograms, 1 to 5. Defaults to " + Histograms.DEFAULT_PRECISION + ".");
+        Option workerProcesses = new Option(null, "workerProcesses", true, "Coordinate this many worker processes " +
+                "instead of sending requests from this one. Each worker process is started with --joinCoordinator " +
+                "host:port, runs the threads given here with the same settings, and all start at the same time. The " +
+                "rate is shared by all their threads. Their results are merged into one report.");
+        Option coordinatorPort = new Option(null, "coordinatorPort", true, "Port the coordinator listens on for " +
+                "worker processes. Defaults to " + Coordinator.DEFAULT_PORT + ".");
+        Option findMaxRate = new Option(null, "findMaxRate", false, "Search for the highest open-loop rate meeting " +
+                "the slo: run one step per offered rate, each for warmup plus duration, doubling the rate from the " +
+                "rate option (defaults to " + (long) RateSearch.DEFAULT_START_RATE + "/s) until a step fails, then " +
+                "bisecting. Reports the highest passing rate and the latency and throughput of every step.");
+        Option slo = new Option(null, "slo", true, "Only with findMaxRate: latency objectives the corrected latencies " +
+                "must meet, eg. p99<20ms or p50<2ms,p99.9<50ms.");
+        Option maxErrorRate = new Option(null, "maxErrorRate", true, "Only with findMaxRate: highest fraction of " +
+                "failed requests for a step to pass. Defaults to " + RateSearch.DEFAULT_MAX_ERROR_RATE + ".");
+        Option compareTo = new Option(null, "compareTo", true, "Compare the results with a baseline, the json output " +
+                "(-o json) of earlier runs given as one or more comma separated files, and exit with " +
+                REGRESSION_EXIT_CODE + " if they regressed. Throughput, error rate, latency percentiles and the " +
+                "latency distribution are compared, the runs of each side being pooled.");
+        Option runs = new Option(null, "runs", true, "Only with compareTo: number of times to repeat the run, to " +
+                "pool their results and reduce noise. Defaults to 1.");
+        Option maxThroughputDrop = new Option(null, "maxThroughputDrop", true, "Only with compareTo: largest drop of " +
+                "requests per second, as a fraction of the baseline. Defaults to " +
+                RegressionGate.DEFAULT_MAX_THROUGHPUT_DROP + ".");
+        Option maxLatencyIncrease = new Option(null, "maxLatencyIncrease", true, "Only with compareTo: largest " +
+                "increase of the 50, 90, 99 and 99.9% latencies, as a fraction of the baseline. Defaults to " +
+                RegressionGate.DEFAULT_MAX_LATENCY_INCREASE + ".");
+        Option maxErrorRateIncrease = new Option(null, "maxErrorRateIncrease", true, "Only with compareTo: largest " +
+                "increase of the fraction of failed requests. Defaults to " +
+                RegressionGate.DEFAULT_MAX_ERROR_RATE_INCREASE + ".");
+        Option maxDistributionShift = new Option(null, "maxDistributionShift", true, "Only with compareTo: largest " +
+                "fraction of requests whose latency may shift slower, measured as a Kolmogorov-Smirnov distance. " +
+                "Defaults to " + RegressionGate.DEFAULT_MAX_DISTRIBUTION_SHIFT + ".");
+        Option significance = new Option(null, "significance", true, "Only with compareTo: p-value below which a " +
+                "latency distribution shift is significant. Defaults to " + RegressionGate.DEFAULT_SIGNIFICANCE + ".");
+        Option selfTest = new Option(null, "selfTest", false, "Send the requests to an in-process loopback server " +
+                "instead of url, to measure the maximum throughput and the latency floor of this machine and settings. " +
+                "It answers GET requests with a fixed body and POST requests with their own body, over HTTP/1.1 or h2c, " +
+                "and -p validates every response against that. POST requests without dataPath send one payload of " +
+                "selfTestBodySize bytes.");
+        Option selfTestBodySize = new Option(null, "selfTestBodySize", true, "Size in bytes of the self test server's " +
+                "GET response body. Defaults to " + LoopbackServerConfig.DEFAULT_BODY_SIZE + ".");
+        Option selfTestDelay = new Option(null, "selfTestDelay", true, "Delay of each self test server response: fixed, " +
+                "eg. 2ms, exponentially distributed with a mean, eg. exp:2ms, or uniformly distributed, eg. " +
+                "uniform:1ms-5ms. Defaults to none.");
+        Option selfTestErrorRate = new Option(null, "selfTestErrorRate", true, "Fraction of the requests the self test " +
+                "server answers with a 500 error. Defaults to 0.");
+        Option selfTestThreads = new Option(null, "selfTestThreads", true, "Number of I/O threads of the self test " +
+                "server. Defaults to the number of available processors.");
+        Option selfTestMaxStreams = new Option(null, "selfTestMaxStreams", true, "Concurrent streams the self test " +
+                "server allows on each HTTP/2 connection. Defaults to " +
+                LoopbackServerConfig.DEFAULT_MAX_CONCURRENT_STREAMS + ".");
+        Option resultLog = new Option(null, "resultLog", true, "Directory to write the result of every request to, as " +
+                "fixed-width binary records in one memory-mapped file per thread: start time, latency, status, " +
+                "request index and response bytes. Analyze them with " + ANALYZE_RESULTS_OPTION + " [directory].");
         Option outputType = new Option("o", "outputType", true, "Possible values: \'json\' or \'readable\'");
         Option outputFile = new Option("f", "outputFile", true, "Path to file.");
 
 
         numThreads.setRequired(true);
-        numRequests.setRequired(true);
-        url.setRequired(true);
-        requestType.setRequired(true);
 
         Options options = new Options();
         options.addOption(numThreads);
         options.addOption(numRequests);
+        options.addOption(duration);
+        options.addOption(warmup);
         options.addOption(url);
         options.addOption(requestType);
+        options.addOption(workload);
         options.addOption(postDataPath);
         options.addOption(responseCodeValidation);
         options.addOption(getRequestValidation);
         options.addOption(requestDelay);
+        options.addOption(rate);
+        options.addOption(replay);
+        options.addOption(replaySpeed);
+        options.addOption(scenario);
         options.addOption(sslEnabled);
         options.addOption(postRequestValidation);
+        options.addOption(validationSampleRate);
+        options.addOption(validationThreads);
+        options.addOption(engine);
+        options.addOption(concurrency);
+        options.addOption(maxStreamsPerConnection);
+        options.addOption(reportInterval);
+        options.addOption(metricsPort);
+        options.addOption(jmx);
+        options.addOption(virtualThreads);
+        options.addOption(maxConnections);
+        options.addOption(maxConnectionsPerRoute);
+        options.addOption(keepAliveTtl);
+        options.addOption(validateAfterInactivity);
+        options.addOption(connectTimeout);
+        options.addOption(socketTimeout);
+        options.addOption(requestsPerConnection);
+        options.addOption(disableTlsResumption);
+        options.addOption(histogramPrecision);
+        options.addOption(workerProcesses);
+        options.addOption(coordinatorPort);
+        options.addOption(findMaxRate);
+        options.addOption(slo);
+        options.addOption(maxErrorRate);
+        options.addOption(compareTo);
+        options.addOption(runs);
+        options.addOption(maxThroughputDrop);
+        options.addOption(maxLatencyIncrease);
+        options.addOption(maxErrorRateIncrease);
+        options.addOption(maxDistributionShift);
+        options.addOption(significance);
+        options.addOption(selfTest);
+        options.addOption(selfTestBodySize);
+        options.addOption(selfTestDelay);
+        options.addOption(selfTestErrorRate);
+        options.addOption(selfTestThreads);
+        options.addOption(selfTestMaxStreams);
+        options.addOption(resultLog);
         options.addOption(outputType);
         options.addOption(outputFile);
 
@@ -202,6 +934,17 @@ public class ClientCLI {
 
         try {
             cmd = parser.parse(options, args);
+            if (!cmd.hasOption("count") && !cmd.hasOption("duration") && !cmd.hasOption("replay")
+                    && !cmd.hasOption("scenario")) {
+                throw new ParseException("Missing required option: count, duration, replay or scenario");
+            }
+            if (!cmd.hasOption("url") && !cmd.hasOption("selfTest") && !cmd.hasOption("workload")
+                    && !cmd.hasOption("replay")) {
+                throw new ParseException("Missing required option: url, selfTest, workload or replay");
+            }
+            if (!cmd.hasOption("method") && !cmd.hasOption("workload") && !cmd.hasOption("replay")) {
+                throw new ParseException("Missing required option: method, workload or replay");
+            }
         } catch (ParseException e) {
             System.err.println(e.getMessage());
             helpFormatter.printHelp("http-performance-client", options);
@@ -211,14 +954,58 @@ public class ClientCLI {
 
         argMap.put("threads", cmd.getOptionValue("threads"));
         argMap.put("count", cmd.getOptionValue("count"));
+        argMap.put("duration", cmd.getOptionValue("duration"));
+        argMap.put("warmup", cmd.getOptionValue("warmup"));
         argMap.put("url", cmd.getOptionValue("url"));
         argMap.put("method", cmd.getOptionValue("method"));
         argMap.put("dataPath", cmd.getOptionValue("dataPath"));
+        argMap.put("workload", cmd.getOptionValue("workload"));
         argMap.put("responseCodeValidation", String.valueOf(cmd.hasOption("responseCodeValidation")));
         argMap.put("getRequestValidation", cmd.getOptionValue("getRequestValidation"));
         argMap.put("requestDelay", cmd.getOptionValue("requestDelay"));
+        argMap.put("rate", cmd.getOptionValue("rate"));
+        argMap.put("replay", cmd.getOptionValue("replay"));
+        argMap.put("replaySpeed", cmd.getOptionValue("replaySpeed"));
+        argMap.put("scenario", cmd.getOptionValue("scenario"));
         argMap.put("sslEnabled", String.valueOf(cmd.hasOption("sslEnabled")));
         argMap.put("postRequestValidation", String.valueOf(cmd.hasOption("postRequestValidation")));
+        argMap.put("validationSampleRate", cmd.getOptionValue("validationSampleRate"));
+        argMap.put("validationThreads", cmd.getOptionValue("validationThreads"));
+        argMap.put("engine", cmd.getOptionValue("engine"));
+        argMap.put("concurrency", cmd.getOptionValue("concurrency"));
+        argMap.put("maxStreamsPerConnection", cmd.getOptionValue("maxStreamsPerConnection"));
+        argMap.put("reportInterval", cmd.getOptionValue("reportInterval"));
+        argMap.put("metricsPort", cmd.getOptionValue("metricsPort"));
+        argMap.put("jmx", String.valueOf(cmd.hasOption("jmx")));
+        argMap.put("virtualThreads", String.valueOf(cmd.hasOption("virtualThreads")));
+        argMap.put("maxConnections", cmd.getOptionValue("maxConnections"));
+        argMap.put("maxConnectionsPerRoute", cmd.getOptionValue("maxConnectionsPerRoute"));
+        argMap.put("keepAliveTtl", cmd.getOptionValue("keepAliveTtl"));
+        argMap.put("validateAfterInactivity", cmd.getOptionValue("validateAfterInactivity"));
+        argMap.put("connectTimeout", cmd.getOptionValue("connectTimeout"));
+        argMap.put("socketTimeout", cmd.getOptionValue("socketTimeout"));
+        argMap.put("requestsPerConnection", cmd.getOptionValue("requestsPerConnection"));
+        argMap.put("disableTlsResumption", String.valueOf(cmd.hasOption("disableTlsResumption")));
+        argMap.put("histogramPrecision", cmd.getOptionValue("histogramPrecision"));
+        argMap.put("workerProcesses", cmd.getOptionValue("workerProcesses"));
+        argMap.put("coordinatorPort", cmd.getOptionValue("coordinatorPort"));
+        argMap.put("findMaxRate", String.valueOf(cmd.hasOption("findMaxRate")));
+        argMap.put("slo", cmd.getOptionValue("slo"));
+        argMap.put("maxErrorRate", cmd.getOptionValue("maxErrorRate"));
+        argMap.put("compareTo", cmd.getOptionValue("compareTo"));
+        argMap.put("runs", cmd.getOptionValue("runs"));
+        argMap.put("maxThroughputDrop", cmd.getOptionValue("maxThroughputDrop"));
+        argMap.put("maxLatencyIncrease", cmd.getOptionValue("maxLatencyIncrease"));
+        argMap.put("maxErrorRateIncrease", cmd.getOptionValue("maxErrorRateIncrease"));
+        argMap.put("maxDistributionShift", cmd.getOptionValue("maxDistributionShift"));
+        argMap.put("significance", cmd.getOptionValue("significance"));
+        argMap.put("selfTest", String.valueOf(cmd.hasOption("selfTest")));
+        argMap.put("selfTestBodySize", cmd.getOptionValue("selfTestBodySize"));
+        argMap.put("selfTestDelay", cmd.getOptionValue("selfTestDelay"));
+        argMap.put("selfTestErrorRate", cmd.getOptionValue("selfTestErrorRate"));
+        argMap.put("selfTestThreads", cmd.getOptionValue("selfTestThreads"));
+        argMap.put("selfTestMaxStreams", cmd.getOptionValue("selfTestMaxStreams"));
+        argMap.put("resultLog", cmd.getOptionValue("resultLog"));
         argMap.put("outputType", cmd.getOptionValue("outputType"));
         argMap.put("outputFile", cmd.getOptionValue("outputFile"));
 
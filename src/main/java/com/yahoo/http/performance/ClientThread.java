@@ -3,129 +3,420 @@
 
 package com.yahoo.http.performance;
 
+import com.yahoo.http.performance.replay.TraceReplay;
+import com.yahoo.http.performance.report.IntervalRecorder;
 import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.request.RequestMix;
+import com.yahoo.http.performance.resultlog.ResultLog;
+import com.yahoo.http.performance.resultlog.ResultLogWriter;
+import com.yahoo.http.performance.schedule.Pacer;
+import com.yahoo.http.performance.schedule.RunSchedule;
+import com.yahoo.http.performance.schedule.Scenario;
+import com.yahoo.http.performance.validation.ResponseValidator;
 import com.yahoo.http.performance.validation.Validation;
 
+import org.HdrHistogram.Histogram;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.ssl.SSLContextBuilder;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A single thread that makes one connection, sends the number of requests (using the requests passed in the constructor)
- * specified in the constructor arg, and validates each event using the validations passed in the constructor.
+ * specified in the constructor arg, and validates each event using the validator passed in the constructor.
+ *
+ * Without a {@link Pacer} the thread runs closed-loop: each request is sent {@code requestDelay} nanoseconds after the
+ * previous one returned. With a pacer it runs open-loop and each request is sent at its intended start time, and its
+ * corrected latency is measured from that intended start time rather than from when it was actually sent.
+ *
+ * The requests are sent in turn, or drawn by weight when they have different weights, see {@link RequestMix}. With a
+ * {@link TraceReplay}, the thread instead sends the trace's requests at their scheduled times, and like with a pacer
+ * their corrected latency is measured from those times.
+ *
+ * In a concurrency {@link Scenario} the thread is parked while the scenario's concurrency is not above its index, and
+ * it keeps its connection in the pool meanwhile.
+ *
+ * The thread stops once it has sent its requests or the {@link RunSchedule} is over, whichever comes first. Requests
+ * started during the schedule's warmup are recorded separately and are not part of the results.
+ *
+ * With a shared client, the phases of each request are also timed, see {@link RequestPhase}. The recorded latency
+ * ends when the response head was read, so unlike the phases it does not include reading the response body. Threads
+ * sharing a client may run by the thousand on virtual threads, so they record into packed histograms, whose memory
+ * grows with the latencies seen rather than being fixed at a few hundred KB each.
  */
-public class ClientThread implements Runnable {
+public class ClientThread implements Worker {
     private static final Logger LOG = LoggerFactory.getLogger(ClientThread.class);
     private final CloseableHttpClient httpClient;
     private final List<Request> requests;
-    private final List<Validation> validations;
+    private final RequestMix mix;
+    private final ResponseValidator validator;
     private final long requestDelay;
+    private final Pacer pacer;
+    private final RunSchedule schedule;
+    private final SharedHttpClient sharedClient;
+    private final long maxRequestCount;
 
-    private long runTime = 0;
-    private long failedRequest = 0;
-    private long requestCount;
-    private long[] latencies;
+    private long startTime = 0;
+    private long measurementStartTime = 0;
+    private long endTime = 0;
+    private final AtomicLong failedRequest = new AtomicLong();
+    private long requestCount = 0;
+    private long warmupRequestCount = 0;
+    private Histogram latencies;
+    private Histogram correctedLatencies;
+    private Histogram warmupLatencies;
+    private IntervalRecorder intervalRecorder;
+    private final PhaseTimer phaseTimer;
+    private final RequestBreakdown breakdown;
+    /**
+     * 1 while a request is in flight. Set with ordered stores, which cost the worker no fence, as readers only need
+     * an eventually consistent value.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private ResultLogWriter resultLog;
+    private TraceReplay replay;
+    private Scenario scenario;
+    private int workerIndex;
+    private StageBreakdown stages;
 
-    public ClientThread(int requestCount, List<Request> requests, List<Validation> validations, long requestDelay, boolean sslEnabled)
+    public ClientThread(long requestCount, List<Request> requests, List<Validation> validations, long requestDelay, boolean sslEnabled)
             throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
-        this.requestCount = requestCount;
+        this(requestCount, requests, new ResponseValidator(validations), requestDelay, sslEnabled, null,
+                new RunSchedule(0, 0), Histograms.DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param requestCount maximum number of requests to send, including warmup.
+     */
+    public ClientThread(long requestCount, List<Request> requests, ResponseValidator validator, long requestDelay, boolean sslEnabled,
+                        Pacer pacer, RunSchedule schedule, int histogramPrecision)
+            throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+        this(requestCount, requests, validator, requestDelay, HttpClientFactory.createClient(sslEnabled), null, pacer,
+                schedule, histogramPrecision);
+    }
+
+    /**
+     * Creates a thread sending its requests through a client shared with other threads. The shared client is not
+     * closed when the thread is done.
+     */
+    public ClientThread(long requestCount, List<Request> requests, ResponseValidator validator, long requestDelay,
+                        SharedHttpClient sharedClient, Pacer pacer, RunSchedule schedule, int histogramPrecision) {
+        this(requestCount, requests, validator, requestDelay, sharedClient.getHttpClient(), sharedClient, pacer,
+                schedule, histogramPrecision);
+    }
+
+    private ClientThread(long requestCount, List<Request> requests, ResponseValidator validator, long requestDelay,
+                         CloseableHttpClient httpClient, SharedHttpClient sharedClient, Pacer pacer, RunSchedule schedule,
+                         int histogramPrecision) {
+        this.maxRequestCount = requestCount;
         this.requests = requests;
-        this.validations = validations;
-        this.latencies = new long[(int) requestCount];
+        this.mix = new RequestMix(requests);
+        this.validator = validator;
+        this.latencies = newHistogram(histogramPrecision, sharedClient != null);
+        this.correctedLatencies = pacer == null ? null : newHistogram(histogramPrecision, sharedClient != null);
+        this.warmupLatencies = newHistogram(histogramPrecision, sharedClient != null);
+        this.intervalRecorder = new IntervalRecorder(histogramPrecision, sharedClient != null);
         this.requestDelay = requestDelay;
+        this.pacer = pacer;
+        this.schedule = schedule;
+        this.httpClient = httpClient;
+        this.sharedClient = sharedClient;
+        this.phaseTimer = sharedClient == null ? null : new PhaseTimer(histogramPrecision);
+        this.breakdown = new RequestBreakdown(requests, histogramPrecision);
+    }
 
-        if (sslEnabled) {
-            SSLContext sslContext = new SSLContextBuilder()
-                    .loadTrustMaterial(null, (certificate, authType) -> true)
-                    .build();
-
-            httpClient = HttpClients.custom()
-                    .setSSLContext(sslContext)
-                    .setSSLHostnameVerifier(new NoopHostnameVerifier())
-                    .build();
-        } else {
-            httpClient = HttpClients.createDefault();
-        }
+    private static Histogram newHistogram(int precision, boolean packed) {
+        return packed ? Histograms.createPacked(precision) : Histograms.create(precision);
     }
 
+    @Override
     public void run() {
-        long startTime = System.currentTimeMillis();
-        List<String> failedValidations = new ArrayList<>();
+        startTime = System.nanoTime();
+        measurementStartTime = schedule.getWarmup() > 0 ? schedule.getMeasurementStartTime() : startTime;
 
-        for (int i = 0; i < requestCount; i++) {
+        for (long i = 0; i < maxRequestCount; i++) {
+            boolean warmup = false;
+            long start = 0;
+            int stage = 0;
+            boolean responded = false;
+            TraceReplay.Entry entry = null;
+            if (replay != null && (entry = replay.next()) == null) {
+                break;
+            }
+            int requestIndex = entry != null ? entry.getNameIndex() : mix.next(i);
             try {
-                long currentTime = System.nanoTime();
-                while (currentTime + requestDelay > System.nanoTime());
-                Request request = requests.get(i % requests.size());
-                long start = System.nanoTime();
-                CloseableHttpResponse response = request.makeRequest(httpClient);
+                long intendedStart = 0;
+                if (entry != null) {
+                    intendedStart = replay.intendedStartTime(entry);
+                    Pacer.waitUntil(intendedStart);
+                } else if (pacer != null) {
+                    intendedStart = pacer.intendedStartTime(i);
+                    Pacer.waitUntil(intendedStart);
+                } else if (requestDelay > 0) {
+                    Pacer.waitUntil(System.nanoTime() + requestDelay);
+                }
+                if (scenario != null && scenario.getTarget() == Scenario.Target.CONCURRENCY) {
+                    scenario.awaitActive(workerIndex);
+                }
+                Request request = entry != null ? entry.getRequest() : requests.get(requestIndex);
+                start = System.nanoTime();
+                if (schedule.isOver(start)) {
+                    break;
+                }
+                if (stages != null) {
+                    stage = scenario.stageAt(pacer != null ? intendedStart : start);
+                }
+                warmup = schedule.isWarmup(start);
+                if (entry != null) {
+                    replay.recordDrift(entry, start - intendedStart, warmup);
+                }
+                if (warmup) {
+                    warmupRequestCount++;
+                } else {
+                    requestCount++;
+                }
+                CloseableHttpResponse response;
+                inFlight.lazySet(1);
+                if (phaseTimer != null) {
+                    HttpClientContext context = HttpClientContext.create();
+                    context.setAttribute(PhaseTimer.CONTEXT_ATTRIBUTE, phaseTimer);
+                    phaseTimer.start(start);
+                    response = request.makeRequest(httpClient, context);
+                } else {
+                    response = request.makeRequest(httpClient);
+                }
                 long end = System.nanoTime();
-                latencies[i] = end - start;
+                inFlight.lazySet(0);
+                responded = true;
+                int status = response.getStatusLine().getStatusCode();
+                if (resultLog != null) {
+                    resultLog.append(start, end - start, status, requestIndex, contentLength(response.getEntity()),
+                            warmup ? ResultLog.WARMUP : 0);
+                }
+                long recordedLatency = correctedLatencies != null ? end - intendedStart : end - start;
+                intervalRecorder.recordLatency(recordedLatency);
+                if (stages != null && !warmup) {
+                    stages.recordResponse(stage, recordedLatency);
+                }
+                if (warmup) {
+                    Histograms.record(warmupLatencies, end - start);
+                } else {
+                    Histograms.record(latencies, end - start);
+                    if (correctedLatencies != null) {
+                        Histograms.record(correctedLatencies, end - intendedStart);
+                    }
+                    breakdown.recordResponse(requestIndex, status, end - start);
+                }
 
+                boolean warmupResponse = warmup;
+                long latency = end - start;
+                int responseStage = stage;
                 try {
-                    failedValidations.clear();
-                    for (Validation v : validations) {
-                        if (!v.isValid(request, response)) {
-                            failedValidations.add(v.toString());
+                    validator.validate(request, response, failure -> {
+                        if (!warmupResponse) {
+                            breakdown.recordFailure(requestIndex, ErrorClass.VALIDATION, latency);
+                            if (stages != null) {
+                                stages.recordFailure(responseStage);
+                            }
                         }
-                    }
-
-                    HttpEntity entity = response.getEntity();
-                    EntityUtils.consume(entity);
-
-                    if (failedValidations.size() > 0) {
-                        throw new IOException("Request failed: " + failedValidations);
+                        fail(new IOException("Request failed: " + failure), warmupResponse);
+                    });
+                    if (phaseTimer != null && !warmup) {
+                        phaseTimer.record(System.nanoTime());
                     }
                 } finally {
                     response.close();
                 }
             } catch (IOException e) {
-                LOG.error("Request failed", e);
-                failedRequest++;
+                inFlight.lazySet(0);
+                long failed = System.nanoTime();
+                if (resultLog != null && start != 0 && !responded) {
+                    resultLog.append(start, failed - start, 0, requestIndex, -1,
+                            ResultLog.FAILED | (warmup ? ResultLog.WARMUP : 0));
+                }
+                if (start != 0 && !warmup) {
+                    breakdown.recordFailure(requestIndex, ErrorClass.of(e), failed - start);
+                    if (stages != null) {
+                        stages.recordFailure(stage);
+                    }
+                }
+                fail(e, warmup);
+            }
+        }
+        endTime = System.nanoTime();
+
+        if (resultLog != null) {
+            try {
+                resultLog.close();
+            } catch (IOException e) {
+                LOG.error("Result log failed to close.", e);
             }
         }
-        try {
-            httpClient.close();
-        } catch (IOException e) {
-            LOG.error("Client failed to close.");
+
+        if (sharedClient == null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                LOG.error("Client failed to close.");
+            }
         }
+    }
 
+    /**
+     * @return the length of the response body, or -1 if it is not known before reading it.
+     */
+    static int contentLength(HttpEntity entity) {
+        if (entity == null) {
+            return 0;
+        }
+        long length = entity.getContentLength();
+        return length > Integer.MAX_VALUE ? -1 : (int) length;
+    }
 
-        long endTime = System.currentTimeMillis();
-        runTime = endTime - startTime;
+    /**
+     * Counts a failed request. Validation failures may be reported from a validation thread.
+     */
+    private void fail(Exception e, boolean warmup) {
+        LOG.error("Request failed", e);
+        intervalRecorder.recordFailure();
+        if (!warmup) {
+            failedRequest.incrementAndGet();
+        }
     }
 
-    public long[] getLatencies() {
+    @Override
+    public Histogram getLatencies() {
         return latencies;
     }
 
+    @Override
+    public Histogram getCorrectedLatencies() {
+        return correctedLatencies;
+    }
+
+    @Override
+    public Histogram getWarmupLatencies() {
+        return warmupLatencies;
+    }
+
+    @Override
+    public void setResultLog(ResultLogWriter resultLog) {
+        this.resultLog = resultLog;
+    }
+
+    @Override
+    public void setReplay(TraceReplay replay) {
+        this.replay = replay;
+        if (correctedLatencies == null) {
+            correctedLatencies = newHistogram(latencies.getNumberOfSignificantValueDigits(), sharedClient != null);
+        }
+    }
+
+    @Override
+    public void setScenario(Scenario scenario, int workerIndex) {
+        this.scenario = scenario;
+        this.workerIndex = workerIndex;
+        this.stages = new StageBreakdown(scenario, latencies.getNumberOfSignificantValueDigits());
+    }
+
+    @Override
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    @Override
+    public Map<String, Histogram> getStageLatencies() {
+        return stages == null ? null : stages.getStageLatencies();
+    }
+
+    @Override
+    public Map<String, Long> getStageFailures() {
+        return stages == null ? null : stages.getStageFailures();
+    }
+
+    @Override
+    public Map<RequestPhase, Histogram> getPhaseLatencies() {
+        return phaseTimer == null ? null : phaseTimer.getHistograms();
+    }
+
+    @Override
+    public Map<String, Histogram> getRequestLatencies() {
+        return breakdown.getRequestLatencies();
+    }
+
+    @Override
+    public Map<String, Long> getRequestFailures() {
+        return breakdown.getRequestFailures();
+    }
+
+    @Override
+    public Map<String, Histogram> getOutcomeLatencies() {
+        return breakdown.getOutcomeLatencies();
+    }
+
+    @Override
+    public IntervalRecorder getIntervalRecorder() {
+        return intervalRecorder;
+    }
+
+    @Override
     public long getRequestCount() {
         return requestCount;
     }
 
-    public long getRunTime() {
-        return runTime;
+    @Override
+    public long getWarmupRequestCount() {
+        return warmupRequestCount;
     }
 
+    @Override
+    public long getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public long getMeasurementStartTime() {
+        return measurementStartTime;
+    }
+
+    @Override
+    public long getEndTime() {
+        return endTime;
+    }
+
+    @Override
     public long getFailedRequest() {
-        return failedRequest;
+        return failedRequest.get();
     }
 
+    @Override
     public long getRequestDelay() {
         return requestDelay;
     }
+
+    @Override
+    public Pacer getPacer() {
+        return pacer;
+    }
+
+    @Override
+    public int getConcurrency() {
+        return 1;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
 }
@@ -0,0 +1,42 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the connection pool shared by the blocking worker threads. Times are in milliseconds.
+ */
+@Getter
+@Setter
+public class ConnectionPoolConfig {
+    private int maxTotal;
+    private int maxPerRoute;
+    /**
+     * Maximum lifetime of a pooled connection, or 0 to keep connections for as long as the server allows.
+     */
+    private long keepAliveTtl = 0;
+    /**
+     * Connections idle for longer than this are checked for staleness before being reused, or 0 to never check.
+     */
+    private int validateAfterInactivity = 2000;
+    private int connectTimeout = 0;
+    private int socketTimeout = 0;
+    /**
+     * Connections are closed after this many requests, eg. 1 to open a new connection for every request, or 0 to
+     * reuse them for as long as the server allows.
+     */
+    private int requestsPerConnection = 0;
+    /**
+     * Whether new https connections may resume the TLS session of an earlier connection instead of going through a
+     * full handshake.
+     */
+    private boolean tlsSessionResumption = true;
+
+    public ConnectionPoolConfig(int maxConnections) {
+        this.maxTotal = maxConnections;
+        this.maxPerRoute = maxConnections;
+    }
+}
@@ -0,0 +1,63 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection reuse, lease wait and TLS handshake statistics of a shared connection pool. Times are in nanoseconds.
+ * Rates are over the whole run, warmup included, as the pool does not tell warmup connections apart.
+ */
+@Getter
+public class ConnectionStats {
+    private final int maxConnections;
+    private final long opened;
+    private final long reused;
+    /**
+     * Connections closed right after a response because they could not be kept alive.
+     */
+    private final long closedAfterResponse;
+    private final long evicted;
+    private final double avgLeaseWait;
+    private final long p99LeaseWait;
+    private final long maxLeaseWait;
+    private final double connectionsPerSecond;
+    private final long fullTlsHandshakes;
+    /**
+     * Handshakes that resumed the session of an earlier connection.
+     */
+    private final long resumedTlsHandshakes;
+    private final double tlsHandshakesPerSecond;
+    private final double avgFullTlsHandshake;
+    private final long p99FullTlsHandshake;
+    private final double avgResumedTlsHandshake;
+    private final long p99ResumedTlsHandshake;
+
+    /**
+     * @param elapsed time the pool was used for, in nanoseconds.
+     */
+    public ConnectionStats(int maxConnections, long opened, long reused, long closedAfterResponse, long evicted,
+                           Histogram leaseWait, long elapsed, Histogram fullHandshakes, Histogram resumedHandshakes) {
+        this.maxConnections = maxConnections;
+        this.opened = opened;
+        this.reused = reused;
+        this.closedAfterResponse = closedAfterResponse;
+        this.evicted = evicted;
+        this.avgLeaseWait = leaseWait.getMean();
+        this.p99LeaseWait = leaseWait.getValueAtPercentile(99);
+        this.maxLeaseWait = leaseWait.getMaxValue();
+        double seconds = Math.max(elapsed, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        this.connectionsPerSecond = opened / seconds;
+        this.fullTlsHandshakes = fullHandshakes.getTotalCount();
+        this.resumedTlsHandshakes = resumedHandshakes.getTotalCount();
+        this.tlsHandshakesPerSecond = (fullTlsHandshakes + resumedTlsHandshakes) / seconds;
+        this.avgFullTlsHandshake = fullHandshakes.getMean();
+        this.p99FullTlsHandshake = fullHandshakes.getValueAtPercentile(99);
+        this.avgResumedTlsHandshake = resumedHandshakes.getMean();
+        this.p99ResumedTlsHandshake = resumedHandshakes.getValueAtPercentile(99);
+    }
+}
@@ -0,0 +1,58 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import javax.net.ssl.SSLException;
+
+/**
+ * Why a request failed, for the breakdown of the results by outcome, see {@link RequestBreakdown}.
+ */
+public enum ErrorClass {
+    /**
+     * The connection, the connection lease or the response timed out.
+     */
+    TIMEOUT,
+    CONNECTION_REFUSED,
+    /**
+     * The server closed or reset the connection before the response was complete.
+     */
+    CONNECTION_CLOSED,
+    TLS,
+    /**
+     * The response came but failed a validation.
+     */
+    VALIDATION,
+    CANCELLED,
+    OTHER;
+
+    /**
+     * Classifies the exception of a failed request, looking at its causes too since the clients often wrap them.
+     */
+    public static ErrorClass of(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            // Timeouts of both clients, including connect and lease timeouts, are interrupted I/O.
+            if (t instanceof SocketTimeoutException || t instanceof InterruptedIOException) {
+                return TIMEOUT;
+            }
+            if (t instanceof ConnectException) {
+                return CONNECTION_REFUSED;
+            }
+            if (t instanceof SSLException) {
+                return TLS;
+            }
+            if (t instanceof SocketException
+                    || t instanceof org.apache.http.NoHttpResponseException
+                    || t instanceof org.apache.http.ConnectionClosedException
+                    || t instanceof org.apache.hc.core5.http.ConnectionClosedException
+                    || t instanceof org.apache.hc.core5.http2.H2StreamResetException) {
+                return CONNECTION_CLOSED;
+            }
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Times the TLS handshakes of the new connections of a shared pool, telling full handshakes from those that resumed
+ * an earlier session. Many worker threads open connections at once, so recording is wait-free.
+ */
+public class HandshakeRecorder {
+    private final Recorder full = new Recorder(1, Histograms.HIGHEST_TRACKABLE_VALUE, Histograms.DEFAULT_PRECISION);
+    private final Recorder resumed = new Recorder(1, Histograms.HIGHEST_TRACKABLE_VALUE, Histograms.DEFAULT_PRECISION);
+
+    public void record(long duration, boolean resumedSession) {
+        (resumedSession ? resumed : full).recordValue(Math.max(0, Math.min(duration, Histograms.HIGHEST_TRACKABLE_VALUE)));
+    }
+
+    /**
+     * @return the full handshakes recorded since the previous call.
+     */
+    public Histogram getFullHandshakes() {
+        return full.getIntervalHistogram();
+    }
+
+    /**
+     * @return the resumed handshakes recorded since the previous call.
+     */
+    public Histogram getResumedHandshakes() {
+        return resumed.getIntervalHistogram();
+    }
+}
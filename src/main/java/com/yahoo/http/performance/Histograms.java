@@ -0,0 +1,68 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.PackedHistogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * Helpers for the fixed-size, log-bucketed latency histograms recorded by each thread.
+ *
+ * Histograms track nanosecond latencies up to {@link #HIGHEST_TRACKABLE_VALUE}; anything slower is recorded as that
+ * value. Their size depends only on the precision, not on how many values are recorded, and merging two of them
+ * costs O(buckets).
+ */
+public final class Histograms {
+    public static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.HOURS.toNanos(1);
+    public static final int DEFAULT_PRECISION = 3;
+
+    private Histograms() {
+    }
+
+    /**
+     * @param precision number of significant decimal digits to keep for each recorded value (0 to 5).
+     */
+    public static Histogram create(int precision) {
+        return new Histogram(1, HIGHEST_TRACKABLE_VALUE, precision);
+    }
+
+    /**
+     * Creates a histogram whose memory grows with the number of distinct buckets recorded rather than being fixed,
+     * for the many small histograms of a breakdown. Recording in it is somewhat slower.
+     */
+    public static Histogram createPacked(int precision) {
+        return new PackedHistogram(1, HIGHEST_TRACKABLE_VALUE, precision);
+    }
+
+    public static void record(Histogram histogram, long latency) {
+        histogram.recordValue(Math.max(0, Math.min(latency, HIGHEST_TRACKABLE_VALUE)));
+    }
+
+    /**
+     * Encodes the histogram in the compressed, base64 form used by HdrHistogram logs, so it can be decoded and
+     * replotted later.
+     */
+    public static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+    public static Histogram decode(String encoded) throws DataFormatException {
+        return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+    }
+
+    /**
+     * Decodes the histogram into a {@link #createPacked packed histogram}.
+     */
+    public static Histogram decodePacked(String encoded) throws DataFormatException {
+        return PackedHistogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+    }
+}
@@ -0,0 +1,281 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import com.yahoo.http.performance.request.ByteBufferEntity;
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.schedule.Pacer;
+import com.yahoo.http.performance.schedule.RunSchedule;
+import com.yahoo.http.performance.validation.ResponseValidator;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A worker that multiplexes up to {@code maxStreams} in-flight requests as concurrent HTTP/2 streams over a single
+ * connection, driven by one event loop thread.
+ *
+ * Requests and responses are translated from and to the HTTP/1.1 client's types, so the same requests, payload
+ * buffers and validations are used, and the latencies are recorded exactly as for {@link AsyncClientThread}. This
+ * keeps the results of both engines comparable at the same number of in-flight requests.
+ *
+ * The in-flight requests are limited by the worker's permits. The connection also holds requests back while the
+ * server's limit on concurrent streams is reached, so the worker counts the streams actually open, from the request
+ * being sent until its exchange is done, and the requests still waiting for one, to tell when the server allowed fewer
+ * than {@code maxStreams}, see {@link #getServerStreamLimit()}.
+ */
+public class Http2ClientThread extends AsyncWorker {
+    private static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+    private static final String OPEN_STREAM = "http.performance.open-stream";
+    private static final String WAITING_REQUEST = "http.performance.waiting-request";
+    private final CloseableHttpAsyncClient httpClient;
+    private final int maxStreams;
+    private final AtomicInteger openStreams = new AtomicInteger();
+    /**
+     * Streams opened so far, to tell whether a waiting request was passed over when a stream was opened.
+     */
+    private final AtomicLong openedStreams = new AtomicLong();
+    /**
+     * Requests executed whose stream is not open yet, oldest first.
+     */
+    private final Queue<WaitingRequest> waitingRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger serverStreamLimit = new AtomicInteger();
+
+    /**
+     * @param requestCount maximum number of requests to send, including warmup.
+     * @param maxStreams   maximum number of requests in flight as concurrent streams on the connection.
+     */
+    public Http2ClientThread(long requestCount, List<Request> requests, ResponseValidator validator, long requestDelay,
+                             boolean sslEnabled, Pacer pacer, RunSchedule schedule, int histogramPrecision, int maxStreams)
+            throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+        super(requestCount, requests, validator, requestDelay, pacer, schedule, histogramPrecision, maxStreams);
+        this.maxStreams = maxStreams;
+        this.httpClient = HttpClientFactory.createHttp2Client(sslEnabled,
+                (request, entity, context) -> streamOpened(context));
+    }
+
+    private void streamOpened(HttpContext context) {
+        stopWaiting(context);
+        context.setAttribute(OPEN_STREAM, Boolean.TRUE);
+        openedStreams.incrementAndGet();
+        openStreams.incrementAndGet();
+    }
+
+    private void stopWaiting(HttpContext context) {
+        WaitingRequest waiting = (WaitingRequest) context.removeAttribute(WAITING_REQUEST);
+        if (waiting != null) {
+            waitingRequests.remove(waiting);
+        }
+    }
+
+    /**
+     * Called once the exchange of a request is done, whether it completed, failed or was cancelled. The connection
+     * opens all the requests queued on it at once while the server's limit allows it, so a request still waiting after
+     * a later one was opened was held back by that limit, and the streams open are then as many as the server allows.
+     */
+    private void streamClosed(HttpContext context) {
+        stopWaiting(context);
+        if (context.removeAttribute(OPEN_STREAM) == null) {
+            return;
+        }
+        int open = openStreams.get();
+        WaitingRequest oldest = waitingRequests.peek();
+        if (oldest != null && oldest.openedBefore < openedStreams.get() && open < maxStreams) {
+            serverStreamLimit.accumulateAndGet(open, Math::max);
+        }
+        openStreams.decrementAndGet();
+    }
+
+    /**
+     * @return the most streams the connection had open while a request waited for a stream the server did not allow,
+     * or 0 if no request had to wait. Only called once the worker is done.
+     */
+    public int getServerStreamLimit() {
+        return serverStreamLimit.get();
+    }
+
+    @Override
+    protected void startClient() {
+        httpClient.start();
+    }
+
+    @Override
+    protected void execute(Request request, Completion completion) {
+        AsyncRequestProducer producer;
+        try {
+            producer = toRequestProducer(request.createHttpRequest());
+        } catch (IOException e) {
+            completion.failed(e);
+            return;
+        }
+        HttpClientContext context = HttpClientContext.create();
+        WaitingRequest waiting = new WaitingRequest();
+        context.setAttribute(WAITING_REQUEST, waiting);
+        waitingRequests.add(waiting);
+        httpClient.execute(producer, SimpleResponseConsumer.create(), null, context,
+                new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                streamClosed(context);
+                completion.completed(toHttpResponse(response));
+            }
+
+            @Override
+            public void failed(Exception e) {
+                streamClosed(context);
+                completion.failed(e);
+            }
+
+            @Override
+            public void cancelled() {
+                streamClosed(context);
+                completion.cancelled();
+            }
+        });
+        // The request is queued on the connection by now, unless the connection is still being opened.
+        waiting.openedBefore = openedStreams.get();
+    }
+
+    @Override
+    protected void closeClient() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * Converts the response with all its headers, so validations and response sizes see the same response as with
+     * the HTTP/1.1 engines.
+     */
+    private static HttpResponse toHttpResponse(SimpleHttpResponse response) {
+        BasicHttpResponse converted = new BasicHttpResponse(HTTP_2, response.getCode(), response.getReasonPhrase());
+        for (org.apache.hc.core5.http.Header header : response.getHeaders()) {
+            converted.addHeader(header.getName(), header.getValue());
+        }
+        byte[] body = response.getBodyBytes();
+        ByteArrayEntity entity = new ByteArrayEntity(body != null ? body : new byte[0]);
+        entity.setContentType(converted.getFirstHeader(HttpHeaders.CONTENT_TYPE));
+        entity.setContentEncoding(converted.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+        converted.setEntity(entity);
+        return converted;
+    }
+
+    private static AsyncRequestProducer toRequestProducer(HttpUriRequest request) throws IOException {
+        BasicHttpRequest converted = new BasicHttpRequest(request.getMethod(), request.getURI());
+        for (Header header : request.getAllHeaders()) {
+            converted.addHeader(header.getName(), header.getValue());
+        }
+        HttpEntity entity = request instanceof HttpEntityEnclosingRequest
+                ? ((HttpEntityEnclosingRequest) request).getEntity() : null;
+        if (entity == null) {
+            return new BasicRequestProducer(converted, null);
+        }
+        ByteBuffer body = entity instanceof ByteBufferEntity
+                ? ((ByteBufferEntity) entity).getBuffer() : ByteBuffer.wrap(EntityUtils.toByteArray(entity));
+        String contentType = entity.getContentType() == null ? null : entity.getContentType().getValue();
+        return new BasicRequestProducer(converted, new BodyProducer(body, contentType));
+    }
+
+    private static class WaitingRequest {
+        /**
+         * Streams opened before the request was queued on the connection.
+         */
+        private volatile long openedBefore = Long.MAX_VALUE;
+    }
+
+    /**
+     * Streams a request body from its buffer, which may be a memory-mapped file, without copying it.
+     */
+    private static class BodyProducer implements AsyncEntityProducer {
+        private final ByteBuffer body;
+        private final String contentType;
+
+        BodyProducer(ByteBuffer body, String contentType) {
+            this.body = body;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public long getContentLength() {
+            return body.remaining();
+        }
+
+        @Override
+        public int available() {
+            return body.remaining();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return null;
+        }
+
+        @Override
+        public boolean isChunked() {
+            return false;
+        }
+
+        @Override
+        public Set<String> getTrailerNames() {
+            return null;
+        }
+
+        @Override
+        public void produce(DataStreamChannel channel) throws IOException {
+            if (body.hasRemaining()) {
+                channel.write(body);
+            }
+            if (!body.hasRemaining()) {
+                channel.endStream();
+            }
+        }
+
+        @Override
+        public void failed(Exception cause) {
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+    }
+}
@@ -0,0 +1,316 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultClientConnectionReuseStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.ssl.SSLContextBuilder;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.net.Socket;
+import java.security.KeyManagementException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Builds the http clients used by the worker threads.
+ */
+public final class HttpClientFactory {
+    public static final int DEFAULT_MAX_CONNECTIONS = 1000;
+
+    private HttpClientFactory() {
+    }
+
+    public static CloseableHttpClient createClient(boolean sslEnabled)
+            throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+        if (sslEnabled) {
+            return HttpClients.custom()
+                    .setSSLContext(trustAllSslContext())
+                    .setSSLHostnameVerifier(new NoopHostnameVerifier())
+                    .build();
+        } else {
+            return HttpClients.createDefault();
+        }
+    }
+
+    /**
+     * Creates a pooling connection manager configured from the given settings, whose connections trust all
+     * certificates when ssl is enabled. The TLS handshakes of its connections are recorded, and timed for the
+     * {@link PhaseTimer} of the request opening them.
+     */
+    public static PoolingHttpClientConnectionManager createConnectionManager(boolean sslEnabled, ConnectionPoolConfig config,
+                                                                             HandshakeRecorder handshakes)
+            throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+        Supplier<SSLContext> newSessionContexts = config.isTlsSessionResumption() ? null : newSessionContexts(sslEnabled);
+        RegistryBuilder<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory());
+        if (sslEnabled) {
+            registry.register("https", new TimedSslSocketFactory(trustAllSslContext(), new NoopHostnameVerifier(),
+                    handshakes, newSessionContexts));
+        } else {
+            registry.register("https", new TimedSslSocketFactory(SSLContexts.createDefault(),
+                    SSLConnectionSocketFactory.getDefaultHostnameVerifier(), handshakes, newSessionContexts));
+        }
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                registry.build(), null, null, null,
+                config.getKeepAliveTtl() > 0 ? config.getKeepAliveTtl() : -1, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(config.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+                .setSoTimeout(config.getSocketTimeout())
+                .setTcpNoDelay(true)
+                .build());
+        return connectionManager;
+    }
+
+    /**
+     * Creates a client meant to be shared by many worker threads, leasing its connections from the given manager.
+     * It marks when each request is written and its response head read for the {@link PhaseTimer} of the request.
+     */
+    public static CloseableHttpClient createSharedClient(HttpClientConnectionManager connectionManager,
+                                                         ConnectionPoolConfig config) {
+        int requestsPerConnection = config.getRequestsPerConnection();
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setRequestExecutor(new TimedRequestExecutor())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(config.getConnectTimeout())
+                        .setSocketTimeout(config.getSocketTimeout())
+                        .build());
+        if (config.getKeepAliveTtl() > 0) {
+            builder.evictExpiredConnections();
+        }
+        if (requestsPerConnection > 0) {
+            // The connection counts the requests written to it, so it is closed on release after the last one.
+            builder.setConnectionReuseStrategy((response, context) -> {
+                if (!DefaultClientConnectionReuseStrategy.INSTANCE.keepAlive(response, context)) {
+                    return false;
+                }
+                HttpConnection connection = HttpCoreContext.adapt(context).getConnection();
+                return connection == null || connection.getMetrics().getRequestCount() < requestsPerConnection;
+            });
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a non-blocking client driven by a single event loop thread, allowed to keep up to {@code concurrency}
+     * connections open.
+     */
+    public static CloseableHttpAsyncClient createAsyncClient(boolean sslEnabled, int concurrency)
+            throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+        HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                .setDefaultIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())
+                .setMaxConnTotal(concurrency)
+                .setMaxConnPerRoute(concurrency);
+
+        if (sslEnabled) {
+            builder.setSSLContext(trustAllSslContext())
+                    .setSSLHostnameVerifier(new NoopHostnameVerifier());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates an HTTP/2 client driven by a single event loop thread. It multiplexes all requests to a host over one
+     * connection: cleartext h2c with prior knowledge for http urls, and h2 negotiated through ALPN for https urls,
+     * trusting all certificates when ssl is enabled.
+     *
+     * The client opens as many concurrent streams as the server's settings allow and queues the other requests, so
+     * the caller limits its own in-flight requests. The client's own concurrent streams setting only limits the
+     * streams the server may open, and is left at its default.
+     *
+     * @param streamOpened called on the event loop when the stream of a request is opened.
+     */
+    public static org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient createHttp2Client(
+            boolean sslEnabled, org.apache.hc.core5.http.HttpRequestInterceptor streamOpened)
+            throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+        H2AsyncClientBuilder builder = H2AsyncClientBuilder.create()
+                .setIOReactorConfig(org.apache.hc.core5.reactor.IOReactorConfig.custom().setIoThreadCount(1).build())
+                .setH2Config(H2Config.custom()
+                        .setPushEnabled(false)
+                        .build())
+                .addRequestInterceptorLast(streamOpened)
+                .disableAutomaticRetries()
+                .disableCookieManagement();
+
+        if (sslEnabled) {
+            builder.setTlsStrategy(ClientTlsStrategyBuilder.create()
+                    .setSslContext(trustAllSslContext())
+                    .setHostnameVerifier(new NoopHostnameVerifier())
+                    .build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return an ssl context with a trust strategy that returns true instead of verifying the certificate.
+     */
+    public static SSLContext trustAllSslContext() throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+        return new SSLContextBuilder()
+                .loadTrustMaterial(null, (certificate, authType) -> true)
+                .build();
+    }
+
+    /**
+     * @return a supplier of ssl contexts, each with a session cache of its own, trusting all certificates or the
+     * default trust store. The trust managers are built once, so a context costs some tens of microseconds.
+     */
+    private static Supplier<SSLContext> newSessionContexts(boolean trustAll) throws NoSuchAlgorithmException,
+            KeyStoreException {
+        TrustManager[] trustManagers;
+        if (trustAll) {
+            trustManagers = new TrustManager[] {new TrustAllManager()};
+        } else {
+            TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            factory.init((KeyStore) null);
+            trustManagers = factory.getTrustManagers();
+        }
+        return () -> {
+            try {
+                SSLContext sslContext = SSLContext.getInstance("TLS");
+                sslContext.init(null, trustManagers, null);
+                return sslContext;
+            } catch (NoSuchAlgorithmException | KeyManagementException e) {
+                throw new IllegalStateException("Failed to create an ssl context", e);
+            }
+        };
+    }
+
+    /**
+     * Times the TLS handshake, which happens when the plain socket is layered once connected, and tells whether it
+     * resumed an earlier session. The factory marks each session it handshakes with a value bound to the session, which
+     * a resumed session carries over: with TLS 1.2 it is the same session, while with TLS 1.3 it is a copy with a new
+     * id. A session created by a full handshake has no values yet.
+     *
+     * Without session resumption each connection handshakes through a new ssl context, whose session cache is empty.
+     * Creating the context is counted in the connect phase.
+     */
+    private static class TimedSslSocketFactory extends SSLConnectionSocketFactory {
+        private static final String SEEN_SESSION = "http.performance.seen-session";
+        private final HostnameVerifier hostnameVerifier;
+        private final HandshakeRecorder handshakes;
+        private final Supplier<SSLContext> newSessionContexts;
+
+        /**
+         * @param newSessionContexts supplies a new context for each connection, or null to resume sessions.
+         */
+        TimedSslSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier, HandshakeRecorder handshakes,
+                              Supplier<SSLContext> newSessionContexts) {
+            super(sslContext, hostnameVerifier);
+            this.hostnameVerifier = hostnameVerifier;
+            this.handshakes = handshakes;
+            this.newSessionContexts = newSessionContexts;
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+                throws IOException {
+            SSLConnectionSocketFactory sessionless = newSessionContexts == null
+                    ? null : new SSLConnectionSocketFactory(newSessionContexts.get(), hostnameVerifier);
+            PhaseTimer timer = PhaseTimer.get(context);
+            if (timer != null) {
+                timer.tlsStarted();
+            }
+            long start = System.nanoTime();
+            Socket layered = sessionless == null
+                    ? super.createLayeredSocket(socket, target, port, context)
+                    : sessionless.createLayeredSocket(socket, target, port, context);
+            long end = System.nanoTime();
+            if (timer != null) {
+                timer.tlsDone();
+            }
+            if (layered instanceof SSLSocket) {
+                SSLSession session = ((SSLSocket) layered).getSession();
+                handshakes.record(end - start, session.getValue(SEEN_SESSION) != null);
+                session.putValue(SEEN_SESSION, Boolean.TRUE);
+            }
+            return layered;
+        }
+    }
+
+    private static class TrustAllManager implements X509TrustManager {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+
+    /**
+     * Marks when the request was written and when its response head was read.
+     */
+    private static class TimedRequestExecutor extends HttpRequestExecutor {
+        @Override
+        protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+                throws IOException, HttpException {
+            PhaseTimer timer = PhaseTimer.get(context);
+            if (timer == null) {
+                return super.doSendRequest(request, conn, context);
+            }
+            timer.writeStarted();
+            HttpResponse response = super.doSendRequest(request, conn, context);
+            timer.writeDone();
+            return response;
+        }
+
+        @Override
+        protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context)
+                throws HttpException, IOException {
+            HttpResponse response = super.doReceiveResponse(request, conn, context);
+            PhaseTimer timer = PhaseTimer.get(context);
+            if (timer != null) {
+                timer.headReceived();
+            }
+            return response;
+        }
+    }
+}
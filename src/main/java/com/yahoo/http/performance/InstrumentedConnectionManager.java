@@ -0,0 +1,184 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import org.HdrHistogram.Recorder;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps a pooling connection manager to count how connections are opened, reused and closed, and how long threads
+ * wait to lease one. It also marks the start of new connections for the {@link PhaseTimer} of the request, if any.
+ *
+ * Leases are gated by one permit per pooled connection, both of the route and of the whole pool, taken before asking
+ * the pool and returned after the connection is back in the pool, so the pool always has a connection available when
+ * asked for one. Waiting happens on the permits instead of inside the pool, whose lease wait holds a monitor and would
+ * pin a virtual thread to its carrier thread while it waits.
+ */
+public class InstrumentedConnectionManager implements HttpClientConnectionManager {
+    private final PoolingHttpClientConnectionManager pool;
+    private final Semaphore permits;
+    private final Map<HttpRoute, Semaphore> routePermits = new ConcurrentHashMap<>();
+    /**
+     * Route of each leased connection, whose permit is returned with the connection.
+     */
+    private final Map<HttpClientConnection, HttpRoute> leasedRoutes = new ConcurrentHashMap<>();
+    private final LongAdder leased = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder closedOnRelease = new LongAdder();
+    private final Recorder leaseWait = new Recorder(1, Histograms.HIGHEST_TRACKABLE_VALUE, Histograms.DEFAULT_PRECISION);
+    private final HandshakeRecorder handshakes;
+
+    /**
+     * @param handshakes the recorder the pool's socket factory records its TLS handshakes in.
+     */
+    public InstrumentedConnectionManager(PoolingHttpClientConnectionManager pool, HandshakeRecorder handshakes) {
+        this.pool = pool;
+        this.handshakes = handshakes;
+        this.permits = new Semaphore(pool.getMaxTotal());
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest request = pool.requestConnection(route, state);
+        Semaphore perRoute = routePermits.computeIfAbsent(route, r -> new Semaphore(pool.getMaxPerRoute(r)));
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit tunit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                // The route's permit is taken first, so threads waiting for a busy route do not hold permits of the
+                // pool that other routes could use.
+                acquire(perRoute, start, timeout, tunit);
+                try {
+                    acquire(permits, start, timeout, tunit);
+                } catch (InterruptedException | ConnectionPoolTimeoutException e) {
+                    perRoute.release();
+                    throw e;
+                }
+                try {
+                    HttpClientConnection connection = request.get(timeout, tunit);
+                    leaseWait.recordValue(Math.min(System.nanoTime() - start, Histograms.HIGHEST_TRACKABLE_VALUE));
+                    leased.increment();
+                    leasedRoutes.put(connection, route);
+                    return connection;
+                } catch (InterruptedException | ExecutionException | ConnectionPoolTimeoutException | RuntimeException e) {
+                    permits.release();
+                    perRoute.release();
+                    throw e;
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration, TimeUnit timeUnit) {
+        try {
+            if (!conn.isOpen()) {
+                closedOnRelease.increment();
+            }
+            pool.releaseConnection(conn, newState, validDuration, timeUnit);
+        } finally {
+            permits.release();
+            HttpRoute route = leasedRoutes.remove(conn);
+            if (route != null) {
+                routePermits.get(route).release();
+            }
+        }
+    }
+
+    /**
+     * Takes a permit, waiting for at most what is left of the timeout since {@code start} if there is one.
+     */
+    private static void acquire(Semaphore semaphore, long start, long timeout, TimeUnit tunit)
+            throws InterruptedException, ConnectionPoolTimeoutException {
+        if (timeout > 0) {
+            long left = tunit.toNanos(timeout) - (System.nanoTime() - start);
+            if (!semaphore.tryAcquire(left, TimeUnit.NANOSECONDS)) {
+                throw new ConnectionPoolTimeoutException("Timeout waiting for connection from pool");
+            }
+        } else {
+            semaphore.acquire();
+        }
+    }
+
+    @Override
+    public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+            throws IOException {
+        opened.increment();
+        PhaseTimer timer = PhaseTimer.get(context);
+        if (timer != null) {
+            timer.connectStarted();
+        }
+        pool.connect(conn, route, connectTimeout, context);
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        pool.upgrade(conn, route, context);
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        pool.routeComplete(conn, route, context);
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit tunit) {
+        pool.closeIdleConnections(idletime, tunit);
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        pool.closeExpiredConnections();
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * @param elapsed time the pool was used for so far, in nanoseconds.
+     * @return the connection statistics so far, with the lease waits and handshakes recorded since the previous call.
+     * Connections that are neither pooled nor closed after a response were evicted by the pool, eg. because they
+     * outlived the keep alive ttl or were found stale.
+     */
+    public ConnectionStats getStats(long elapsed) {
+        PoolStats poolStats = pool.getTotalStats();
+        long leases = leased.sum();
+        long opens = opened.sum();
+        long closed = closedOnRelease.sum();
+        long open = poolStats.getAvailable() + poolStats.getLeased();
+        return new ConnectionStats(
+                pool.getMaxTotal(),
+                opens,
+                Math.max(0, leases - opens),
+                closed,
+                Math.max(0, opens - closed - open),
+                leaseWait.getIntervalHistogram(),
+                elapsed,
+                handshakes.getFullHandshakes(),
+                handshakes.getResumedHandshakes());
+    }
+}
@@ -5,23 +5,43 @@ package com.yahoo.http.performance;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.yahoo.http.performance.replay.ReplayStats;
+import com.yahoo.http.performance.report.IntervalStats;
+import com.yahoo.http.performance.schedule.Scenario;
+import com.yahoo.http.performance.schedule.Stage;
+import com.yahoo.http.performance.server.LoopbackServerConfig;
 
 import java.util.AbstractMap;
+import java.util.EnumMap;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import lombok.Getter;
+import lombok.Setter;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.HdrHistogram.Histogram;
 
 /**
  * Class for calculating test metrics.
+ *
+ * The per thread latency histograms are merged into one histogram for the run, so aggregation cost depends on the
+ * histogram precision rather than on the number of requests sent.
  */
 public class Metrics {
+    /**
+     * The text report lists at most this many requests of the breakdown, the json report lists them all.
+     */
+    private static final int MAX_PRINTED_REQUESTS = 20;
+
     @Getter
     private long threadCount;
     @Getter
@@ -37,6 +57,41 @@ public class Metrics {
     @Getter
     private long requestDelay;
     @Getter
+    private long concurrency;
+    @Getter @Setter
+    private String engine;
+    @Getter @Setter
+    private String threadMode;
+    /**
+     * With the http2 engine, the most concurrent streams the server allowed on a connection, if fewer than the
+     * requests the worker had in flight, or 0.
+     */
+    @Getter @Setter
+    private int serverStreamLimit;
+    @Getter
+    private int availableProcessors;
+    @Getter @Setter
+    private PinningMonitor.Report virtualThreadPinning;
+    @Getter @Setter
+    private ConnectionStats connectionStats;
+    /**
+     * How closely a trace replay kept to the trace's schedule, or null if no trace was replayed.
+     */
+    @Getter @Setter
+    private ReplayStats replay;
+    /**
+     * What the load generator itself cost during the run, and warnings if it may have been the bottleneck.
+     */
+    @Getter @Setter
+    private OverheadStats overhead;
+    /**
+     * Settings of the in-process server the requests were sent to, or null if they were sent to a real server.
+     */
+    @Getter @Setter
+    private LoopbackServerConfig selfTestServer;
+    @Getter
+    private Double targetRate;
+    @Getter
     private double minRequestLatency;
     @Getter
     private double maxRequestLatency;
@@ -46,36 +101,168 @@ public class Metrics {
     private double latencyStandardDeviation;
     @Getter
     private Map<Integer, Double> percentiles;
+    @Getter
+    private Double maxCorrectedRequestLatency;
+    @Getter
+    private Double avgCorrectedRequestLatency;
+    @Getter
+    private Map<Integer, Double> correctedPercentiles;
+    @Getter
+    private int histogramPrecision;
+    /**
+     * The merged latency histogram in compressed base64 HdrHistogram form, see {@link Histograms#decode(String)}.
+     */
+    @Getter
+    private String latencyHistogram;
+    @Getter
+    private String correctedLatencyHistogram;
+    @Getter @Setter
+    private List<IntervalStats> intervals;
+    @Getter
+    private long warmupRequestCount;
+    @Getter
+    private Map<Integer, Double> warmupPercentiles;
+    @Getter
+    private String warmupLatencyHistogram;
+    /**
+     * Latencies of each phase of the requests, when the engine times them.
+     */
+    @Getter
+    private Map<RequestPhase, PhaseStats> phases;
+    /**
+     * Latencies and failures of each request, by {@link com.yahoo.http.performance.request.Request#getName() name}.
+     */
+    @Getter
+    private Map<String, BreakdownStats> requests;
+    /**
+     * Latencies of the requests by HTTP status or {@link ErrorClass}.
+     */
+    @Getter
+    private Map<String, BreakdownStats> outcomes;
+    /**
+     * The stages the run followed, or null if it did not follow a scenario.
+     */
+    @Getter
+    private Scenario scenario;
+    /**
+     * Throughput and latencies of each stage of the scenario, by stage name in stage order.
+     */
+    @Getter
+    private Map<String, StageStats> stages;
 
-    public Metrics(List<ClientThread> threads) {
-        DescriptiveStatistics statistics = new DescriptiveStatistics();
-        ClientThread firstThread = threads.get(0);
-        this.threadCount = threads.size();
-        this.requestCountPerThread = firstThread.getRequestCount();
+    public Metrics(List<? extends Worker> threads) {
+        Worker firstThread = threads.get(0);
+        this.threadCount = threads.stream().mapToLong(Worker::getThreadCount).sum();
         this.requestDelay = firstThread.getRequestDelay();
-        this.totalRequestCount = threadCount * requestCountPerThread;
+        this.concurrency = threads.stream().mapToLong(Worker::getConcurrency).sum();
+        this.availableProcessors = Runtime.getRuntime().availableProcessors();
+        this.totalRequestCount = threads.stream().mapToLong(Worker::getRequestCount).sum();
+        this.requestCountPerThread = totalRequestCount / threadCount;
+
+        // Wall clock time from the end of the warmup until the last thread was done.
+        long measurementStartTime = threads.stream().mapToLong(Worker::getMeasurementStartTime)
+                .reduce((a, b) -> a - b < 0 ? a : b).getAsLong();
+        long endTime = threads.stream().mapToLong(Worker::getEndTime)
+                .reduce((a, b) -> a - b > 0 ? a : b).getAsLong();
+        long testTimeInNanos = Math.max(0, endTime - measurementStartTime);
+        this.totalTestTime = TimeUnit.NANOSECONDS.toMillis(testTimeInNanos);
+
+        this.totalFailedRequests = threads.stream().map(Worker::getFailedRequest).mapToLong(Long::longValue).sum();
+
+        Histogram histogram = merge(threads.stream().map(Worker::getLatencies).collect(Collectors.toList()));
+
+        double testTimeInSeconds = testTimeInNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        this.requestsPerSecond = (long) (totalRequestCount / (testTimeInSeconds == 0.0 ? 1.0 : testTimeInSeconds));
 
-        this.totalTestTime = threads.stream().map(ClientThread::getRunTime).mapToLong(Long::longValue).sum() / threadCount;
+        histogramPrecision = histogram.getNumberOfSignificantValueDigits();
+        minRequestLatency = histogram.getMinValue();
+        maxRequestLatency = histogram.getMaxValue();
+        avgRequestLatency = histogram.getMean();
+        latencyStandardDeviation = histogram.getStdDeviation();
 
-        this.totalFailedRequests = threads.stream().map(ClientThread::getFailedRequest).mapToLong(Long::longValue).sum();
+        percentiles = percentiles(histogram);
+        latencyHistogram = Histograms.encode(histogram);
 
-        for (int r = 0; r < requestCountPerThread; r++) {
-            for (ClientThread thread : threads) {
-                statistics.addValue(thread.getLatencies()[r]);
+        if (firstThread.getCorrectedLatencies() != null) {
+            Histogram corrected = merge(threads.stream().map(Worker::getCorrectedLatencies).collect(Collectors.toList()));
+
+            // A trace replay or a scenario has a schedule but no single rate.
+            targetRate = firstThread.getPacer() != null && firstThread.getPacer().getScenario() == null
+                    ? firstThread.getPacer().getRate() : null;
+            maxCorrectedRequestLatency = (double) corrected.getMaxValue();
+            avgCorrectedRequestLatency = corrected.getMean();
+            correctedPercentiles = percentiles(corrected);
+            correctedLatencyHistogram = Histograms.encode(corrected);
+        }
+
+        warmupRequestCount = threads.stream().mapToLong(Worker::getWarmupRequestCount).sum();
+        if (warmupRequestCount > 0) {
+            Histogram warmup = merge(threads.stream().map(Worker::getWarmupLatencies).collect(Collectors.toList()));
+            warmupPercentiles = percentiles(warmup);
+            warmupLatencyHistogram = Histograms.encode(warmup);
+        }
+
+        if (threads.stream().allMatch(t -> t.getPhaseLatencies() != null)) {
+            phases = new EnumMap<>(RequestPhase.class);
+            for (RequestPhase phase : RequestPhase.values()) {
+                Histogram merged = merge(threads.stream().map(t -> t.getPhaseLatencies().get(phase))
+                        .collect(Collectors.toList()));
+                phases.put(phase, new PhaseStats(merged));
             }
         }
 
-        double testTimeInSeconds = (totalTestTime / 1000);
-        this.requestsPerSecond = (long) (totalRequestCount / (testTimeInSeconds == 0.0 ? 1.0 : testTimeInSeconds));
+        if (threads.stream().allMatch(t -> t.getRequestLatencies() != null)) {
+            Map<String, Histogram> requestLatencies = new LinkedHashMap<>();
+            Map<String, Long> requestFailures = new HashMap<>();
+            Map<String, Histogram> outcomeLatencies = new TreeMap<>();
+            for (Worker thread : threads) {
+                thread.getRequestLatencies().forEach((name, h) -> RequestBreakdown.merge(requestLatencies, name, h));
+                thread.getRequestFailures().forEach((name, count) -> requestFailures.merge(name, count, Long::sum));
+                thread.getOutcomeLatencies().forEach((key, h) -> RequestBreakdown.merge(outcomeLatencies, key, h));
+            }
+            // Requests that always failed have no latencies but still belong in the breakdown.
+            requestFailures.keySet().forEach(name -> requestLatencies.computeIfAbsent(name,
+                    n -> Histograms.createPacked(histogramPrecision)));
+            requests = new LinkedHashMap<>();
+            // Encoding leaves a buffer as large as an unpacked histogram behind in each histogram, so each one is let
+            // go once encoded rather than keeping them all until the end.
+            Iterator<Map.Entry<String, Histogram>> entries = requestLatencies.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Histogram> entry = entries.next();
+                requests.put(entry.getKey(),
+                        new BreakdownStats(entry.getValue(), requestFailures.getOrDefault(entry.getKey(), 0L)));
+                entries.remove();
+            }
+            outcomes = new TreeMap<>();
+            outcomeLatencies.forEach((key, h) -> outcomes.put(key, new BreakdownStats(h, 0)));
+        }
+
+        if (firstThread.getScenario() != null) {
+            scenario = firstThread.getScenario();
+            Map<String, Histogram> stageLatencies = new HashMap<>();
+            Map<String, Long> stageFailures = new HashMap<>();
+            for (Worker thread : threads) {
+                thread.getStageLatencies().forEach((name, h) -> RequestBreakdown.merge(stageLatencies, name, h));
+                thread.getStageFailures().forEach((name, count) -> stageFailures.merge(name, count, Long::sum));
+            }
+            stages = new LinkedHashMap<>();
+            for (Stage stage : scenario.getStages()) {
+                stages.put(stage.getName(), new StageStats(stage, stageLatencies.get(stage.getName()),
+                        stageFailures.getOrDefault(stage.getName(), 0L)));
+            }
+        }
+    }
 
-        minRequestLatency = statistics.getMin();
-        maxRequestLatency = statistics.getMax();
-        avgRequestLatency = statistics.getMean();
-        latencyStandardDeviation = statistics.getStandardDeviation();
+    private static Histogram merge(List<Histogram> histograms) {
+        Histogram merged = Histograms.create(histograms.get(0).getNumberOfSignificantValueDigits());
+        histograms.forEach(merged::add);
+        return merged;
+    }
 
-        percentiles = Stream.of(IntStream.rangeClosed(1, 9).map(x -> 10 * x), IntStream.range(91, 100))
+    private static Map<Integer, Double> percentiles(Histogram histogram) {
+        return Stream.of(IntStream.rangeClosed(1, 9).map(x -> 10 * x), IntStream.range(91, 100))
                 .flatMapToInt(x -> x)
-                .mapToObj(p -> new AbstractMap.SimpleEntry<>(p, statistics.getPercentile(p)))
+                .mapToObj(p -> new AbstractMap.SimpleEntry<>(p, (double) histogram.getValueAtPercentile(p)))
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
@@ -86,10 +273,35 @@ public class Metrics {
         sb.append("\nThread Count: " + threadCount);
         sb.append("\nTotal Request Count: " + totalRequestCount);
         sb.append("\nRequest Count Per Thread: " + requestCountPerThread);
+        sb.append("\nConcurrency: " + concurrency);
+        if (engine != null) {
+            sb.append("\nEngine: " + engine);
+        }
+        if (threadMode != null) {
+            sb.append("\nThread Mode: " + threadMode);
+        }
+        if (serverStreamLimit > 0) {
+            sb.append("\nServer Stream Limit: " + serverStreamLimit);
+        }
+        sb.append("\nAvailable Processors: " + availableProcessors);
+        if (selfTestServer != null) {
+            sb.append("\nSelf Test Server: body " + selfTestServer.getBodySize() + " bytes, delay "
+                    + (selfTestServer.getDelay() == null ? "none" : selfTestServer.getDelay())
+                    + ", error rate " + selfTestServer.getErrorRate()
+                    + ", " + selfTestServer.getIoThreads() + " I/O threads");
+        }
         sb.append("\nTotal Test Time (milli): " + totalTestTime);
         sb.append("\nRequest delay (nano): " + requestDelay);
+        if (targetRate != null) {
+            sb.append("\nTarget Rate (requests/sec): " + targetRate);
+        }
         sb.append("\nTotal Failed Requests: " + totalFailedRequests);
         sb.append("\nRequests Per Second: " + requestsPerSecond + "\n");
+        if (warmupPercentiles != null) {
+            sb.append("\nWarmup Request Count (excluded): " + warmupRequestCount);
+            sb.append("\nWarmup latency percentile 50%: " + warmupPercentiles.get(50));
+            sb.append("\nWarmup latency percentile 99%: " + warmupPercentiles.get(99) + "\n");
+        }
         sb.append("\nLatency Metrics in nanoseconds:");
         sb.append("\nAverage Request Latency: " + avgRequestLatency);
         sb.append("\nMin Request Latency: " + minRequestLatency);
@@ -101,6 +313,110 @@ public class Metrics {
         for (int percentile = 91; percentile < 100; percentile++) {
             sb.append("\nLatency percentile " + percentile + "%: " + percentiles.get(percentile));
         }
+        if (connectionStats != null) {
+            sb.append("\n\nConnection pool:");
+            sb.append("\nMax Connections: " + connectionStats.getMaxConnections());
+            sb.append("\nConnections Opened: " + connectionStats.getOpened());
+            sb.append("\nConnections Reused: " + connectionStats.getReused());
+            sb.append("\nConnections Closed After Response: " + connectionStats.getClosedAfterResponse());
+            sb.append("\nConnections Evicted: " + connectionStats.getEvicted());
+            sb.append("\nAverage Lease Wait (nano): " + connectionStats.getAvgLeaseWait());
+            sb.append("\nLease Wait percentile 99% (nano): " + connectionStats.getP99LeaseWait());
+            sb.append("\nMax Lease Wait (nano): " + connectionStats.getMaxLeaseWait());
+            sb.append("\nConnections Per Second: " + connectionStats.getConnectionsPerSecond());
+            long handshakes = connectionStats.getFullTlsHandshakes() + connectionStats.getResumedTlsHandshakes();
+            if (handshakes > 0) {
+                sb.append("\nTLS Handshakes Per Second: " + connectionStats.getTlsHandshakesPerSecond());
+                sb.append("\nFull TLS Handshakes: " + connectionStats.getFullTlsHandshakes());
+                sb.append("\nAverage Full TLS Handshake (nano): " + connectionStats.getAvgFullTlsHandshake());
+                sb.append("\nFull TLS Handshake percentile 99% (nano): " + connectionStats.getP99FullTlsHandshake());
+                sb.append("\nResumed TLS Handshakes: " + connectionStats.getResumedTlsHandshakes());
+                sb.append("\nAverage Resumed TLS Handshake (nano): " + connectionStats.getAvgResumedTlsHandshake());
+                sb.append("\nResumed TLS Handshake percentile 99% (nano): "
+                        + connectionStats.getP99ResumedTlsHandshake());
+            }
+        }
+        if (overhead != null) {
+            sb.append("\n\nLoad generator overhead:");
+            sb.append("\nCPU Utilization: " + String.format("%.1f%% of %d processors",
+                    overhead.getCpuUtilization() * 100, overhead.getAvailableProcessors()));
+            sb.append("\nProcess CPU Time (nano): " + overhead.getProcessCpuTime());
+            sb.append("\nGC Pauses: " + overhead.getGcPauses());
+            sb.append("\nTotal GC Pause Time (nano): " + overhead.getGcPauseTime());
+            sb.append("\nMax GC Pause (nano): " + overhead.getMaxGcPause());
+            if (overhead.getAllocatedBytes() >= 0) {
+                sb.append("\nAllocated Bytes Per Request: " + overhead.getAllocatedBytesPerRequest());
+                sb.append("\nAllocation Rate (bytes/sec): " + overhead.getAllocationRate());
+            }
+            sb.append("\nScheduler Lag percentile 99% (nano): " + overhead.getP99SchedulerLag());
+            sb.append("\nMax Scheduler Lag (nano): " + overhead.getMaxSchedulerLag());
+        }
+        if (replay != null) {
+            sb.append("\n\nTrace replay:");
+            sb.append("\nSpeed Up: " + replay.getSpeedUp());
+            sb.append("\nReplayed Requests: " + replay.getRequests());
+            sb.append("\nReplayed Trace Duration (nano): " + replay.getReplayedDuration());
+            sb.append("\nRequests Sent Over 1ms Late: " + replay.getLateRequests());
+            sb.append("\nAverage Send Drift (nano): " + replay.getAvgDrift());
+            sb.append("\nSend Drift percentile 50% (nano): " + replay.getP50Drift());
+            sb.append("\nSend Drift percentile 99% (nano): " + replay.getP99Drift());
+            sb.append("\nSend Drift percentile 99.9% (nano): " + replay.getP999Drift());
+            sb.append("\nMax Send Drift (nano): " + replay.getMaxDrift());
+            if (replay.getError() != null) {
+                sb.append("\nReplay stopped early: " + replay.getError());
+            }
+        }
+        if (stages != null) {
+            sb.append("\n\nScenario stages by target " + scenario.getTarget().name().toLowerCase()
+                    + " in nanoseconds (target, duration, count, failures, requests/sec, average, 50%, 99%, max):");
+            stages.forEach((name, stats) -> sb.append("\n" + name + ": " + stats.getTarget() + ", "
+                    + stats.getDuration() + ", " + stats.getCount() + ", " + stats.getFailures() + ", "
+                    + stats.getRequestsPerSecond() + ", " + stats.getAvg() + ", " + stats.getP50() + ", "
+                    + stats.getP99() + ", " + stats.getMax()));
+        }
+        if (phases != null) {
+            sb.append("\n\nRequest phases in nanoseconds (count, average, 50%, 99%, max):");
+            phases.forEach((phase, stats) -> sb.append("\n" + phase + ": " + stats.getCount() + ", " + stats.getAvg()
+                    + ", " + stats.getP50() + ", " + stats.getP99() + ", " + stats.getMax()));
+        }
+        if (outcomes != null) {
+            sb.append("\n\nOutcomes in nanoseconds (count, average, 50%, 99%, max):");
+            outcomes.forEach((key, stats) -> sb.append("\n" + key + ": " + stats.getCount() + ", " + stats.getAvg()
+                    + ", " + stats.getP50() + ", " + stats.getP99() + ", " + stats.getMax()));
+        }
+        if (requests != null && requests.size() > 1) {
+            sb.append("\n\nSlowest requests by 99% latency in nanoseconds (count, failures, average, 50%, 99%, max), "
+                    + Math.min(requests.size(), MAX_PRINTED_REQUESTS) + " of " + requests.size() + ":");
+            requests.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, BreakdownStats> e) -> e.getValue().getP99())
+                            .reversed())
+                    .limit(MAX_PRINTED_REQUESTS)
+                    .forEach(e -> sb.append("\n" + e.getKey() + ": " + e.getValue().getCount() + ", "
+                            + e.getValue().getFailures() + ", " + e.getValue().getAvg() + ", " + e.getValue().getP50()
+                            + ", " + e.getValue().getP99() + ", " + e.getValue().getMax()));
+        }
+        if (virtualThreadPinning != null) {
+            sb.append("\n\nVirtual thread pinning:");
+            sb.append("\nPinned Events: " + virtualThreadPinning.getPinnedEvents());
+            sb.append("\nPinned Time (nano): " + virtualThreadPinning.getPinnedTime());
+            virtualThreadPinning.getTopPinningSites().forEach((site, count) ->
+                    sb.append("\nPinned at " + site + ": " + count));
+        }
+        if (correctedPercentiles != null) {
+            sb.append("\n\nCoordinated omission corrected latency metrics in nanoseconds:");
+            sb.append("\nAverage Corrected Request Latency: " + avgCorrectedRequestLatency);
+            sb.append("\nMax Corrected Request Latency: " + maxCorrectedRequestLatency);
+            for (int percentile = 10; percentile < 100; percentile+=10) {
+                sb.append("\nCorrected latency percentile " + percentile + "%: " + correctedPercentiles.get(percentile));
+            }
+            for (int percentile = 91; percentile < 100; percentile++) {
+                sb.append("\nCorrected latency percentile " + percentile + "%: " + correctedPercentiles.get(percentile));
+            }
+        }
+        if (overhead != null && !overhead.getWarnings().isEmpty()) {
+            sb.append("\n");
+            overhead.getWarnings().forEach(warning -> sb.append("\nWARNING: " + warning));
+        }
         return sb.toString();
     }
 
@@ -0,0 +1,214 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.HdrHistogram.Histogram;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures what the load generator itself costs while a run goes on, so stalls of the client can be told apart from
+ * a slow server: the process's CPU time, the GC pauses, the bytes allocated by all threads and the scheduler lag,
+ * that is how late a thread sleeping for {@link #RESOLUTION} wakes up. Any pause of the JVM or wait for a CPU that
+ * holds up the workers also holds up the monitor's thread, so the lag shows the stalls whatever their cause.
+ *
+ * The monitor's thread also emits a {@link RunPhaseEvent} for each phase of the run, eg. warmup and measurement, as
+ * it goes.
+ */
+public class OverheadMonitor implements Runnable {
+    private static final long RESOLUTION = TimeUnit.MILLISECONDS.toNanos(1);
+    /**
+     * Threads are asked for their allocated bytes this often. A thread ending between two samples loses what it
+     * allocated since the previous one, which is negligible for the long lived worker threads.
+     */
+    private static final long ALLOCATION_SAMPLE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final com.sun.management.OperatingSystemMXBean osBean;
+    private final Histogram schedulerLag = Histograms.create(Histograms.DEFAULT_PRECISION);
+    private final List<String> phaseNames = new ArrayList<>();
+    private final List<Long> phaseLengths = new ArrayList<>();
+    private final Map<Long, Long> threadAllocatedBytes = new HashMap<>();
+    private final NotificationListener gcListener = this::gcNotification;
+
+    private volatile boolean stopped = false;
+    private Thread thread;
+    private long startTime;
+    private long measurementStartTime;
+    private long startCpuTime;
+    private long duration;
+    private long cpuTime;
+    private long allocatedBytes;
+    private RunPhaseEvent phaseEvent;
+    private long gcPauses;
+    private long gcPauseTime;
+    private long maxGcPause;
+
+    public OverheadMonitor() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        this.threadBean = threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        this.osBean = os instanceof com.sun.management.OperatingSystemMXBean
+                ? (com.sun.management.OperatingSystemMXBean) os : null;
+    }
+
+    /**
+     * Adds a phase of the run, following the phases added before. Must be called before the monitor starts.
+     *
+     * @param length length of the phase in nanoseconds, or 0 if it lasts until the monitor stops.
+     */
+    public void addPhase(String name, long length) {
+        phaseNames.add(name);
+        phaseLengths.add(length);
+    }
+
+    /**
+     * @param startTime            {@link System#nanoTime()} at which the first phase starts.
+     * @param measurementStartTime {@link System#nanoTime()} at which the warmup ends, as the scheduler lag is compared
+     *                             with the latencies measured after it.
+     */
+    public void start(long startTime, long measurementStartTime) {
+        this.startTime = startTime;
+        this.measurementStartTime = measurementStartTime;
+        this.startCpuTime = osBean == null ? -1 : osBean.getProcessCpuTime();
+        if (threadBean != null) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+            sampleAllocatedBytes();
+            allocatedBytes = 0;
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(gcListener, null, null);
+            }
+        }
+        thread = new Thread(this, "overhead-monitor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        int phase = 0;
+        long phaseEnd = 0;
+        if (!phaseNames.isEmpty()) {
+            phaseEvent = RunPhaseEvent.begin(phaseNames.get(0));
+            phaseEnd = startTime + phaseLengths.get(0);
+        }
+        long nextAllocationSample = startTime + ALLOCATION_SAMPLE_INTERVAL;
+        long expected = System.nanoTime() + RESOLUTION;
+        while (!stopped) {
+            LockSupport.parkNanos(RESOLUTION);
+            long now = System.nanoTime();
+            if (expected - measurementStartTime >= 0) {
+                Histograms.record(schedulerLag, Math.max(0, now - expected));
+            }
+            expected = now + RESOLUTION;
+
+            // A phase with a length ends on the first tick after its end, one without when the monitor stops.
+            while (phaseEvent != null && phaseLengths.get(phase) > 0 && now - phaseEnd >= 0) {
+                phaseEvent.commit();
+                phaseEvent = null;
+                phase++;
+                if (phase < phaseNames.size()) {
+                    phaseEvent = RunPhaseEvent.begin(phaseNames.get(phase));
+                    phaseEnd += phaseLengths.get(phase);
+                }
+            }
+
+            if (threadBean != null && now - nextAllocationSample >= 0) {
+                sampleAllocatedBytes();
+                nextAllocationSample += ALLOCATION_SAMPLE_INTERVAL;
+            }
+        }
+    }
+
+    /**
+     * Adds what every thread allocated since the previous sample. Threads started since then allocated all their
+     * bytes during the run.
+     */
+    private void sampleAllocatedBytes() {
+        long[] ids = threadBean.getAllThreadIds();
+        long[] bytes = threadBean.getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] < 0) {
+                continue;
+            }
+            Long previous = threadAllocatedBytes.put(ids[i], bytes[i]);
+            allocatedBytes += bytes[i] - (previous == null ? 0 : previous);
+        }
+    }
+
+    /**
+     * Called by the JMX notification thread after each collection. Concurrent collections, which do not stop the
+     * workers, are left out.
+     */
+    private synchronized void gcNotification(Notification notification, Object handback) {
+        if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        if (info.getGcName().contains("Concurrent") || info.getGcName().contains("Cycles")) {
+            return;
+        }
+        long pause = TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration());
+        gcPauses++;
+        gcPauseTime += pause;
+        maxGcPause = Math.max(maxGcPause, pause);
+    }
+
+    /**
+     * Stops the monitor once the workers are done.
+     */
+    public void stop() throws InterruptedException {
+        stopped = true;
+        LockSupport.unpark(thread);
+        thread.join();
+        duration = System.nanoTime() - startTime;
+        cpuTime = osBean == null || startCpuTime < 0 ? 0 : osBean.getProcessCpuTime() - startCpuTime;
+        if (phaseEvent != null) {
+            phaseEvent.commit();
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) collector).removeNotificationListener(gcListener);
+                } catch (ListenerNotFoundException e) {
+                    // Not registered, nothing to remove.
+                }
+            }
+        }
+        if (threadBean != null) {
+            sampleAllocatedBytes();
+        }
+    }
+
+    /**
+     * Summarizes the overhead between the start and the stop of the monitor.
+     *
+     * @param requests   number of requests sent, warmup included.
+     * @param p99Latency p99 latency of the responses, to tell which stalls could have made outliers.
+     */
+    public synchronized OverheadStats getStats(long requests, double p99Latency) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return new OverheadStats(processors, duration, cpuTime, cpuTime / ((double) Math.max(duration, 1) * processors),
+                gcPauses, gcPauseTime, maxGcPause, threadBean == null ? -1 : allocatedBytes, requests, schedulerLag,
+                p99Latency);
+    }
+}
@@ -0,0 +1,164 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * What the load generator itself cost over a run, as measured by the {@link OverheadMonitor}, and warnings when it may
+ * have been the bottleneck rather than the server. Only the scheduler lag leaves out the warmup. Times are in
+ * nanoseconds.
+ */
+@Getter
+public class OverheadStats {
+    /**
+     * Share of the available processors above which the load generator counts as CPU bound.
+     */
+    public static final double CPU_SATURATION = 0.9;
+    /**
+     * Share of the run spent in GC pauses above which the pauses count as a bottleneck.
+     */
+    public static final double GC_SATURATION = 0.05;
+
+    private final int availableProcessors;
+    /**
+     * Time the load generator was monitored for.
+     */
+    private final long duration;
+    private final long processCpuTime;
+    /**
+     * CPU time of the process over the time the available processors had; the highest of any process for a run
+     * shared by several processes.
+     */
+    private final double cpuUtilization;
+    private final long gcPauses;
+    private final long gcPauseTime;
+    private final long maxGcPause;
+    /**
+     * Bytes allocated by all threads of the process, an in-process self test server included, or -1 if the JVM does
+     * not tell.
+     */
+    private final long allocatedBytes;
+    /**
+     * Requests sent, warmup included.
+     */
+    private final long requests;
+    private final double allocatedBytesPerRequest;
+    /**
+     * Bytes allocated per second.
+     */
+    private final double allocationRate;
+    /**
+     * How late a thread woke up from a short sleep: time it was kept from running by GC pauses, safepoints or
+     * waiting for a CPU.
+     */
+    private final long p99SchedulerLag;
+    private final long maxSchedulerLag;
+    /**
+     * The scheduler lag histogram in compressed base64 HdrHistogram form, see {@link Histograms#decode(String)}.
+     */
+    private final String schedulerLagHistogram;
+    private final List<String> warnings;
+
+    /**
+     * @param p99Latency p99 latency of the run's responses, to tell which stalls could have made outliers.
+     */
+    public OverheadStats(int availableProcessors, long duration, long processCpuTime, double cpuUtilization,
+                         long gcPauses, long gcPauseTime, long maxGcPause, long allocatedBytes, long requests,
+                         Histogram schedulerLag, double p99Latency) {
+        this(availableProcessors, duration, processCpuTime, cpuUtilization, gcPauses, gcPauseTime, maxGcPause,
+                allocatedBytes, requests, schedulerLag, new ArrayList<>());
+        warnings.addAll(warnings(schedulerLag, p99Latency));
+    }
+
+    private OverheadStats(int availableProcessors, long duration, long processCpuTime, double cpuUtilization,
+                          long gcPauses, long gcPauseTime, long maxGcPause, long allocatedBytes, long requests,
+                          Histogram schedulerLag, List<String> warnings) {
+        this.availableProcessors = availableProcessors;
+        this.duration = duration;
+        this.processCpuTime = processCpuTime;
+        this.cpuUtilization = cpuUtilization;
+        this.gcPauses = gcPauses;
+        this.gcPauseTime = gcPauseTime;
+        this.maxGcPause = maxGcPause;
+        this.allocatedBytes = allocatedBytes;
+        this.requests = requests;
+        this.allocatedBytesPerRequest = allocatedBytes < 0 || requests == 0 ? 0 : allocatedBytes / (double) requests;
+        this.allocationRate = allocatedBytes < 0 ? 0
+                : allocatedBytes / (Math.max(duration, 1) / (double) TimeUnit.SECONDS.toNanos(1));
+        this.p99SchedulerLag = schedulerLag.getValueAtPercentile(99);
+        this.maxSchedulerLag = schedulerLag.getMaxValue();
+        this.schedulerLagHistogram = Histograms.encode(schedulerLag);
+        this.warnings = warnings;
+    }
+
+    private List<String> warnings(Histogram schedulerLag, double p99Latency) {
+        List<String> warnings = new ArrayList<>();
+        if (cpuUtilization >= CPU_SATURATION) {
+            warnings.add(String.format("The load generator used %.0f%% of its %d processors: requests waited for a "
+                    + "CPU on the client, so throughput and latencies may be limited by the client rather than the "
+                    + "server. Spread the load over more worker processes or hosts.",
+                    cpuUtilization * 100, availableProcessors));
+        }
+        if (gcPauseTime > GC_SATURATION * duration) {
+            warnings.add(String.format("The load generator spent %.1f%% of the run in %d GC pauses: give it a larger "
+                    + "heap or send fewer distinct payloads.", 100.0 * gcPauseTime / duration, gcPauses));
+        }
+        // A request in flight during a stall is held up for about as long as the stall, so a stall longer than the
+        // p99 latency turns whatever was in flight into an outlier.
+        long p99 = (long) p99Latency;
+        long stalls = p99 > 0 && maxSchedulerLag >= p99
+                ? schedulerLag.getCountBetweenValues(p99, schedulerLag.getMaxValue()) : 0;
+        if (stalls > 0) {
+            warnings.add(String.format("The load generator had %d %s longer than the p99 latency of %.3fms, "
+                    + "up to %.3fms (longest GC pause %.3fms): latencies above p99 may include client-side stalls "
+                    + "rather than server slowness.",
+                    stalls, stalls == 1 ? "stall" : "stalls", p99 / 1e6, maxSchedulerLag / 1e6, maxGcPause / 1e6));
+        }
+        return warnings;
+    }
+
+    /**
+     * Merges the overhead of the processes that shared a run. Each process checked for warnings against its own
+     * latencies, and they are kept by process.
+     */
+    public static OverheadStats merge(List<OverheadStats> processes) throws DataFormatException {
+        Histogram schedulerLag = Histograms.create(Histograms.DEFAULT_PRECISION);
+        int availableProcessors = 0;
+        long duration = 0;
+        long processCpuTime = 0;
+        double cpuUtilization = 0;
+        long gcPauses = 0;
+        long gcPauseTime = 0;
+        long maxGcPause = 0;
+        long allocatedBytes = 0;
+        long requests = 0;
+        List<String> warnings = new ArrayList<>();
+        for (int i = 0; i < processes.size(); i++) {
+            OverheadStats process = processes.get(i);
+            schedulerLag.add(Histograms.decode(process.getSchedulerLagHistogram()));
+            availableProcessors += process.getAvailableProcessors();
+            duration = Math.max(duration, process.getDuration());
+            processCpuTime += process.getProcessCpuTime();
+            cpuUtilization = Math.max(cpuUtilization, process.getCpuUtilization());
+            gcPauses += process.getGcPauses();
+            gcPauseTime += process.getGcPauseTime();
+            maxGcPause = Math.max(maxGcPause, process.getMaxGcPause());
+            allocatedBytes = allocatedBytes < 0 || process.getAllocatedBytes() < 0
+                    ? -1 : allocatedBytes + process.getAllocatedBytes();
+            requests += process.getRequests();
+            for (String warning : process.getWarnings()) {
+                warnings.add("Worker process " + (i + 1) + ": " + warning);
+            }
+        }
+        return new OverheadStats(availableProcessors, duration, processCpuTime, cpuUtilization, gcPauses, gcPauseTime,
+                maxGcPause, allocatedBytes, requests, schedulerLag, warnings);
+    }
+}
@@ -0,0 +1,40 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency statistics of one {@link RequestPhase} over a run. Times are in nanoseconds.
+ */
+@Getter
+public class PhaseStats {
+    /**
+     * Number of requests that went through the phase, eg. only those that opened a new connection for
+     * {@link RequestPhase#CONNECT}.
+     */
+    private final long count;
+    private final double avg;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+    /**
+     * The phase histogram in compressed base64 HdrHistogram form, see {@link Histograms#decode(String)}.
+     */
+    private final String histogram;
+
+    public PhaseStats(Histogram histogram) {
+        this.count = histogram.getTotalCount();
+        this.avg = histogram.getMean();
+        this.p50 = histogram.getValueAtPercentile(50);
+        this.p90 = histogram.getValueAtPercentile(90);
+        this.p99 = histogram.getValueAtPercentile(99);
+        this.p999 = histogram.getValueAtPercentile(99.9);
+        this.max = histogram.getMaxValue();
+        this.histogram = Histograms.encode(histogram);
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import org.HdrHistogram.Histogram;
+import org.apache.http.protocol.HttpContext;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Times the {@link RequestPhase}s of the requests sent by one worker thread and records them in one histogram per
+ * phase.
+ *
+ * The worker puts its timer in the context of each request under {@link #CONTEXT_ATTRIBUTE}, and the instrumented
+ * connection manager, socket factory and request executor mark the phase boundaries as the client goes through them
+ * on the worker thread. The timer is reset for every request rather than reallocated, so timing a request costs a few
+ * {@link System#nanoTime()} calls and one context lookup per boundary. The histograms are packed, as every worker of
+ * a run with many workers has its own.
+ */
+public class PhaseTimer {
+    public static final String CONTEXT_ATTRIBUTE = "http.performance.phase-timer";
+
+    private final Map<RequestPhase, Histogram> histograms = new EnumMap<>(RequestPhase.class);
+
+    private long start;
+    private long connectStart;
+    private long tlsStart;
+    private long tlsEnd;
+    private long writeStart;
+    private long writeEnd;
+    private long headEnd;
+
+    public PhaseTimer(int histogramPrecision) {
+        for (RequestPhase phase : RequestPhase.values()) {
+            histograms.put(phase, Histograms.createPacked(histogramPrecision));
+        }
+    }
+
+    /**
+     * @return the timer of the request with this context, or null if its phases are not timed.
+     */
+    public static PhaseTimer get(HttpContext context) {
+        return context == null ? null : (PhaseTimer) context.getAttribute(CONTEXT_ATTRIBUTE);
+    }
+
+    /**
+     * Starts timing a new request.
+     */
+    public void start(long start) {
+        this.start = start;
+        connectStart = 0;
+        tlsStart = 0;
+        tlsEnd = 0;
+        writeStart = 0;
+        writeEnd = 0;
+        headEnd = 0;
+    }
+
+    public void connectStarted() {
+        connectStart = System.nanoTime();
+    }
+
+    public void tlsStarted() {
+        tlsStart = System.nanoTime();
+    }
+
+    public void tlsDone() {
+        tlsEnd = System.nanoTime();
+    }
+
+    public void writeStarted() {
+        writeStart = System.nanoTime();
+    }
+
+    public void writeDone() {
+        writeEnd = System.nanoTime();
+    }
+
+    public void headReceived() {
+        headEnd = System.nanoTime();
+    }
+
+    /**
+     * Records the phases of the current request, whose body was fully read at {@code bodyEnd}. Nothing is recorded
+     * if the request did not get as far as reading the response head, eg. because the client does not mark the phase
+     * boundaries.
+     */
+    public void record(long bodyEnd) {
+        if (headEnd == 0) {
+            return;
+        }
+        long leased = connectStart != 0 ? connectStart : writeStart;
+        Histograms.record(histograms.get(RequestPhase.LEASE_WAIT), leased - start);
+        if (connectStart != 0) {
+            long connected = tlsStart != 0 ? tlsStart : writeStart;
+            Histograms.record(histograms.get(RequestPhase.CONNECT), connected - connectStart);
+        }
+        if (tlsStart != 0 && tlsEnd != 0) {
+            Histograms.record(histograms.get(RequestPhase.TLS_HANDSHAKE), tlsEnd - tlsStart);
+        }
+        Histograms.record(histograms.get(RequestPhase.REQUEST_WRITE), writeEnd - writeStart);
+        Histograms.record(histograms.get(RequestPhase.TIME_TO_FIRST_BYTE), headEnd - writeEnd);
+        Histograms.record(histograms.get(RequestPhase.BODY_TRANSFER), bodyEnd - headEnd);
+    }
+
+    public Map<RequestPhase, Histogram> getHistograms() {
+        return histograms;
+    }
+}
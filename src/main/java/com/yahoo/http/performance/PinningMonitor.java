@@ -0,0 +1,113 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Records the JFR events emitted when a virtual thread blocks while pinned to its carrier thread, eg. while holding a
+ * monitor inside the http client, and summarizes where the pinning happened.
+ */
+public class PinningMonitor {
+    private static final Logger LOG = LoggerFactory.getLogger(PinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final long MAX_RECORDING_SIZE = 64 * 1024 * 1024;
+    private static final int TOP_SITES = 5;
+
+    private final Recording recording = new Recording();
+
+    public PinningMonitor() {
+        recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+        recording.setToDisk(true);
+        recording.setMaxSize(MAX_RECORDING_SIZE);
+    }
+
+    public void start() {
+        recording.start();
+    }
+
+    /**
+     * Stops the recording and summarizes the pinned events it captured.
+     */
+    public Report stop() {
+        recording.stop();
+        Report report = new Report();
+        Path file = null;
+        try {
+            file = Files.createTempFile("pinning", ".jfr");
+            recording.dump(file);
+
+            Map<String, Long> sites = new HashMap<>();
+            try (RecordingFile recordingFile = new RecordingFile(file)) {
+                while (recordingFile.hasMoreEvents()) {
+                    RecordedEvent event = recordingFile.readEvent();
+                    if (!event.getEventType().getName().equals(PINNED_EVENT)) {
+                        continue;
+                    }
+                    report.pinnedEvents++;
+                    report.pinnedTime += event.getDuration().toNanos();
+                    sites.merge(pinningSite(event), 1L, Long::sum);
+                }
+            }
+            report.topPinningSites = sites.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(TOP_SITES)
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+        } catch (IOException e) {
+            LOG.error("Failed to read pinned thread events", e);
+        } finally {
+            recording.close();
+            if (file != null) {
+                file.toFile().delete();
+            }
+        }
+        return report;
+    }
+
+    /**
+     * @return the first frame outside the JDK, which is the library or application code that blocked while pinned.
+     */
+    private static String pinningSite(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * Summary of the virtual thread pinning observed during a run.
+     */
+    public static class Report {
+        @Getter
+        private long pinnedEvents;
+        /**
+         * Total time in nanoseconds virtual threads spent blocked while pinned.
+         */
+        @Getter
+        private long pinnedTime;
+        @Getter
+        private Map<String, Long> topPinningSites = new LinkedHashMap<>();
+    }
+}
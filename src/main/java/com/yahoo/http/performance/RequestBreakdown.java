@@ -0,0 +1,125 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import com.yahoo.http.performance.request.Request;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One worker's results broken down by request, see {@link Request#getName()}, and by outcome: the HTTP status of the
+ * response, or the {@link ErrorClass} of the failure.
+ *
+ * Each key has its own histogram, created the first time the key is recorded. They are sparse
+ * {@link Histograms#createPacked packed histograms}, as a corpus may have hundreds of requests and each histogram
+ * only fills the few buckets around that request's latencies.
+ *
+ * Responses are only recorded by the worker's own thread, which needs no locking. Failures can also be reported
+ * from a validation thread, or from an async worker's dispatching thread, so they are recorded under the lock; they
+ * are rare enough for the lock to be practically never contended.
+ */
+public class RequestBreakdown {
+    private static final int MAX_STATUS = 599;
+
+    private final List<Request> requests;
+    private final int precision;
+    private final Histogram[] requestLatencies;
+    private final long[] requestFailures;
+    private final Histogram[] statusLatencies = new Histogram[MAX_STATUS + 1];
+    private final Map<ErrorClass, Histogram> errorLatencies = new EnumMap<>(ErrorClass.class);
+
+    public RequestBreakdown(List<Request> requests, int precision) {
+        this.requests = requests;
+        this.precision = precision;
+        this.requestLatencies = new Histogram[requests.size()];
+        this.requestFailures = new long[requests.size()];
+    }
+
+    /**
+     * Records the latency of a response. Only called by the worker's own thread.
+     */
+    public void recordResponse(int requestIndex, int status, long latency) {
+        Histogram latencies = requestLatencies[requestIndex];
+        if (latencies == null) {
+            latencies = Histograms.createPacked(precision);
+            requestLatencies[requestIndex] = latencies;
+        }
+        Histograms.record(latencies, latency);
+
+        int key = status < 0 || status > MAX_STATUS ? 0 : status;
+        Histogram byStatus = statusLatencies[key];
+        if (byStatus == null) {
+            byStatus = Histograms.createPacked(precision);
+            statusLatencies[key] = byStatus;
+        }
+        Histograms.record(byStatus, latency);
+    }
+
+    /**
+     * Records a failed request with the time it took to fail, or for validation failures its response latency.
+     */
+    public synchronized void recordFailure(int requestIndex, ErrorClass errorClass, long latency) {
+        requestFailures[requestIndex]++;
+        Histograms.record(errorLatencies.computeIfAbsent(errorClass, c -> Histograms.createPacked(precision)), latency);
+    }
+
+    /**
+     * @return the response latencies of each request that got a response, by request name, in request order.
+     */
+    public Map<String, Histogram> getRequestLatencies() {
+        Map<String, Histogram> latencies = new LinkedHashMap<>();
+        for (int i = 0; i < requestLatencies.length; i++) {
+            if (requestLatencies[i] != null) {
+                merge(latencies, requests.get(i).getName(), requestLatencies[i]);
+            }
+        }
+        return latencies;
+    }
+
+    /**
+     * @return the number of failures of each request that failed, by request name.
+     */
+    public synchronized Map<String, Long> getRequestFailures() {
+        Map<String, Long> failures = new LinkedHashMap<>();
+        for (int i = 0; i < requestFailures.length; i++) {
+            if (requestFailures[i] > 0) {
+                failures.merge(requests.get(i).getName(), requestFailures[i], Long::sum);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * @return the latencies of each outcome, keyed by the HTTP status or the name of the {@link ErrorClass}. Failed
+     * validations are counted both under the status of their response and as {@link ErrorClass#VALIDATION}.
+     */
+    public synchronized Map<String, Histogram> getOutcomeLatencies() {
+        Map<String, Histogram> latencies = new TreeMap<>();
+        for (int status = 0; status <= MAX_STATUS; status++) {
+            if (statusLatencies[status] != null) {
+                latencies.put(Integer.toString(status), statusLatencies[status]);
+            }
+        }
+        errorLatencies.forEach((errorClass, histogram) -> latencies.put(errorClass.name(), histogram));
+        return latencies;
+    }
+
+    /**
+     * Adds the histogram to the one of the same key, for requests sharing a name such as repeated GET urls.
+     */
+    static void merge(Map<String, Histogram> latencies, String key, Histogram histogram) {
+        Histogram merged = latencies.get(key);
+        if (merged == null) {
+            merged = Histograms.createPacked(histogram.getNumberOfSignificantValueDigits());
+            latencies.put(key, merged);
+        }
+        merged.add(histogram);
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+/**
+ * The consecutive phases of a blocking request, timed by a {@link PhaseTimer}.
+ */
+public enum RequestPhase {
+    /**
+     * From sending the request until a pooled connection was leased, including the client's own routing overhead.
+     */
+    LEASE_WAIT,
+    /**
+     * TCP connect of a new connection. Requests over reused connections do not go through this phase.
+     */
+    CONNECT,
+    /**
+     * TLS handshake of a new https connection, including the hostname verification.
+     */
+    TLS_HANDSHAKE,
+    /**
+     * Writing the request line, headers and body to the connection.
+     */
+    REQUEST_WRITE,
+    /**
+     * From the request being written until the response head was read, ie. server think time and network round trip.
+     */
+    TIME_TO_FIRST_BYTE,
+    /**
+     * Reading the response body, along with its validation when it is validated on the worker thread.
+     */
+    BODY_TRANSFER
+}
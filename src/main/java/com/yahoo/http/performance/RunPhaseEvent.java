@@ -0,0 +1,37 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning one phase of a run, so a flight recording of the load generator, eg. taken with
+ * {@code -XX:StartFlightRecording}, lines up GC, allocation and CPU profiles with what the run was doing. Events are
+ * only recorded while a recording is on.
+ */
+@Name("com.yahoo.http.performance.RunPhase")
+@Label("Run Phase")
+@Category("HTTP Performance")
+@Description("A phase of a load test run: setup, warmup, measurement, a scenario stage or report")
+public class RunPhaseEvent extends Event {
+    @Label("Phase")
+    private String phase;
+
+    private RunPhaseEvent(String phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * @return an event for the phase, starting now. The phase ends when the event is committed.
+     */
+    public static RunPhaseEvent begin(String phase) {
+        RunPhaseEvent event = new RunPhaseEvent(phase);
+        event.begin();
+        return event;
+    }
+}
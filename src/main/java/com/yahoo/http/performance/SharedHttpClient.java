@@ -0,0 +1,44 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * An http client shared by many worker threads, leasing connections from one instrumented connection pool.
+ */
+public class SharedHttpClient implements Closeable {
+    private final InstrumentedConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    public SharedHttpClient(boolean sslEnabled, ConnectionPoolConfig config)
+            throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+        HandshakeRecorder handshakes = new HandshakeRecorder();
+        this.connectionManager = new InstrumentedConnectionManager(
+                HttpClientFactory.createConnectionManager(sslEnabled, config, handshakes), handshakes);
+        this.httpClient = HttpClientFactory.createSharedClient(connectionManager, config);
+    }
+
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * @param elapsed time the client was used for, in nanoseconds.
+     */
+    public ConnectionStats getConnectionStats(long elapsed) {
+        return connectionManager.getStats(elapsed);
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import com.yahoo.http.performance.schedule.Scenario;
+import com.yahoo.http.performance.schedule.Stage;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One worker's results broken down by the {@link Scenario} stage during which each request was sent, or for paced
+ * requests was intended to be sent.
+ *
+ * As with {@link RequestBreakdown}, responses are only recorded by the worker's own thread, and failures, which may
+ * come from other threads, under the lock. The histograms are packed, as a run may have many workers.
+ */
+public class StageBreakdown {
+    private final List<Stage> stages;
+    private final int precision;
+    private final Histogram[] stageLatencies;
+    private final long[] stageFailures;
+
+    public StageBreakdown(Scenario scenario, int precision) {
+        this.stages = scenario.getStages();
+        this.precision = precision;
+        this.stageLatencies = new Histogram[stages.size()];
+        this.stageFailures = new long[stages.size()];
+    }
+
+    /**
+     * Records the latency of a response. Only called by the worker's own thread.
+     */
+    public void recordResponse(int stage, long latency) {
+        Histogram latencies = stageLatencies[stage];
+        if (latencies == null) {
+            latencies = Histograms.createPacked(precision);
+            stageLatencies[stage] = latencies;
+        }
+        Histograms.record(latencies, latency);
+    }
+
+    public synchronized void recordFailure(int stage) {
+        stageFailures[stage]++;
+    }
+
+    /**
+     * @return the response latencies of every stage, by stage name, in stage order.
+     */
+    public Map<String, Histogram> getStageLatencies() {
+        Map<String, Histogram> latencies = new LinkedHashMap<>();
+        for (int i = 0; i < stageLatencies.length; i++) {
+            latencies.put(stages.get(i).getName(),
+                    stageLatencies[i] != null ? stageLatencies[i] : Histograms.createPacked(precision));
+        }
+        return latencies;
+    }
+
+    /**
+     * @return the number of failures of every stage, by stage name, in stage order.
+     */
+    public synchronized Map<String, Long> getStageFailures() {
+        Map<String, Long> failures = new LinkedHashMap<>();
+        for (int i = 0; i < stageFailures.length; i++) {
+            failures.put(stages.get(i).getName(), stageFailures[i]);
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,58 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import com.yahoo.http.performance.schedule.Stage;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of the requests sent during one stage of a scenario. Paced requests, as in a rate scenario,
+ * have their latency measured from their intended start time. Times are in nanoseconds.
+ */
+@Getter
+public class StageStats {
+    /**
+     * Requests per second or number of active workers at the end of the stage.
+     */
+    private final double target;
+    private final long duration;
+    /**
+     * Number of responses.
+     */
+    private final long count;
+    private final long failures;
+    /**
+     * Responses per second over the length of the stage.
+     */
+    private final double requestsPerSecond;
+    private final double avg;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+    /**
+     * The histogram in compressed base64 HdrHistogram form, see {@link Histograms#decodePacked(String)}.
+     */
+    private final String histogram;
+
+    public StageStats(Stage stage, Histogram histogram, long failures) {
+        this.target = stage.getTarget();
+        this.duration = stage.getDuration();
+        this.count = histogram.getTotalCount();
+        this.failures = failures;
+        this.requestsPerSecond = count / (duration / (double) TimeUnit.SECONDS.toNanos(1));
+        this.avg = histogram.getMean();
+        this.p50 = histogram.getValueAtPercentile(50);
+        this.p90 = histogram.getValueAtPercentile(90);
+        this.p99 = histogram.getValueAtPercentile(99);
+        this.p999 = histogram.getValueAtPercentile(99.9);
+        this.max = histogram.getMaxValue();
+        this.histogram = Histograms.encode(histogram);
+    }
+}
@@ -0,0 +1,163 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import com.yahoo.http.performance.replay.TraceReplay;
+import com.yahoo.http.performance.report.IntervalRecorder;
+import com.yahoo.http.performance.resultlog.ResultLogWriter;
+import com.yahoo.http.performance.schedule.Pacer;
+import com.yahoo.http.performance.schedule.Scenario;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+
+/**
+ * A unit of load generation whose results are aggregated by {@link Metrics}. Apart from the interval recorder, which
+ * is read while the worker runs, the getters are only read after {@link #run()} has returned.
+ */
+public interface Worker extends Runnable {
+    Histogram getLatencies();
+
+    /**
+     * @return latencies measured from each request's intended start time, or null when the worker runs closed-loop.
+     */
+    Histogram getCorrectedLatencies();
+
+    Histogram getWarmupLatencies();
+
+    /**
+     * @return the recorder for live per interval reporting. Paced workers record corrected latencies in it.
+     */
+    IntervalRecorder getIntervalRecorder();
+
+    /**
+     * @return number of requests sent after the warmup.
+     */
+    long getRequestCount();
+
+    long getWarmupRequestCount();
+
+    /**
+     * @return {@link System#nanoTime()} at which the worker started running.
+     */
+    long getStartTime();
+
+    /**
+     * @return {@link System#nanoTime()} at which the warmup ended, or the start time if there was no warmup.
+     */
+    long getMeasurementStartTime();
+
+    /**
+     * @return {@link System#nanoTime()} at which the worker sent its last request.
+     */
+    long getEndTime();
+
+    /**
+     * @return number of requests after the warmup that failed.
+     */
+    long getFailedRequest();
+
+    long getRequestDelay();
+
+    Pacer getPacer();
+
+    /**
+     * @return the maximum number of requests this worker keeps in flight at once.
+     */
+    int getConcurrency();
+
+    /**
+     * @return number of requests sent and not completed yet. May be read by another thread while the worker runs, so
+     * it may be slightly stale.
+     */
+    default int getInFlight() {
+        return 0;
+    }
+
+    /**
+     * @return number of threads whose results this worker holds.
+     */
+    default int getThreadCount() {
+        return 1;
+    }
+
+    /**
+     * @return the latencies of each phase of the requests sent after the warmup, or null when the worker does not
+     * time request phases.
+     */
+    default Map<RequestPhase, Histogram> getPhaseLatencies() {
+        return null;
+    }
+
+    /**
+     * @return the response latencies of each request sent after the warmup, by {@link
+     * com.yahoo.http.performance.request.Request#getName() request name}, or null when the worker has no breakdown.
+     */
+    default Map<String, Histogram> getRequestLatencies() {
+        return null;
+    }
+
+    /**
+     * @return the number of failures of each request sent after the warmup, by request name.
+     */
+    default Map<String, Long> getRequestFailures() {
+        return null;
+    }
+
+    /**
+     * @return the latencies of the requests sent after the warmup, by HTTP status or {@link ErrorClass}.
+     */
+    default Map<String, Histogram> getOutcomeLatencies() {
+        return null;
+    }
+
+    /**
+     * @return the scenario the worker follows, or null.
+     */
+    default Scenario getScenario() {
+        return null;
+    }
+
+    /**
+     * @return the latencies of the requests sent during each stage of the scenario, by stage name in stage order, or
+     * null without a scenario.
+     */
+    default Map<String, Histogram> getStageLatencies() {
+        return null;
+    }
+
+    /**
+     * @return the number of failures of each stage of the scenario, by stage name.
+     */
+    default Map<String, Long> getStageFailures() {
+        return null;
+    }
+
+    /**
+     * Makes the worker append the result of each request to the log, which it closes once it is done. Must be called
+     * before the worker runs.
+     */
+    default void setResultLog(ResultLogWriter resultLog) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not log results");
+    }
+
+    /**
+     * Makes the worker send the requests of the trace replay at their scheduled times, instead of its own requests.
+     * Its requests must then be the replay's {@link TraceReplay#getRequests()}. Must be called before the worker runs.
+     */
+    default void setReplay(TraceReplay replay) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not replay traces");
+    }
+
+    /**
+     * Makes the worker report its results by stage of the scenario. In a concurrency scenario the worker also only
+     * sends requests while the concurrency is above its index; a rate scenario is followed by the worker's
+     * {@link Pacer}. Must be called before the worker runs.
+     *
+     * @param workerIndex index of the worker among the workers of all processes.
+     */
+    default void setScenario(Scenario scenario, int workerIndex) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not follow scenarios");
+    }
+}
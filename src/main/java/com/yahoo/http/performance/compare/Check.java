@@ -0,0 +1,28 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.compare;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One metric compared by a {@link RegressionGate}.
+ */
+@Getter
+@AllArgsConstructor
+public class Check {
+    private String name;
+    private double baseline;
+    private double current;
+    /**
+     * Change from the baseline, relative to it for throughput and latencies, absolute for the error rate and the
+     * distribution shift.
+     */
+    private double change;
+    /**
+     * Largest change in the bad direction that is not a regression.
+     */
+    private double tolerance;
+    private boolean regressed;
+}
@@ -0,0 +1,61 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.compare;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The outcome of comparing a run with its baseline, see {@link RegressionGate}.
+ */
+@Getter
+public class Comparison {
+    private final RunSummary baseline;
+    private final RunSummary current;
+    private final List<Check> checks;
+    /**
+     * P-value of the Kolmogorov-Smirnov test of the latency distributions.
+     */
+    private final double pValue;
+    private final double significance;
+    private final boolean regressed;
+
+    public Comparison(RunSummary baseline, RunSummary current, List<Check> checks, double pValue, double significance) {
+        this.baseline = baseline;
+        this.current = current;
+        this.checks = checks;
+        this.pValue = pValue;
+        this.significance = significance;
+        this.regressed = checks.stream().anyMatch(Check::isRegressed);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\nBaseline comparison:");
+        sb.append("\nBaseline Runs: " + baseline.getRuns() + ", requests per second " + baseline.getMinRequestsPerSecond()
+                + " to " + baseline.getMaxRequestsPerSecond());
+        sb.append("\nCurrent Runs: " + current.getRuns() + ", requests per second " + current.getMinRequestsPerSecond()
+                + " to " + current.getMaxRequestsPerSecond());
+        sb.append("\nLatencies: " + (baseline.isCorrected() ? "coordinated omission corrected" : "service time"));
+        sb.append("\nDistribution Shift p-value: " + pValue + " (significant below " + significance + ")");
+        sb.append("\n\nChecks (baseline, current, change, tolerance):");
+        for (Check check : checks) {
+            sb.append("\n" + check.getName() + ": " + check.getBaseline() + ", " + check.getCurrent() + ", "
+                    + String.format("%+.4f", check.getChange()) + ", " + check.getTolerance()
+                    + (check.isRegressed() ? ": REGRESSED" : ": ok"));
+        }
+        sb.append("\n\nResult: " + (regressed ? "regression" : "no regression") + "\n");
+        return sb.toString();
+    }
+
+    public String toJsonString() {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        return gson.toJson(this);
+    }
+}
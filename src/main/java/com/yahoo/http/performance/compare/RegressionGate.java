@@ -0,0 +1,129 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.compare;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Compares the results of a run with a baseline and decides whether they regressed.
+ *
+ * Throughput, error rate and latency percentiles each have a tolerance. The latency distribution as a whole is
+ * compared with a two-sample Kolmogorov-Smirnov test on the merged histograms: the statistic is the largest gap
+ * between the two cumulative distributions in the slower direction. Over the millions of requests of a typical run
+ * even a negligible shift is significant, so the distribution only regresses when the shift is both significant and
+ * larger than its tolerance. The p-value is the two-sided one, which errs on the side of not failing.
+ */
+public class RegressionGate {
+    public static final double DEFAULT_MAX_THROUGHPUT_DROP = 0.05;
+    public static final double DEFAULT_MAX_LATENCY_INCREASE = 0.1;
+    public static final double DEFAULT_MAX_ERROR_RATE_INCREASE = 0.001;
+    public static final double DEFAULT_MAX_DISTRIBUTION_SHIFT = 0.05;
+    public static final double DEFAULT_SIGNIFICANCE = 0.01;
+
+    private final double maxThroughputDrop;
+    private final double maxLatencyIncrease;
+    private final double maxErrorRateIncrease;
+    private final double maxDistributionShift;
+    private final double significance;
+
+    /**
+     * @param maxThroughputDrop    largest drop of requests per second, relative to the baseline.
+     * @param maxLatencyIncrease   largest increase of each latency percentile, relative to the baseline.
+     * @param maxErrorRateIncrease largest increase of the fraction of failed requests.
+     * @param maxDistributionShift largest Kolmogorov-Smirnov distance towards slower latencies, from 0 to 1.
+     * @param significance         p-value below which the distribution shift is significant.
+     */
+    public RegressionGate(double maxThroughputDrop, double maxLatencyIncrease, double maxErrorRateIncrease,
+                          double maxDistributionShift, double significance) {
+        this.maxThroughputDrop = maxThroughputDrop;
+        this.maxLatencyIncrease = maxLatencyIncrease;
+        this.maxErrorRateIncrease = maxErrorRateIncrease;
+        this.maxDistributionShift = maxDistributionShift;
+        this.significance = significance;
+    }
+
+    public Comparison compare(RunSummary baseline, RunSummary current) {
+        if (baseline.isCorrected() != current.isCorrected()) {
+            throw new IllegalArgumentException("Cannot compare a paced run with a closed-loop run");
+        }
+        List<Check> checks = new ArrayList<>();
+
+        double throughputChange = relativeChange(baseline.getRequestsPerSecond(), current.getRequestsPerSecond());
+        checks.add(new Check("requestsPerSecond", baseline.getRequestsPerSecond(), current.getRequestsPerSecond(),
+                throughputChange, maxThroughputDrop, throughputChange < -maxThroughputDrop));
+
+        double errorRateChange = current.getErrorRate() - baseline.getErrorRate();
+        checks.add(new Check("errorRate", baseline.getErrorRate(), current.getErrorRate(), errorRateChange,
+                maxErrorRateIncrease, errorRateChange > maxErrorRateIncrease));
+
+        for (String percentile : baseline.getPercentiles().keySet()) {
+            long base = baseline.getPercentiles().get(percentile);
+            long now = current.getPercentiles().get(percentile);
+            double change = relativeChange(base, now);
+            checks.add(new Check("p" + percentile, base, now, change, maxLatencyIncrease, change > maxLatencyIncrease));
+        }
+
+        Histogram base = baseline.getLatencies();
+        Histogram now = current.getLatencies();
+        double shift = slowerShift(base, now);
+        double pValue = new KolmogorovSmirnovTest().approximateP(shift, (int) Math.min(base.getTotalCount(),
+                Integer.MAX_VALUE), (int) Math.min(now.getTotalCount(), Integer.MAX_VALUE));
+        checks.add(new Check("distributionShift", 0, shift, shift, maxDistributionShift,
+                shift > maxDistributionShift && pValue < significance));
+
+        return new Comparison(baseline, current, checks, pValue, significance);
+    }
+
+    private static double relativeChange(double baseline, double current) {
+        return (current - baseline) / Math.max(baseline, 1);
+    }
+
+    /**
+     * @return the largest amount by which the baseline's cumulative distribution is ahead of the current one, that is
+     * the largest fraction of requests that got slower.
+     */
+    static double slowerShift(Histogram baseline, Histogram current) {
+        if (baseline.getTotalCount() == 0 || current.getTotalCount() == 0) {
+            return 0;
+        }
+        Iterator<HistogramIterationValue> b = baseline.recordedValues().iterator();
+        Iterator<HistogramIterationValue> c = current.recordedValues().iterator();
+        long[] bNext = next(b);
+        long[] cNext = next(c);
+        long bCount = 0;
+        long cCount = 0;
+        double shift = 0;
+        while (bNext != null || cNext != null) {
+            long value = bNext == null ? cNext[0] : cNext == null ? bNext[0] : Math.min(bNext[0], cNext[0]);
+            if (bNext != null && bNext[0] == value) {
+                bCount += bNext[1];
+                bNext = next(b);
+            }
+            if (cNext != null && cNext[0] == value) {
+                cCount += cNext[1];
+                cNext = next(c);
+            }
+            shift = Math.max(shift, bCount / (double) baseline.getTotalCount()
+                    - cCount / (double) current.getTotalCount());
+        }
+        return shift;
+    }
+
+    /**
+     * @return the highest value of the next bucket and its count, copied as the iterator reuses its values.
+     */
+    private static long[] next(Iterator<HistogramIterationValue> values) {
+        if (!values.hasNext()) {
+            return null;
+        }
+        HistogramIterationValue value = values.next();
+        return new long[] {value.getValueIteratedTo(), value.getCountAtValueIteratedTo()};
+    }
+}
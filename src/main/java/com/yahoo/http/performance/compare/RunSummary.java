@@ -0,0 +1,106 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.compare;
+
+import com.google.gson.Gson;
+import com.yahoo.http.performance.Histograms;
+import com.yahoo.http.performance.Metrics;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+/**
+ * The results of one or more repeated runs of the same test, pooled to even out the noise of a single run.
+ *
+ * The latency histograms of the runs are merged, so percentiles are taken over all their requests, and the
+ * throughput is the median of the runs' requests per second. When every run was paced, the coordinated omission
+ * corrected latencies are used, as those are what the callers of the server see.
+ */
+@Getter
+public class RunSummary {
+    static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final int runs;
+    private final long requestsPerSecond;
+    private final long minRequestsPerSecond;
+    private final long maxRequestsPerSecond;
+    private final long requestCount;
+    private final long failedRequests;
+    private final double errorRate;
+    private final boolean corrected;
+    /**
+     * Latencies in nanoseconds by percentile, eg. "99.9".
+     */
+    private final Map<String, Long> percentiles = new LinkedHashMap<>();
+    private final long maxLatency;
+    private final transient Histogram latencies;
+
+    public RunSummary(List<Metrics> runs) throws DataFormatException {
+        if (runs.isEmpty()) {
+            throw new IllegalArgumentException("No runs to summarize");
+        }
+        this.runs = runs.size();
+        this.corrected = runs.stream().allMatch(m -> m.getCorrectedLatencyHistogram() != null);
+
+        long[] rates = runs.stream().mapToLong(Metrics::getRequestsPerSecond).sorted().toArray();
+        this.requestsPerSecond = rates.length % 2 == 1
+                ? rates[rates.length / 2] : (rates[rates.length / 2 - 1] + rates[rates.length / 2]) / 2;
+        this.minRequestsPerSecond = rates[0];
+        this.maxRequestsPerSecond = rates[rates.length - 1];
+        this.requestCount = runs.stream().mapToLong(Metrics::getTotalRequestCount).sum();
+        this.failedRequests = runs.stream().mapToLong(Metrics::getTotalFailedRequests).sum();
+        this.errorRate = requestCount == 0 ? 0 : failedRequests / (double) requestCount;
+
+        Histogram merged = null;
+        for (Metrics run : runs) {
+            String encoded = corrected ? run.getCorrectedLatencyHistogram() : run.getLatencyHistogram();
+            if (encoded == null) {
+                throw new IllegalArgumentException("Results have no latency histogram to compare");
+            }
+            Histogram histogram = Histograms.decode(encoded);
+            if (merged == null) {
+                merged = Histograms.create(histogram.getNumberOfSignificantValueDigits());
+            }
+            merged.add(histogram);
+        }
+        this.latencies = merged;
+        for (double percentile : PERCENTILES) {
+            percentiles.put(format(percentile), merged.getValueAtPercentile(percentile));
+        }
+        this.maxLatency = merged.getMaxValue();
+    }
+
+    /**
+     * Reads runs from the json output of earlier runs, see {@link Metrics#toJsonString()}.
+     */
+    public static RunSummary read(List<Path> files) throws IOException, DataFormatException {
+        Gson gson = new Gson();
+        List<Metrics> runs = new ArrayList<>();
+        for (Path file : files) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                Metrics metrics = gson.fromJson(reader, Metrics.class);
+                if (metrics == null) {
+                    throw new IOException("No results in " + file);
+                }
+                runs.add(metrics);
+            }
+        }
+        return new RunSummary(runs);
+    }
+
+    static String format(double percentile) {
+        return percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
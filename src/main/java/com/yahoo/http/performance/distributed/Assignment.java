@@ -0,0 +1,20 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.distributed;
+
+/**
+ * The share of the load the coordinator assigns to a worker process: the command line to run, and the position of
+ * the process among all processes sharing the load.
+ */
+class Assignment {
+    String[] args;
+    int index;
+    int count;
+
+    Assignment(String[] args, int index, int count) {
+        this.args = args;
+        this.index = index;
+        this.count = count;
+    }
+}
@@ -0,0 +1,162 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.distributed;
+
+import com.google.gson.Gson;
+import com.yahoo.http.performance.Metrics;
+import com.yahoo.http.performance.OverheadStats;
+import com.yahoo.http.performance.replay.ReplayStats;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+
+/**
+ * Splits a run over several worker processes, possibly on other hosts, and merges their results.
+ *
+ * The coordinator waits for the worker processes to connect, and sends each one the command line to run and its
+ * position among the processes. Once every process has built its clients, it sends them all the same wall clock
+ * start time. Each process then reports its metrics, including its encoded latency histograms, and the histograms
+ * and counters are merged into one {@link Metrics} report. No individual samples are shipped.
+ *
+ * Messages are single lines of json over one TCP connection per process.
+ */
+public class Coordinator {
+    public static final int DEFAULT_PORT = 7171;
+    static final String READY = "ready";
+    /**
+     * Leaves time for the start message to reach every process before the start time.
+     */
+    private static final long START_DELAY_MILLIS = 500;
+    private static final List<String> COORDINATOR_OPTIONS = Arrays.asList("--workerProcesses", "--coordinatorPort");
+
+    private final int port;
+    private final int processCount;
+    private final Gson gson = new Gson();
+
+    public Coordinator(int port, int processCount) {
+        if (processCount < 1) {
+            throw new IllegalArgumentException("Number of worker processes must be positive: " + processCount);
+        }
+        this.port = port;
+        this.processCount = processCount;
+    }
+
+    /**
+     * @return the command line without the coordinator options, for the worker processes to run.
+     */
+    public static String[] workerArgs(String[] args) {
+        List<String> workerArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i].split("=", 2)[0];
+            if (COORDINATOR_OPTIONS.contains(name)) {
+                if (!args[i].contains("=")) {
+                    i++;
+                }
+            } else {
+                workerArgs.add(args[i]);
+            }
+        }
+        return workerArgs.toArray(new String[0]);
+    }
+
+    public Metrics run(String[] workerArgs) throws IOException, DataFormatException {
+        List<Connection> connections = new ArrayList<>();
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            System.err.println("Waiting for " + processCount + " worker processes on port " + port);
+            while (connections.size() < processCount) {
+                connections.add(new Connection(serverSocket.accept()));
+                System.err.println("Worker process " + connections.size() + " of " + processCount + " joined");
+            }
+        }
+
+        try {
+            for (int i = 0; i < processCount; i++) {
+                connections.get(i).send(gson.toJson(new Assignment(workerArgs, i, processCount)));
+            }
+            for (Connection connection : connections) {
+                if (!READY.equals(connection.receive())) {
+                    throw new IOException("Worker process failed to get ready");
+                }
+            }
+            long startTime = System.currentTimeMillis() + START_DELAY_MILLIS;
+            for (Connection connection : connections) {
+                connection.send(Long.toString(startTime));
+            }
+
+            List<RemoteWorker> workers = new ArrayList<>();
+            List<Metrics> results = new ArrayList<>();
+            for (Connection connection : connections) {
+                Metrics result = gson.fromJson(connection.receive(), Metrics.class);
+                results.add(result);
+                workers.add(new RemoteWorker(result));
+            }
+
+            Metrics metrics = new Metrics(workers);
+            metrics.setEngine(results.get(0).getEngine());
+            metrics.setThreadMode(results.get(0).getThreadMode());
+            metrics.setServerStreamLimit(results.stream().mapToInt(Metrics::getServerStreamLimit)
+                    .filter(limit -> limit > 0).min().orElse(0));
+            metrics.setSelfTestServer(results.get(0).getSelfTestServer());
+            if (results.get(0).getReplay() != null) {
+                metrics.setReplay(ReplayStats.merge(
+                        results.stream().map(Metrics::getReplay).collect(Collectors.toList())));
+            }
+            if (results.get(0).getOverhead() != null) {
+                metrics.setOverhead(OverheadStats.merge(
+                        results.stream().map(Metrics::getOverhead).collect(Collectors.toList())));
+            }
+            return metrics;
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * One line-oriented connection between the coordinator and a worker process.
+     */
+    static class Connection implements Closeable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        }
+
+        void send(String message) throws IOException {
+            out.println(message);
+            if (out.checkError()) {
+                throw new IOException("Failed to send to " + socket.getRemoteSocketAddress());
+            }
+        }
+
+        String receive() throws IOException {
+            String message = in.readLine();
+            if (message == null) {
+                throw new IOException("Connection closed by " + socket.getRemoteSocketAddress());
+            }
+            return message;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
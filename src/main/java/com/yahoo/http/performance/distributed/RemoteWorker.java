@@ -0,0 +1,207 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.distributed;
+
+import com.yahoo.http.performance.BreakdownStats;
+import com.yahoo.http.performance.Histograms;
+import com.yahoo.http.performance.Metrics;
+import com.yahoo.http.performance.PhaseStats;
+import com.yahoo.http.performance.RequestPhase;
+import com.yahoo.http.performance.StageStats;
+import com.yahoo.http.performance.Worker;
+import com.yahoo.http.performance.report.IntervalRecorder;
+import com.yahoo.http.performance.schedule.Pacer;
+import com.yahoo.http.performance.schedule.Scenario;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * The results of a whole worker process, rebuilt from the metrics it reported, so they can be merged with the other
+ * processes' results like the results of local threads.
+ *
+ * All processes start at the same time, so their times are expressed relative to that common start: the measurement
+ * starts at 0 and ends after the process's test time.
+ */
+class RemoteWorker implements Worker {
+    private final Metrics metrics;
+    private final Histogram latencies;
+    private final Histogram correctedLatencies;
+    private final Histogram warmupLatencies;
+    private final Pacer pacer;
+    private final Map<RequestPhase, Histogram> phaseLatencies;
+    private final Map<String, Histogram> requestLatencies;
+    private final Map<String, Long> requestFailures;
+    private final Map<String, Histogram> outcomeLatencies;
+    private final Scenario scenario;
+    private final Map<String, Histogram> stageLatencies;
+    private final Map<String, Long> stageFailures;
+
+    RemoteWorker(Metrics metrics) throws DataFormatException {
+        this.metrics = metrics;
+        this.latencies = Histograms.decode(metrics.getLatencyHistogram());
+        this.correctedLatencies = metrics.getCorrectedLatencyHistogram() == null
+                ? null : Histograms.decode(metrics.getCorrectedLatencyHistogram());
+        this.warmupLatencies = metrics.getWarmupLatencyHistogram() == null
+                ? Histograms.create(metrics.getHistogramPrecision())
+                : Histograms.decode(metrics.getWarmupLatencyHistogram());
+        this.pacer = metrics.getTargetRate() == null ? null : new Pacer(0, metrics.getTargetRate(), 0, 1);
+        if (metrics.getPhases() != null) {
+            this.phaseLatencies = new EnumMap<>(RequestPhase.class);
+            for (Map.Entry<RequestPhase, PhaseStats> phase : metrics.getPhases().entrySet()) {
+                phaseLatencies.put(phase.getKey(), Histograms.decodePacked(phase.getValue().getHistogram()));
+            }
+        } else {
+            this.phaseLatencies = null;
+        }
+        if (metrics.getRequests() != null) {
+            this.requestLatencies = new LinkedHashMap<>();
+            this.requestFailures = new HashMap<>();
+            for (Map.Entry<String, BreakdownStats> request : metrics.getRequests().entrySet()) {
+                requestLatencies.put(request.getKey(), Histograms.decodePacked(request.getValue().getHistogram()));
+                requestFailures.put(request.getKey(), request.getValue().getFailures());
+            }
+            this.outcomeLatencies = new HashMap<>();
+            for (Map.Entry<String, BreakdownStats> outcome : metrics.getOutcomes().entrySet()) {
+                outcomeLatencies.put(outcome.getKey(), Histograms.decodePacked(outcome.getValue().getHistogram()));
+            }
+        } else {
+            this.requestLatencies = null;
+            this.requestFailures = null;
+            this.outcomeLatencies = null;
+        }
+        if (metrics.getScenario() != null) {
+            this.scenario = new Scenario(metrics.getScenario().getTarget(), metrics.getScenario().getStages());
+            this.stageLatencies = new LinkedHashMap<>();
+            this.stageFailures = new HashMap<>();
+            for (Map.Entry<String, StageStats> stage : metrics.getStages().entrySet()) {
+                stageLatencies.put(stage.getKey(), Histograms.decodePacked(stage.getValue().getHistogram()));
+                stageFailures.put(stage.getKey(), stage.getValue().getFailures());
+            }
+        } else {
+            this.scenario = null;
+            this.stageLatencies = null;
+            this.stageFailures = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        throw new UnsupportedOperationException("Remote workers run in their own process");
+    }
+
+    @Override
+    public Histogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public Histogram getCorrectedLatencies() {
+        return correctedLatencies;
+    }
+
+    @Override
+    public Histogram getWarmupLatencies() {
+        return warmupLatencies;
+    }
+
+    @Override
+    public Map<RequestPhase, Histogram> getPhaseLatencies() {
+        return phaseLatencies;
+    }
+
+    @Override
+    public Map<String, Histogram> getRequestLatencies() {
+        return requestLatencies;
+    }
+
+    @Override
+    public Map<String, Long> getRequestFailures() {
+        return requestFailures;
+    }
+
+    @Override
+    public Map<String, Histogram> getOutcomeLatencies() {
+        return outcomeLatencies;
+    }
+
+    @Override
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    @Override
+    public Map<String, Histogram> getStageLatencies() {
+        return stageLatencies;
+    }
+
+    @Override
+    public Map<String, Long> getStageFailures() {
+        return stageFailures;
+    }
+
+    /**
+     * @return null, worker processes report their intervals themselves.
+     */
+    @Override
+    public IntervalRecorder getIntervalRecorder() {
+        return null;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return metrics.getTotalRequestCount();
+    }
+
+    @Override
+    public long getWarmupRequestCount() {
+        return metrics.getWarmupRequestCount();
+    }
+
+    @Override
+    public long getStartTime() {
+        return 0;
+    }
+
+    @Override
+    public long getMeasurementStartTime() {
+        return 0;
+    }
+
+    @Override
+    public long getEndTime() {
+        return TimeUnit.MILLISECONDS.toNanos(metrics.getTotalTestTime());
+    }
+
+    @Override
+    public long getFailedRequest() {
+        return metrics.getTotalFailedRequests();
+    }
+
+    @Override
+    public long getRequestDelay() {
+        return metrics.getRequestDelay();
+    }
+
+    @Override
+    public Pacer getPacer() {
+        return pacer;
+    }
+
+    @Override
+    public int getConcurrency() {
+        return (int) metrics.getConcurrency();
+    }
+
+    @Override
+    public int getThreadCount() {
+        return (int) metrics.getThreadCount();
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.distributed;
+
+import com.google.gson.Gson;
+import com.yahoo.http.performance.Metrics;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The side of a worker process talking to the {@link Coordinator}: it receives its share of the load, waits for the
+ * common start time and sends back its metrics.
+ */
+public class WorkerProcess {
+    /**
+     * Worker processes may be started before the coordinator, so they keep trying to connect for a while.
+     */
+    private static final long CONNECT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final long CONNECT_RETRY_MILLIS = 500;
+
+    private final Coordinator.Connection connection;
+    private final Assignment assignment;
+    private final Gson gson = new Gson();
+
+    private WorkerProcess(Coordinator.Connection connection) throws IOException {
+        this.connection = connection;
+        this.assignment = gson.fromJson(connection.receive(), Assignment.class);
+    }
+
+    /**
+     * Connects to the coordinator and waits for the assignment of this process.
+     *
+     * @param coordinator host:port of the coordinator.
+     */
+    public static WorkerProcess join(String coordinator) throws IOException, InterruptedException {
+        int colon = coordinator.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Coordinator must be given as host:port: " + coordinator);
+        }
+        String host = coordinator.substring(0, colon);
+        int port = Integer.parseInt(coordinator.substring(colon + 1));
+
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                return new WorkerProcess(new Coordinator.Connection(new Socket(host, port)));
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            }
+        }
+    }
+
+    public String[] getArgs() {
+        return assignment.args;
+    }
+
+    public int getIndex() {
+        return assignment.index;
+    }
+
+    public int getCount() {
+        return assignment.count;
+    }
+
+    /**
+     * Tells the coordinator this process is ready and waits for the common start time.
+     *
+     * @return the {@link System#currentTimeMillis()} at which all processes start sending.
+     */
+    public long awaitStart() throws IOException {
+        connection.send(Coordinator.READY);
+        return Long.parseLong(connection.receive());
+    }
+
+    public void sendResult(Metrics metrics) throws IOException {
+        try {
+            connection.send(gson.toJson(metrics));
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.replay;
+
+import com.yahoo.http.performance.Histograms;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * How closely a {@link TraceReplay} kept to the trace's schedule: the drift of each request's actual send time from
+ * its scheduled time, after the warmup. Times are in nanoseconds.
+ */
+@Getter
+public class ReplayStats {
+    /**
+     * Drift above which a request counts as late.
+     */
+    public static final long LATE_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Number of requests sent after the warmup.
+     */
+    private final long requests;
+    private final double speedUp;
+    /**
+     * Scheduled time of the last request sent, from the start of the replay.
+     */
+    private final long replayedDuration;
+    private final long lateRequests;
+    private final double avgDrift;
+    private final long p50Drift;
+    private final long p99Drift;
+    private final long p999Drift;
+    private final long maxDrift;
+    /**
+     * Why the replay stopped before the end of the trace, or null.
+     */
+    private final String error;
+    /**
+     * The drift histogram in compressed base64 HdrHistogram form, see {@link Histograms#decode(String)}.
+     */
+    private final String driftHistogram;
+
+    public ReplayStats(Histogram drift, double speedUp, long replayedDuration, String error) {
+        this.requests = drift.getTotalCount();
+        this.speedUp = speedUp;
+        this.replayedDuration = replayedDuration;
+        this.lateRequests = drift.getTotalCount() - drift.getCountBetweenValues(0, LATE_THRESHOLD);
+        this.avgDrift = drift.getMean();
+        this.p50Drift = drift.getValueAtPercentile(50);
+        this.p99Drift = drift.getValueAtPercentile(99);
+        this.p999Drift = drift.getValueAtPercentile(99.9);
+        this.maxDrift = drift.getMaxValue();
+        this.error = error;
+        this.driftHistogram = Histograms.encode(drift);
+    }
+
+    /**
+     * Merges the replays of the processes that shared a trace.
+     */
+    public static ReplayStats merge(List<ReplayStats> replays) throws DataFormatException {
+        Histogram drift = Histograms.create(Histograms.DEFAULT_PRECISION);
+        long replayedDuration = 0;
+        String error = null;
+        for (ReplayStats replay : replays) {
+            drift.add(Histograms.decode(replay.getDriftHistogram()));
+            replayedDuration = Math.max(replayedDuration, replay.getReplayedDuration());
+            if (error == null) {
+                error = replay.getError();
+            }
+        }
+        return new ReplayStats(drift, replays.get(0).getSpeedUp(), replayedDuration, error);
+    }
+}
@@ -0,0 +1,247 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.replay;
+
+import com.yahoo.http.performance.Histograms;
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.request.Trace;
+
+import org.HdrHistogram.Recorder;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Replays a {@link Trace} at its recorded pace, optionally sped up, across the workers of a run.
+ *
+ * A reader thread streams the trace into a bounded queue, so only the next few thousand requests are ever held in
+ * memory. Each worker takes the next request from the queue whenever it is free, and sends it at the start time plus
+ * its offset in the trace divided by the speed-up. A request the workers could not send on time is sent as soon as
+ * one is free, and its drift from the schedule is recorded, so a replay that cannot keep up shows in the report
+ * rather than silently stretching the trace. Latencies measured from the scheduled time are reported as the
+ * corrected latencies, as with a fixed rate.
+ *
+ * When several processes share the load, each one replays every {@code processCount}th line of the trace.
+ *
+ * The results are broken down by request name. The first {@link #MAX_NAMES} names seen get their own entry, the
+ * requests with any other name are reported together.
+ */
+public class TraceReplay implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(TraceReplay.class);
+    public static final int MAX_NAMES = 1000;
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final Entry END = new Entry(0, null, 0);
+
+    private final Trace trace;
+    private final double speedUp;
+    private final int processIndex;
+    private final int processCount;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread reader;
+    /**
+     * Only used by the reader thread.
+     */
+    private final Map<String, Integer> nameIndexes = new HashMap<>();
+    private final AtomicReferenceArray<Request> names = new AtomicReferenceArray<>(MAX_NAMES);
+    private final Recorder drift = new Recorder(1, Histograms.HIGHEST_TRACKABLE_VALUE, Histograms.DEFAULT_PRECISION);
+    private final AtomicLong lastOffset = new AtomicLong();
+    private long startTime;
+    private volatile String error;
+
+    /**
+     * @param speedUp      how many times faster than recorded to replay the trace.
+     * @param processIndex index of this process among the processes sharing the load, 0 for a local run.
+     * @param processCount number of processes sharing the load, 1 for a local run.
+     */
+    public TraceReplay(Trace trace, double speedUp, int processIndex, int processCount) {
+        if (!(speedUp > 0) || Double.isInfinite(speedUp)) {
+            throw new IllegalArgumentException("Replay speed must be positive: " + speedUp);
+        }
+        this.trace = trace;
+        this.speedUp = speedUp;
+        this.processIndex = processIndex;
+        this.processCount = processCount;
+        this.reader = new Thread(this::read, "trace-reader");
+        reader.setDaemon(true);
+        names.set(MAX_NAMES - 1, new Placeholder("other requests"));
+    }
+
+    /**
+     * Starts reading the trace ahead of the run, so the queue is full by the time the first request is due.
+     */
+    public void start() {
+        reader.start();
+    }
+
+    /**
+     * Sets the {@link System#nanoTime()} at which the first request of the trace is to be sent.
+     */
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    private void read() {
+        try {
+            long line = 0;
+            Trace.TimedRequest timed;
+            while ((timed = trace.next()) != null) {
+                if (line++ % processCount != processIndex) {
+                    continue;
+                }
+                queue.put(new Entry(timed.getOffset(), timed.getRequest(), nameIndex(timed.getRequest())));
+            }
+        } catch (InterruptedException e) {
+            // The run ended before the trace did.
+            return;
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Failed to read the trace", e);
+            error = e.getMessage();
+        }
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // Nobody is waiting for the end any more.
+        }
+    }
+
+    private int nameIndex(Request request) {
+        Integer index = nameIndexes.get(request.getName());
+        if (index == null) {
+            index = nameIndexes.size() < MAX_NAMES - 1 ? nameIndexes.size() : MAX_NAMES - 1;
+            if (index < MAX_NAMES - 1) {
+                nameIndexes.put(request.getName(), index);
+                names.set(index, request);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Takes the next request to send, waiting for the reader if needed.
+     *
+     * @return the next request, or null at the end of the trace or if the worker was interrupted.
+     */
+    public Entry next() {
+        Entry entry;
+        try {
+            entry = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (entry == END) {
+            // Leave the end for the other workers.
+            queue.offer(END);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the request is scheduled.
+     */
+    public long intendedStartTime(Entry entry) {
+        return startTime + (long) (entry.offset / speedUp);
+    }
+
+    /**
+     * Records how late a request was sent compared to its scheduled time. Called by every worker. As with latencies,
+     * the drift of warmup requests is left out.
+     */
+    public void recordDrift(Entry entry, long drift, boolean warmup) {
+        if (!warmup) {
+            this.drift.recordValue(Math.max(0, Math.min(drift, Histograms.HIGHEST_TRACKABLE_VALUE)));
+        }
+        lastOffset.accumulateAndGet(entry.offset, Math::max);
+    }
+
+    /**
+     * @return the requests the results are broken down by, indexed by {@link Entry#getNameIndex()}. Requests are
+     * added as the trace is read; the slots not used yet hold placeholders.
+     */
+    public List<Request> getRequests() {
+        return new AbstractList<Request>() {
+            @Override
+            public Request get(int index) {
+                Request request = names.get(index);
+                return request != null ? request : new Placeholder("unused");
+            }
+
+            @Override
+            public int size() {
+                return MAX_NAMES;
+            }
+        };
+    }
+
+    /**
+     * @return the drift of the requests sent, and how much of the trace was replayed. Only called once.
+     */
+    public ReplayStats getStats() {
+        return new ReplayStats(drift.getIntervalHistogram(), speedUp, (long) (lastOffset.get() / speedUp), error);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // The reader may have stopped before putting the end, and any worker still waiting for a request gets it.
+        queue.clear();
+        queue.offer(END);
+        trace.close();
+    }
+
+    /**
+     * One request of the trace with its schedule.
+     */
+    public static class Entry {
+        private final long offset;
+        private final Request request;
+        private final int nameIndex;
+
+        Entry(long offset, Request request, int nameIndex) {
+            this.offset = offset;
+            this.request = request;
+            this.nameIndex = nameIndex;
+        }
+
+        public Request getRequest() {
+            return request;
+        }
+
+        public int getNameIndex() {
+            return nameIndex;
+        }
+    }
+
+    /**
+     * Stands for the requests of a name slot that has no request of its own.
+     */
+    private static class Placeholder extends Request {
+        Placeholder(String name) {
+            super(null, null);
+            setName(name);
+        }
+
+        @Override
+        public HttpUriRequest createHttpRequest() {
+            throw new UnsupportedOperationException("Placeholder for " + getName());
+        }
+    }
+}
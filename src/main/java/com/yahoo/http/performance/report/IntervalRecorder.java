@@ -0,0 +1,65 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.report;
+
+import com.yahoo.http.performance.Histograms;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per worker latencies and failures for the current reporting interval.
+ *
+ * Recording is wait-free and only done by the worker's own thread; a reporter thread swaps out the interval
+ * histogram without blocking the worker, see {@link SingleWriterRecorder}.
+ */
+public class IntervalRecorder {
+    private final SingleWriterRecorder latencies;
+    private final AtomicLong failures = new AtomicLong();
+
+    private Histogram recycled;
+
+    public IntervalRecorder(int histogramPrecision) {
+        this(histogramPrecision, false);
+    }
+
+    /**
+     * @param packed whether to record into packed histograms, see {@link Histograms#createPacked(int)}, for workers
+     *               running by the thousand.
+     */
+    public IntervalRecorder(int histogramPrecision, boolean packed) {
+        this.latencies = packed
+                ? new SingleWriterRecorder(histogramPrecision, true)
+                : new SingleWriterRecorder(1, Histograms.HIGHEST_TRACKABLE_VALUE, histogramPrecision);
+    }
+
+    /**
+     * Only called by the worker's own thread.
+     */
+    public void recordLatency(long latency) {
+        latencies.recordValue(Math.max(0, Math.min(latency, Histograms.HIGHEST_TRACKABLE_VALUE)));
+    }
+
+    public void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    /**
+     * Returns the latencies recorded since the previous call and starts a new interval. Only called by the reporter
+     * thread; the returned histogram is reused by the next call.
+     */
+    public Histogram getIntervalHistogram() {
+        recycled = latencies.getIntervalHistogram(recycled);
+        return recycled;
+    }
+
+    /**
+     * Returns the failures recorded since the previous call and starts a new interval.
+     */
+    public long getIntervalFailures() {
+        return failures.getAndSet(0);
+    }
+}
@@ -0,0 +1,128 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.report;
+
+import com.yahoo.http.performance.Histograms;
+import com.yahoo.http.performance.Worker;
+import com.yahoo.http.performance.schedule.RunSchedule;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Periodically collects the interval recorders of all workers while they run, prints one line per interval and keeps
+ * the intervals as a time series for the final report. It also feeds the {@link LiveMetrics}, if any, so they never
+ * read the recorders themselves.
+ */
+public class IntervalReporter implements Runnable {
+    private final List<? extends Worker> workers;
+    private final RunSchedule schedule;
+    private final long interval;
+    private final PrintStream out;
+    private final LiveMetrics liveMetrics;
+    private final Histogram intervalHistogram;
+    private final List<IntervalStats> intervals = new ArrayList<>();
+
+    private volatile boolean stopped = false;
+    private Thread thread;
+    private long startTime;
+    private long lastReportTime;
+
+    /**
+     * @param interval    reporting interval in nanoseconds.
+     * @param out         where to print the interval lines, or null to not print them.
+     * @param liveMetrics metrics to update every interval, or null.
+     */
+    public IntervalReporter(List<? extends Worker> workers, RunSchedule schedule, long interval, int histogramPrecision,
+                            PrintStream out, LiveMetrics liveMetrics) {
+        this.workers = workers;
+        this.schedule = schedule;
+        this.interval = interval;
+        this.out = out;
+        this.liveMetrics = liveMetrics;
+        this.intervalHistogram = Histograms.create(histogramPrecision);
+    }
+
+    public void start(long startTime) {
+        this.startTime = startTime;
+        this.lastReportTime = startTime;
+        thread = new Thread(this, "interval-reporter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        long next = startTime + interval;
+        while (!stopped) {
+            long remaining = next - System.nanoTime();
+            if (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+                continue;
+            }
+            report(System.nanoTime());
+            next += interval;
+        }
+    }
+
+    /**
+     * Stops the reporter and reports the last, possibly partial, interval.
+     */
+    public void stop() throws InterruptedException {
+        stopped = true;
+        LockSupport.unpark(thread);
+        thread.join();
+        report(System.nanoTime());
+    }
+
+    public List<IntervalStats> getIntervals() {
+        return intervals;
+    }
+
+    private void report(long now) {
+        intervalHistogram.reset();
+        long failures = 0;
+        int inFlight = 0;
+        for (Worker worker : workers) {
+            intervalHistogram.add(worker.getIntervalRecorder().getIntervalHistogram());
+            failures += worker.getIntervalRecorder().getIntervalFailures();
+            inFlight += worker.getInFlight();
+        }
+
+        long requests = intervalHistogram.getTotalCount();
+        double seconds = (now - lastReportTime) / (double) TimeUnit.SECONDS.toNanos(1);
+        IntervalStats stats = new IntervalStats(
+                System.currentTimeMillis(),
+                TimeUnit.NANOSECONDS.toMillis(now - startTime),
+                schedule.isWarmup(lastReportTime),
+                requests,
+                failures,
+                seconds > 0 ? (long) (requests / seconds) : 0,
+                intervalHistogram.getValueAtPercentile(50),
+                intervalHistogram.getValueAtPercentile(99),
+                intervalHistogram.getMaxValue());
+        intervals.add(stats);
+        lastReportTime = now;
+        if (liveMetrics != null) {
+            liveMetrics.update(intervalHistogram, failures, inFlight, seconds, stats.isWarmup());
+        }
+
+        if (out == null) {
+            return;
+        }
+        out.println(String.format("[%7.1fs]%s rps=%d failures=%d p50=%.3fms p99=%.3fms max=%.3fms",
+                stats.getElapsed() / 1000.0,
+                stats.isWarmup() ? " warmup" : "",
+                stats.getRequestsPerSecond(),
+                stats.getFailures(),
+                stats.getP50Latency() / 1e6,
+                stats.getP99Latency() / 1e6,
+                stats.getMaxLatency() / 1e6));
+    }
+}
@@ -0,0 +1,31 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Throughput and latency of all workers over one reporting interval. Latencies are in nanoseconds.
+ */
+@Getter
+@AllArgsConstructor
+public class IntervalStats {
+    /**
+     * Wall clock time at the end of the interval, in milliseconds since the epoch, to line intervals up with server
+     * side logs.
+     */
+    private long timestamp;
+    /**
+     * Time since the start of the run at the end of the interval, in milliseconds.
+     */
+    private long elapsed;
+    private boolean warmup;
+    private long requests;
+    private long failures;
+    private long requestsPerSecond;
+    private long p50Latency;
+    private long p99Latency;
+    private long maxLatency;
+}
@@ -0,0 +1,198 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.report;
+
+import com.yahoo.http.performance.Histograms;
+
+import lombok.AllArgsConstructor;
+import org.HdrHistogram.Histogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The running totals, throughput and rolling latency percentiles of a run, for dashboards to follow a long run the
+ * way they follow the server: over JMX and in Prometheus text format, see {@link MetricsEndpoint}.
+ *
+ * Only the {@link IntervalReporter} thread updates them, once per interval, from the interval histograms it already
+ * swaps out of the workers' recorders. Each update publishes an immutable snapshot, so readers never touch the
+ * workers' recorders, never block the reporter, and always see the values of one and the same interval.
+ */
+public class LiveMetrics implements LiveMetricsMXBean {
+    public static final String OBJECT_NAME = "com.yahoo.http.performance:type=LiveMetrics";
+    /**
+     * The latency percentiles are computed over the intervals of this last stretch of the run.
+     */
+    public static final long ROLLING_WINDOW = TimeUnit.SECONDS.toNanos(10);
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Histogram[] window;
+    private final Histogram rolling;
+    private int next = 0;
+    private long requests = 0;
+    private long failures = 0;
+    private double latencySum = 0;
+
+    private volatile Snapshot snapshot = new Snapshot(0, 0, 0, 0, false, 0, 0, 0, 0, 0, 0);
+
+    /**
+     * @param interval the reporting interval in nanoseconds, see {@link IntervalReporter}.
+     */
+    public LiveMetrics(long interval, int histogramPrecision) {
+        this.window = new Histogram[(int) Math.max(1, (ROLLING_WINDOW + interval - 1) / interval)];
+        for (int i = 0; i < window.length; i++) {
+            window[i] = Histograms.create(histogramPrecision);
+        }
+        this.rolling = Histograms.create(histogramPrecision);
+    }
+
+    /**
+     * Adds one reporting interval. Only called by the reporter thread.
+     *
+     * @param latencies the latencies of the interval, which the caller may reuse once this returns.
+     * @param seconds   length of the interval.
+     */
+    void update(Histogram latencies, long intervalFailures, int inFlight, double seconds, boolean warmup) {
+        window[next].reset();
+        window[next].add(latencies);
+        next = (next + 1) % window.length;
+        rolling.reset();
+        for (Histogram h : window) {
+            rolling.add(h);
+        }
+
+        long count = latencies.getTotalCount();
+        requests += count;
+        failures += intervalFailures;
+        latencySum += latencies.getMean() * count;
+        snapshot = new Snapshot(requests, failures, inFlight, seconds > 0 ? (long) (count / seconds) : 0, warmup,
+                rolling.getValueAtPercentile(50), rolling.getValueAtPercentile(90), rolling.getValueAtPercentile(99),
+                rolling.getValueAtPercentile(99.9), rolling.getMaxValue(), latencySum);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, where jconsole or a JMX exporter can read them.
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    public void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    /**
+     * @return the metrics in the Prometheus text exposition format. Latencies are in seconds, as Prometheus expects.
+     */
+    public String toPrometheus() {
+        Snapshot s = snapshot;
+        StringBuilder sb = new StringBuilder();
+        metric(sb, "http_performance_requests_total", "counter",
+                "Requests completed since the start of the run, including warmup.", s.requests);
+        metric(sb, "http_performance_failures_total", "counter",
+                "Requests failed since the start of the run, including warmup.", s.failures);
+        metric(sb, "http_performance_in_flight_requests", "gauge", "Requests sent and not completed yet.", s.inFlight);
+        metric(sb, "http_performance_requests_per_second", "gauge",
+                "Requests completed per second over the last reporting interval.", s.requestsPerSecond);
+        metric(sb, "http_performance_warmup", "gauge", "1 while the run is warming up.", s.warmup ? 1 : 0);
+
+        String latency = "http_performance_latency_seconds";
+        sb.append("# HELP " + latency + " Request latency, with quantiles over the last "
+                + TimeUnit.NANOSECONDS.toSeconds(ROLLING_WINDOW) + "s.\n");
+        sb.append("# TYPE " + latency + " summary\n");
+        quantile(sb, latency, "0.5", s.p50);
+        quantile(sb, latency, "0.9", s.p90);
+        quantile(sb, latency, "0.99", s.p99);
+        quantile(sb, latency, "0.999", s.p999);
+        quantile(sb, latency, "1", s.max);
+        sb.append(latency + "_sum " + s.latencySum / NANOS_PER_SECOND + "\n");
+        sb.append(latency + "_count " + s.requests + "\n");
+        return sb.toString();
+    }
+
+    private static void metric(StringBuilder sb, String name, String type, String help, long value) {
+        sb.append("# HELP " + name + " " + help + "\n");
+        sb.append("# TYPE " + name + " " + type + "\n");
+        sb.append(name + " " + value + "\n");
+    }
+
+    private static void quantile(StringBuilder sb, String name, String quantile, long nanos) {
+        sb.append(name + "{quantile=\"" + quantile + "\"} " + nanos / NANOS_PER_SECOND + "\n");
+    }
+
+    @Override
+    public long getRequests() {
+        return snapshot.requests;
+    }
+
+    @Override
+    public long getFailures() {
+        return snapshot.failures;
+    }
+
+    @Override
+    public int getInFlight() {
+        return snapshot.inFlight;
+    }
+
+    @Override
+    public long getRequestsPerSecond() {
+        return snapshot.requestsPerSecond;
+    }
+
+    @Override
+    public boolean isWarmup() {
+        return snapshot.warmup;
+    }
+
+    @Override
+    public long getP50Latency() {
+        return snapshot.p50;
+    }
+
+    @Override
+    public long getP90Latency() {
+        return snapshot.p90;
+    }
+
+    @Override
+    public long getP99Latency() {
+        return snapshot.p99;
+    }
+
+    @Override
+    public long getP999Latency() {
+        return snapshot.p999;
+    }
+
+    @Override
+    public long getMaxLatency() {
+        return snapshot.max;
+    }
+
+    /**
+     * The values of the last interval, published at once.
+     */
+    @AllArgsConstructor
+    private static class Snapshot {
+        private final long requests;
+        private final long failures;
+        private final int inFlight;
+        private final long requestsPerSecond;
+        private final boolean warmup;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+        private final double latencySum;
+    }
+}
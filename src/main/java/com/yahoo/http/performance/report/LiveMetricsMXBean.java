@@ -0,0 +1,36 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.report;
+
+/**
+ * The running counters and latency gauges of a run, as seen over JMX under {@link LiveMetrics#OBJECT_NAME}.
+ * Latencies are in nanoseconds, over the last {@link LiveMetrics#ROLLING_WINDOW} of the run.
+ */
+public interface LiveMetricsMXBean {
+    /**
+     * @return number of requests completed since the start of the run, including warmup.
+     */
+    long getRequests();
+
+    long getFailures();
+
+    int getInFlight();
+
+    /**
+     * @return requests per second over the last reporting interval.
+     */
+    long getRequestsPerSecond();
+
+    boolean isWarmup();
+
+    long getP50Latency();
+
+    long getP90Latency();
+
+    long getP99Latency();
+
+    long getP999Latency();
+
+    long getMaxLatency();
+}
@@ -0,0 +1,116 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.request;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An entity sending the content of a buffer, which may be a memory-mapped file.
+ *
+ * The non-blocking client hands the buffer straight to the connection's encoder. The blocking client writes heap
+ * buffers directly and copies other buffers to the socket stream in small chunks, never the whole body at once,
+ * through a chunk buffer kept by each sending thread.
+ */
+public class ByteBufferEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+    private static final int CHUNK_SIZE = 8192;
+    private static final ThreadLocal<byte[]> CHUNK = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+    private final ByteBuffer buffer;
+    private ByteBuffer produced;
+
+    public ByteBufferEntity(ByteBuffer buffer, ContentType contentType) {
+        this.buffer = buffer;
+        if (contentType != null) {
+            setContentType(contentType.toString());
+        }
+    }
+
+    /**
+     * @return a view of the content, which the caller may consume.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.duplicate();
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public InputStream getContent() {
+        ByteBuffer content = buffer.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return content.hasRemaining() ? content.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!content.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(len, content.remaining());
+                content.get(b, off, n);
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return content.remaining();
+            }
+        };
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        ByteBuffer content = buffer.duplicate();
+        if (content.hasArray()) {
+            outstream.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        } else {
+            byte[] chunk = CHUNK.get();
+            while (content.hasRemaining()) {
+                int n = Math.min(chunk.length, content.remaining());
+                content.get(chunk, 0, n);
+                outstream.write(chunk, 0, n);
+            }
+        }
+        outstream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        if (produced == null) {
+            produced = buffer.duplicate();
+        }
+        encoder.write(produced);
+        if (!produced.hasRemaining()) {
+            encoder.complete();
+        }
+    }
+
+    @Override
+    public void close() {
+        produced = null;
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.request;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The response body a request is expected to get, either as raw bytes or as the {@link #DIGEST_ALGORITHM} digest of
+ * those bytes.
+ */
+public class ExpectedResponse {
+    public static final String EXTENSION = ".expected";
+    public static final String DIGEST_EXTENSION = ".sha256";
+    public static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final Payload body;
+    private final byte[] digest;
+
+    private ExpectedResponse(Payload body, byte[] digest) {
+        this.body = body;
+        this.digest = digest;
+    }
+
+    public static ExpectedResponse of(Payload body) {
+        return new ExpectedResponse(body, null);
+    }
+
+    public static ExpectedResponse ofDigest(byte[] digest) {
+        return new ExpectedResponse(null, digest);
+    }
+
+    /**
+     * Reads a file ending with {@link #DIGEST_EXTENSION} as a hex encoded digest. Any other file holds the expected
+     * bytes and is mapped the first time it is needed.
+     */
+    public static ExpectedResponse fromFile(Path file) throws IOException {
+        if (!file.getFileName().toString().endsWith(DIGEST_EXTENSION)) {
+            return of(Payload.map(file));
+        }
+        String hex = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+        if (hex.length() % 2 != 0) {
+            throw new IOException("Invalid digest in " + file);
+        }
+        byte[] digest = new byte[hex.length() / 2];
+        for (int i = 0; i < digest.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IOException("Invalid digest in " + file);
+            }
+            digest[i] = (byte) (high << 4 | low);
+        }
+        return ofDigest(digest);
+    }
+
+    /**
+     * @return whether the file name is the one of an expected response rather than a payload.
+     */
+    public static boolean isExpectedFile(String name) {
+        return name.endsWith(EXTENSION) || name.endsWith(EXTENSION + DIGEST_EXTENSION);
+    }
+
+    /**
+     * @return the expected bytes, or null if only their digest is known.
+     */
+    public Payload getBody() {
+        return body;
+    }
+
+    /**
+     * @return the expected digest, or null if the bytes are known.
+     */
+    public byte[] getDigest() {
+        return digest;
+    }
+}
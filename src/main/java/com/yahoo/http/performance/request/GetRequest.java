@@ -3,11 +3,8 @@
 
 package com.yahoo.http.performance.request;
 
-import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-
-import java.io.IOException;
+import org.apache.http.client.methods.HttpUriRequest;
 
 /**
  * A GET request.
@@ -17,8 +14,8 @@ public class GetRequest extends Request {
         super(RequestType.GET, url);
     }
 
-    public CloseableHttpResponse makeRequest(CloseableHttpClient httpClient) throws IOException {
-        HttpGet get = new HttpGet(url);
-        return httpClient.execute(get);
+    @Override
+    public HttpUriRequest createHttpRequest() {
+        return new HttpGet(url);
     }
 }
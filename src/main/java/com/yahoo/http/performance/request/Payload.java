@@ -0,0 +1,63 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.request;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The body of a request, kept as raw bytes so that it is sent as is, without any charset conversion or per-request
+ * copy of the whole body.
+ */
+public abstract class Payload {
+    /**
+     * @return a view of the payload positioned at its start, which the caller may consume but not modify.
+     */
+    public abstract ByteBuffer getBuffer();
+
+    public static Payload of(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        return new Payload() {
+            @Override
+            public ByteBuffer getBuffer() {
+                return buffer.duplicate();
+            }
+        };
+    }
+
+    /**
+     * @return the content of the file, memory-mapped the first time it is needed rather than read up front.
+     */
+    public static Payload map(Path file) {
+        return new MappedFilePayload(file);
+    }
+
+    private static class MappedFilePayload extends Payload {
+        private final Path file;
+        private volatile ByteBuffer buffer;
+
+        MappedFilePayload(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public ByteBuffer getBuffer() {
+            ByteBuffer mapped = buffer;
+            if (mapped == null) {
+                // Racing threads may both map the file; either mapping is as good as the other.
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to map " + file, e);
+                }
+                buffer = mapped;
+            }
+            return mapped.duplicate();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.request;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A corpus of payloads packed into a single indexed file, for corpora with too many files to map each one on its own.
+ *
+ * The file holds the payloads back to back, followed by an index of {@code (long offset, int length)} entries and a
+ * trailer {@code (long indexOffset, int count, int magic)}. Opening a pack only reads the trailer. The payloads are
+ * served from read-only mappings of {@link #WINDOW_SIZE} windows of the file, each mapped the first time one of its
+ * payloads is sent, so a pack larger than memory is paged in by the OS as needed.
+ *
+ * Create a pack from a dataPath directory with:
+ * java -cp httpperformance-1.0.jar com.yahoo.http.performance.request.PayloadPack [dataPath] [packFile]
+ */
+public class PayloadPack {
+    public static final String EXTENSION = ".pack";
+    private static final int MAGIC = 0x48505043;
+    private static final int TRAILER_SIZE = 16;
+    private static final int ENTRY_SIZE = 12;
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final ByteBuffer index;
+    private final int count;
+    private final AtomicReferenceArray<ByteBuffer> windows;
+
+    private PayloadPack(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        if (size < TRAILER_SIZE || channel.read(trailer, size - TRAILER_SIZE) != TRAILER_SIZE
+                || trailer.getInt(12) != MAGIC) {
+            throw new IOException("Not a payload pack");
+        }
+        long indexOffset = trailer.getLong(0);
+        this.count = trailer.getInt(8);
+        this.index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) count * ENTRY_SIZE);
+        this.windows = new AtomicReferenceArray<>((int) ((indexOffset + WINDOW_SIZE - 1) / WINDOW_SIZE));
+    }
+
+    public static PayloadPack open(Path file) throws IOException {
+        return new PayloadPack(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the payload number {@code i}. Nothing is read until the payload is first sent.
+     */
+    public Payload get(int i) {
+        return new Payload() {
+            private volatile ByteBuffer buffer;
+
+            @Override
+            public ByteBuffer getBuffer() {
+                ByteBuffer mapped = buffer;
+                if (mapped == null) {
+                    mapped = slice(index.getLong(i * ENTRY_SIZE), index.getInt(i * ENTRY_SIZE + 8));
+                    buffer = mapped;
+                }
+                return mapped.duplicate();
+            }
+        };
+    }
+
+    private ByteBuffer slice(long offset, int length) {
+        if (length == 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        try {
+            int w = (int) (offset / WINDOW_SIZE);
+            if (offset + length > (w + 1) * WINDOW_SIZE) {
+                // The rare payload straddling two windows gets a mapping of its own.
+                return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).asReadOnlyBuffer();
+            }
+            ByteBuffer window = windows.get(w);
+            if (window == null) {
+                long start = w * WINDOW_SIZE;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, channel.size() - start))
+                        .asReadOnlyBuffer();
+                windows.compareAndSet(w, null, window);
+                window = windows.get(w);
+            }
+            ByteBuffer view = window.duplicate();
+            view.position((int) (offset - w * WINDOW_SIZE));
+            view.limit(view.position() + length);
+            return view.slice();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map payload at " + offset, e);
+        }
+    }
+
+    /**
+     * Packs every file of the directory, except expected response files, in file name order. The files are copied
+     * by the OS without going through the heap.
+     *
+     * @return the number of payloads packed.
+     */
+    public static int write(File dataPath, Path file) throws IOException {
+        File[] files = dataPath.listFiles((dir, name) -> !ExpectedResponse.isExpectedFile(name));
+        if (files == null) {
+            throw new IOException("Not a directory: " + dataPath);
+        }
+        Arrays.sort(files);
+
+        List<long[]> entries = new ArrayList<>(files.length);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = 0;
+            for (File f : files) {
+                try (FileChannel in = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+                    long length = in.size();
+                    if (length > Integer.MAX_VALUE) {
+                        throw new IOException("Payload too large: " + f);
+                    }
+                    for (long copied = 0; copied < length; ) {
+                        copied += in.transferTo(copied, length - copied, out);
+                    }
+                    entries.add(new long[] {offset, length});
+                    offset += length;
+                }
+            }
+
+            ByteBuffer index = ByteBuffer.allocate(entries.size() * ENTRY_SIZE + TRAILER_SIZE);
+            for (long[] entry : entries) {
+                index.putLong(entry[0]).putInt((int) entry[1]);
+            }
+            index.putLong(offset).putInt(entries.size()).putInt(MAGIC);
+            index.flip();
+            while (index.hasRemaining()) {
+                out.write(index);
+            }
+        }
+        return entries.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: PayloadPack [dataPath] [packFile]");
+            System.exit(1);
+        }
+        int count = write(new File(args[0]), new File(args[1]).toPath());
+        System.out.println("Packed " + count + " payloads into " + args[1]);
+    }
+}
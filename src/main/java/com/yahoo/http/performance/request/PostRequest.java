@@ -3,27 +3,37 @@
 
 package com.yahoo.http.performance.request;
 
-import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
- * A POST request.
+ * A POST request. Its payload is sent as raw bytes, with the same content type as text posted in ISO-8859-1.
  */
 public class PostRequest extends Request {
-    String postData;
+    private static final ContentType CONTENT_TYPE = ContentType.create("text/plain", StandardCharsets.ISO_8859_1);
+    private final Payload payload;
+
     public PostRequest(String url, String postData) {
+        this(url, Payload.of(postData.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    public PostRequest(String url, Payload payload) {
         super(RequestType.POST, url);
-        this.postData = postData;
+        this.payload = payload;
+    }
+
+    public Payload getPayload() {
+        return payload;
     }
 
     @Override
-    public CloseableHttpResponse makeRequest(CloseableHttpClient httpClient) throws IOException {
+    public HttpUriRequest createHttpRequest() {
         HttpPost post = new HttpPost(url);
-        post.setEntity(new StringEntity(postData));
-        return httpClient.execute(post);
+        post.setEntity(new ByteBufferEntity(payload.getBuffer(), CONTENT_TYPE));
+        return post;
     }
 }
@@ -4,7 +4,9 @@
 package com.yahoo.http.performance.request;
 
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
 
 import java.io.IOException;
 
@@ -15,20 +17,57 @@ public abstract class Request {
     protected RequestType requestType;
     protected String url;
 
-    private String expectedResponseData;
+    private ExpectedResponse expectedResponse;
+    private String name;
+    private double weight = 1;
 
     public Request(RequestType type, String url) {
         this.requestType = type;
         this.url = url;
     }
 
-    public abstract CloseableHttpResponse makeRequest(CloseableHttpClient httpClient) throws IOException;
+    /**
+     * Builds a new http request. This is independent of the client used to send it, so the same request can be
+     * sent by both the blocking and the async engines.
+     */
+    public abstract HttpUriRequest createHttpRequest();
 
-    public String getExpectedResponseData() {
-        return expectedResponseData;
+    public CloseableHttpResponse makeRequest(CloseableHttpClient httpClient) throws IOException {
+        return httpClient.execute(createHttpRequest());
     }
 
-    public void setExpectedResponseData(String expectedResponseData) {
-        this.expectedResponseData = expectedResponseData;
+    public CloseableHttpResponse makeRequest(CloseableHttpClient httpClient, HttpContext context) throws IOException {
+        return httpClient.execute(createHttpRequest(), context);
+    }
+
+    /**
+     * @return the name the request's results are reported under, such as the file its payload was read from, or
+     * its url if it was not given a name.
+     */
+    public String getName() {
+        return name != null ? name : url;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return how often the request is sent relative to the others in the run, see {@link RequestMix}.
+     */
+    public double getWeight() {
+        return weight;
+    }
+
+    public void setWeight(double weight) {
+        this.weight = weight;
+    }
+
+    public ExpectedResponse getExpectedResponse() {
+        return expectedResponse;
+    }
+
+    public void setExpectedResponse(ExpectedResponse expectedResponse) {
+        this.expectedResponse = expectedResponse;
     }
 }
@@ -0,0 +1,93 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.request;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks which of the requests a worker sends next. Requests all of the same {@link Request#getWeight() weight} are
+ * sent in turn; otherwise each is drawn at random in proportion to its weight, from an alias table built once
+ * (Vose's method) so that every draw takes two random numbers and no lock, whatever the number of requests.
+ *
+ * A mix is not shared: each worker builds its own, and the random numbers come from {@link ThreadLocalRandom}.
+ */
+public class RequestMix {
+    private final int size;
+    private final double[] probability;
+    private final int[] alias;
+
+    public RequestMix(List<Request> requests) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("No requests to send");
+        }
+        this.size = requests.size();
+        double[] weights = new double[size];
+        double total = 0;
+        boolean uniform = true;
+        for (int i = 0; i < size; i++) {
+            weights[i] = requests.get(i).getWeight();
+            if (!(weights[i] >= 0) || Double.isInfinite(weights[i])) {
+                throw new IllegalArgumentException("Invalid weight " + weights[i] + " for " + requests.get(i).getName());
+            }
+            total += weights[i];
+            uniform &= weights[i] == weights[0];
+        }
+        if (!(total > 0)) {
+            throw new IllegalArgumentException("The requests' weights add up to nothing");
+        }
+        if (uniform) {
+            this.probability = null;
+            this.alias = null;
+            return;
+        }
+
+        this.probability = new double[size];
+        this.alias = new int[size];
+        // Scale the weights to an average of 1, then pair each column under 1 with one over 1 to fill it up.
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < size; i++) {
+            weights[i] = weights[i] * size / total;
+            (weights[i] < 1 ? small : large).push(i);
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            probability[less] = weights[less];
+            alias[less] = more;
+            weights[more] = weights[more] + weights[less] - 1;
+            (weights[more] < 1 ? small : large).push(more);
+        }
+        // What is left is 1 give or take rounding errors.
+        while (!large.isEmpty()) {
+            probability[large.pop()] = 1;
+        }
+        while (!small.isEmpty()) {
+            probability[small.pop()] = 1;
+        }
+    }
+
+    /**
+     * @param i number of requests the worker sent before this one.
+     * @return index of the request to send.
+     */
+    public int next(long i) {
+        if (probability == null) {
+            return (int) (i % size);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int column = random.nextInt(size);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    /**
+     * @return whether the requests are drawn by weight rather than sent in turn.
+     */
+    public boolean isWeighted() {
+        return probability != null;
+    }
+}
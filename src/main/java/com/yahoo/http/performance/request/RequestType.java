@@ -8,5 +8,16 @@ package com.yahoo.http.performance.request;
  */
 public enum RequestType {
     POST,
-    GET
+    GET,
+    PUT,
+    DELETE,
+    PATCH,
+    HEAD;
+
+    /**
+     * @return whether requests of this type carry a body.
+     */
+    public boolean hasBody() {
+        return this == POST || this == PUT || this == PATCH;
+    }
 }
@@ -0,0 +1,121 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.request;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a captured trace of requests to replay, eg. converted from an access log: one json object per line, with the
+ * fields of a {@link Workload} line plus the {@code time} the request was received at, in milliseconds, eg.
+ *
+ * <pre>
+ * {"time": 1500000000000.125, "method": "GET", "url": "/search?q=shoes"}
+ * {"time": 1500000000003.5, "method": "POST", "url": "/cart", "body": "{\"item\": 42}"}
+ * </pre>
+ *
+ * Times may be absolute or relative, only their offset from the first line matters. Requests without a name are
+ * reported under their method and path, without the query string, so that traces with many distinct urls still give
+ * a readable breakdown.
+ *
+ * The trace is read one line at a time, so it can be far larger than memory.
+ */
+public class Trace implements Closeable {
+    private static final Gson GSON = new Gson();
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path file;
+    private final URI base;
+    private final Path directory;
+    private final BufferedReader reader;
+    private int lineNumber;
+    private double firstTime = Double.NaN;
+
+    private Trace(Path file, String baseUrl) throws IOException {
+        this.file = file;
+        this.base = baseUrl == null ? null : URI.create(baseUrl);
+        this.directory = file.toAbsolutePath().getParent();
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param baseUrl url relative request urls are resolved against, or null if they must all be absolute.
+     */
+    public static Trace open(Path file, String baseUrl) throws IOException {
+        return new Trace(file, baseUrl);
+    }
+
+    /**
+     * @return the next request of the trace, or null at its end.
+     */
+    public TimedRequest next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                Line parsed = GSON.fromJson(line, Line.class);
+                if (parsed.time == null) {
+                    throw new IllegalArgumentException("Missing time");
+                }
+                if (Double.isNaN(firstTime)) {
+                    firstTime = parsed.time;
+                }
+                return new TimedRequest((long) ((parsed.time - firstTime) * NANOS_PER_MILLI),
+                        parsed.toRequest(base, directory));
+            } catch (JsonParseException | IllegalArgumentException e) {
+                throw new IllegalArgumentException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * A request of the trace, with its offset from the first request in nanoseconds.
+     */
+    public static class TimedRequest {
+        private final long offset;
+        private final Request request;
+
+        TimedRequest(long offset, Request request) {
+            this.offset = offset;
+            this.request = request;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public Request getRequest() {
+            return request;
+        }
+    }
+
+    private static class Line extends Workload.Entry {
+        Double time;
+
+        @Override
+        String defaultName(RequestType type) {
+            int query = url.indexOf('?');
+            return type + " " + (query < 0 ? url : url.substring(0, query));
+        }
+    }
+}
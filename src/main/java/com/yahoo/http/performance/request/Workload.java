@@ -0,0 +1,154 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.request;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.yahoo.http.performance.template.Template;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a workload file: one json object per line, each defining a request and how often it is sent, eg.
+ *
+ * <pre>
+ * {"name": "search", "method": "GET", "url": "/search?q=shoes", "headers": {"Accept": "application/json"}, "weight": 80}
+ * {"name": "addToCart", "method": "PUT", "url": "/cart/42", "bodyFile": "bodies/cart.json", "weight": 15}
+ * {"method": "DELETE", "url": "/cart/42", "weight": 5}
+ * </pre>
+ *
+ * Only {@code url} is required. The method defaults to GET, the weight to 1 and the name, which the
+ * results are reported under, to the method and url. Relative urls
+ * are resolved against the base url, and body files against the workload file's directory. A {@code body} is sent
+ * as its UTF-8 bytes. Blank lines and lines starting with {@code #} are skipped.
+ *
+ * Urls, header values and bodies may hold placeholders, such as {@code "/item/${zipf:1000000}"}, see
+ * {@link Template}. They are compiled here and rendered for each request.
+ *
+ * The file is read a line at a time, and body files are only memory-mapped when first sent, so a large workload does
+ * not need to fit in memory.
+ */
+public class Workload {
+    private static final Gson GSON = new Gson();
+
+    private Workload() {
+    }
+
+    /**
+     * @param baseUrl url relative request urls are resolved against, or null if they must all be absolute.
+     */
+    public static List<Request> read(Path file, String baseUrl) throws IOException {
+        URI base = baseUrl == null ? null : URI.create(baseUrl);
+        Path directory = file.toAbsolutePath().getParent();
+        List<Request> requests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    requests.add(GSON.fromJson(line, Entry.class).toRequest(base, directory));
+                } catch (JsonParseException | IllegalArgumentException e) {
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("No requests in workload " + file);
+        }
+        return requests;
+    }
+
+    /**
+     * Resolves a relative url against the base url. Only the part before the first placeholder is resolved, as
+     * placeholders are not valid in a uri.
+     */
+    private static String resolve(URI base, String url) {
+        int placeholder = url.indexOf("${");
+        String head = placeholder < 0 ? url : url.substring(0, placeholder);
+        String tail = placeholder < 0 ? "" : url.substring(placeholder);
+        URI uri;
+        try {
+            uri = new URI(head);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid url " + url, e);
+        }
+        if (uri.isAbsolute()) {
+            return url;
+        }
+        if (base == null) {
+            throw new IllegalArgumentException("Relative url " + url + " needs a base url (-u)");
+        }
+        return base.resolve(uri) + tail;
+    }
+
+    /**
+     * One line of the workload file, as parsed by gson. {@link Trace} lines extend it.
+     */
+    static class Entry {
+        String name;
+        String method;
+        String url;
+        Map<String, String> headers;
+        String body;
+        String bodyFile;
+        Double weight;
+
+        Request toRequest(URI base, Path directory) {
+            if (url == null) {
+                throw new IllegalArgumentException("Missing url");
+            }
+            String resolvedUrl = resolve(base, url);
+
+            RequestType type = method == null ? RequestType.GET : RequestType.valueOf(method.toUpperCase(Locale.ROOT));
+            if (body != null && bodyFile != null) {
+                throw new IllegalArgumentException("Only one of body and bodyFile can be given");
+            }
+            List<Header> headerList = new ArrayList<>();
+            if (headers != null) {
+                headers.forEach((headerName, value) -> headerList.add(new BasicHeader(headerName, value)));
+            }
+            Header[] headerArray = headerList.toArray(new Header[0]);
+
+            Request request;
+            if (body != null && Template.isTemplate(body)) {
+                request = new WorkloadRequest(type, resolvedUrl, headerArray, Template.compile(body));
+            } else {
+                Payload payload = null;
+                if (body != null) {
+                    payload = Payload.of(body.getBytes(StandardCharsets.UTF_8));
+                } else if (bodyFile != null) {
+                    payload = Payload.map(directory.resolve(bodyFile));
+                }
+                request = new WorkloadRequest(type, resolvedUrl, headerArray, payload);
+            }
+            request.setName(name != null ? name : defaultName(type));
+            if (weight != null) {
+                request.setWeight(weight);
+            }
+            return request;
+        }
+
+        String defaultName(RequestType type) {
+            return type + " " + url;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.request;
+
+import com.yahoo.http.performance.template.Template;
+import com.yahoo.http.performance.template.TemplateContext;
+
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHeader;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A request of any method with its own headers and optional body, as defined by a {@link Workload} file.
+ *
+ * The url, headers and content type are parsed once when the workload is read, so building the http request only
+ * copies references. The url, header values and body may also be {@link Template templates}, which are rendered for
+ * each request with the calling thread's {@link TemplateContext}; only the url is parsed again then.
+ */
+public class WorkloadRequest extends Request {
+    private static final ContentType DEFAULT_CONTENT_TYPE = ContentType.APPLICATION_OCTET_STREAM;
+    private static final String[] NO_NAMES = new String[0];
+    private static final Template[] NO_TEMPLATES = new Template[0];
+
+    private final URI uri;
+    private final Template urlTemplate;
+    private final Header[] headers;
+    private final String[] headerTemplateNames;
+    private final Template[] headerTemplates;
+    private final Payload payload;
+    private final Template bodyTemplate;
+    private final ContentType contentType;
+    private final boolean templated;
+
+    /**
+     * @param payload the body, or null to send none.
+     */
+    public WorkloadRequest(RequestType type, String url, Header[] headers, Payload payload) {
+        this(type, url, headers, payload, null);
+    }
+
+    /**
+     * @param body the template of the body, rendered anew for each request.
+     */
+    public WorkloadRequest(RequestType type, String url, Header[] headers, Template body) {
+        this(type, url, headers, null, body);
+    }
+
+    private WorkloadRequest(RequestType type, String url, Header[] headers, Payload payload, Template body) {
+        super(type, url);
+        if ((payload != null || body != null) && !type.hasBody()) {
+            throw new IllegalArgumentException(type + " requests cannot have a body: " + url);
+        }
+        if (Template.isTemplate(url)) {
+            this.urlTemplate = Template.compile(url);
+            // Fail on a url that cannot be parsed now rather than on every request.
+            URI.create(urlTemplate.sample());
+            this.uri = null;
+        } else {
+            this.urlTemplate = null;
+            this.uri = URI.create(url);
+        }
+
+        List<Header> constantHeaders = new ArrayList<>();
+        List<String> templateNames = new ArrayList<>();
+        List<Template> templates = new ArrayList<>();
+        ContentType contentType = DEFAULT_CONTENT_TYPE;
+        for (Header header : headers) {
+            if (Template.isTemplate(header.getValue())) {
+                templateNames.add(header.getName());
+                templates.add(Template.compile(header.getValue()));
+                continue;
+            }
+            constantHeaders.add(header);
+            if ("Content-Type".equalsIgnoreCase(header.getName())) {
+                contentType = ContentType.parse(header.getValue());
+            }
+        }
+        this.headers = constantHeaders.toArray(new Header[0]);
+        this.headerTemplateNames = templateNames.toArray(NO_NAMES);
+        this.headerTemplates = templates.toArray(NO_TEMPLATES);
+        this.payload = payload;
+        this.bodyTemplate = body;
+        this.contentType = contentType;
+        this.templated = urlTemplate != null || headerTemplates.length > 0 || bodyTemplate != null;
+    }
+
+    public RequestType getType() {
+        return requestType;
+    }
+
+    /**
+     * @return the body, or null if there is none or it is a template.
+     */
+    public Payload getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return the template of the body, or null if it has none or a fixed one.
+     */
+    public Template getBodyTemplate() {
+        return bodyTemplate;
+    }
+
+    @Override
+    public HttpUriRequest createHttpRequest() {
+        TemplateContext context = null;
+        if (templated) {
+            context = TemplateContext.current();
+            context.nextRequest();
+        }
+
+        HttpRequestBase request;
+        if (payload != null || bodyTemplate != null) {
+            EntityRequest entityRequest = new EntityRequest(requestType.name());
+            ByteBuffer body = payload != null ? payload.getBuffer() : ByteBuffer.wrap(bodyTemplate.renderBytes(context));
+            entityRequest.setEntity(new ByteBufferEntity(body, contentType));
+            request = entityRequest;
+        } else {
+            request = new BodilessRequest(requestType.name());
+        }
+        request.setURI(urlTemplate == null ? uri : URI.create(urlTemplate.render(context)));
+        request.setHeaders(headers);
+        for (int i = 0; i < headerTemplates.length; i++) {
+            request.addHeader(new BasicHeader(headerTemplateNames[i], headerTemplates[i].render(context)));
+        }
+        return request;
+    }
+
+    private static class EntityRequest extends HttpEntityEnclosingRequestBase {
+        private final String method;
+
+        EntityRequest(String method) {
+            this.method = method;
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+    }
+
+    private static class BodilessRequest extends HttpRequestBase {
+        private final String method;
+
+        BodilessRequest(String method) {
+            this.method = method;
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+    }
+}
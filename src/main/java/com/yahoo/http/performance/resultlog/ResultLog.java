@@ -0,0 +1,41 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.resultlog;
+
+/**
+ * Layout of the binary result log files: a header followed by one fixed-width record per request, in the order the
+ * requests completed. All values are big-endian.
+ *
+ * <pre>
+ * header: int magic, int version, int record size, int reserved
+ * record: long start time (nanoseconds since the epoch), long latency (nanoseconds), int http status (0 if the request
+ *         failed without a response), int request index, int response body bytes (-1 if unknown), int flags
+ * </pre>
+ */
+public final class ResultLog {
+    public static final String EXTENSION = ".results";
+    public static final int MAGIC = 0x52534c54;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 32;
+
+    /**
+     * The request was sent during the warmup.
+     */
+    public static final int WARMUP = 1;
+    /**
+     * The request failed without a response.
+     */
+    public static final int FAILED = 2;
+
+    private ResultLog() {
+    }
+
+    /**
+     * Receives the records of a log as they are read, without allocating anything per record.
+     */
+    public interface RecordConsumer {
+        void accept(long startTime, long latency, int status, int requestIndex, int bytes, int flags);
+    }
+}
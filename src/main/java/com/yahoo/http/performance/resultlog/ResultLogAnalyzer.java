@@ -0,0 +1,212 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.resultlog;
+
+import com.yahoo.http.performance.Histograms;
+import com.yahoo.http.performance.schedule.RunSchedule;
+
+import org.HdrHistogram.Histogram;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Recomputes the latency histogram, per time window statistics and the slowest requests from {@link ResultLog}
+ * files.
+ *
+ * The files are streamed one record at a time, so memory use depends on the number of windows and slowest requests
+ * kept, not on the size of the logs. Windows are keyed by request start time and use lower precision histograms
+ * than the overall one.
+ */
+public class ResultLogAnalyzer {
+    public static final long DEFAULT_WINDOW = TimeUnit.SECONDS.toNanos(1);
+    public static final int DEFAULT_TOP = 10;
+    private static final int WINDOW_PRECISION = 2;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final long windowLength;
+    private final int top;
+    private final boolean includeWarmup;
+
+    private final Histogram latencies = Histograms.create(Histograms.DEFAULT_PRECISION);
+    private final Map<Integer, Long> statusCounts = new TreeMap<>();
+    private final TreeMap<Long, WindowAccumulator> windows = new TreeMap<>();
+    private final PriorityQueue<ResultLogReport.SlowRequest> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(ResultLogReport.SlowRequest::getLatency));
+    private long requestCount = 0;
+    private long failedRequests = 0;
+
+    /**
+     * @param windowLength  length of the time windows in nanoseconds.
+     * @param top           number of slowest requests to keep.
+     * @param includeWarmup whether to analyze the requests sent during the warmup too.
+     */
+    public ResultLogAnalyzer(long windowLength, int top, boolean includeWarmup) {
+        if (windowLength <= 0) {
+            throw new IllegalArgumentException("Window length must be positive: " + windowLength);
+        }
+        this.windowLength = windowLength;
+        this.top = top;
+        this.includeWarmup = includeWarmup;
+    }
+
+    /**
+     * @param paths result log files, or directories whose {@link ResultLog#EXTENSION} files are all read.
+     */
+    public ResultLogReport analyze(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> children = Files.list(path)) {
+                    children.filter(p -> p.getFileName().toString().endsWith(ResultLog.EXTENSION))
+                            .sorted()
+                            .forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No result log files in " + paths);
+        }
+
+        for (Path file : files) {
+            String name = file.toString();
+            ResultLogReader.read(file, (startTime, latency, status, requestIndex, bytes, flags) -> {
+                if ((flags & ResultLog.WARMUP) == 0 || includeWarmup) {
+                    add(startTime, latency, status, requestIndex, bytes, flags, name);
+                }
+            });
+        }
+
+        Map<String, Long> percentiles = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            percentiles.put(percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile),
+                    latencies.getValueAtPercentile(percentile));
+        }
+        List<ResultLogReport.SlowRequest> slowestFirst = new ArrayList<>(slowest);
+        slowestFirst.sort(Comparator.comparingLong(ResultLogReport.SlowRequest::getLatency).reversed());
+        return new ResultLogReport(
+                files.stream().map(Path::toString).collect(Collectors.toList()),
+                requestCount,
+                failedRequests,
+                statusCounts,
+                latencies.getMean(),
+                percentiles,
+                latencies.getMaxValue(),
+                Histograms.encode(latencies),
+                windowLength,
+                windows.entrySet().stream().map(w -> w.getValue().toWindow(w.getKey())).collect(Collectors.toList()),
+                slowestFirst);
+    }
+
+    private void add(long startTime, long latency, int status, int requestIndex, int bytes, int flags, String file) {
+        boolean failed = (flags & ResultLog.FAILED) != 0;
+        requestCount++;
+        if (failed) {
+            failedRequests++;
+        } else {
+            statusCounts.merge(status, 1L, Long::sum);
+        }
+        Histograms.record(latencies, latency);
+
+        long windowStart = Math.floorDiv(startTime, windowLength) * windowLength;
+        windows.computeIfAbsent(windowStart, w -> new WindowAccumulator()).add(latency, failed);
+
+        if (top > 0 && (slowest.size() < top || latency > slowest.peek().getLatency())) {
+            slowest.add(new ResultLogReport.SlowRequest(startTime, latency, status, requestIndex, bytes, file));
+            if (slowest.size() > top) {
+                slowest.poll();
+            }
+        }
+    }
+
+    private class WindowAccumulator {
+        private final Histogram latencies = Histograms.create(WINDOW_PRECISION);
+        private long failures = 0;
+
+        void add(long latency, boolean failed) {
+            Histograms.record(latencies, latency);
+            if (failed) {
+                failures++;
+            }
+        }
+
+        ResultLogReport.Window toWindow(long start) {
+            long requests = latencies.getTotalCount();
+            return new ResultLogReport.Window(
+                    TimeUnit.NANOSECONDS.toMillis(start),
+                    requests,
+                    failures,
+                    requests * TimeUnit.SECONDS.toNanos(1) / windowLength,
+                    latencies.getValueAtPercentile(50),
+                    latencies.getValueAtPercentile(99),
+                    latencies.getMaxValue());
+        }
+    }
+
+    /**
+     * Analyzes the given result logs: [options] file or directory...
+     */
+    public static void main(String[] args) throws IOException {
+        Option window = new Option(null, "window", true, "Length of the time windows, eg. 1s, 100ms. Defaults to 1s.");
+        Option top = new Option(null, "top", true, "Number of slowest requests to list. Defaults to " + DEFAULT_TOP + ".");
+        Option includeWarmup = new Option(null, "includeWarmup", false, "Also analyze the requests sent during the warmup.");
+        Option outputType = new Option("o", "outputType", true, "Possible values: \'json\' or \'readable\'");
+        Option outputFile = new Option("f", "outputFile", true, "Path to file.");
+
+        Options options = new Options();
+        options.addOption(window);
+        options.addOption(top);
+        options.addOption(includeWarmup);
+        options.addOption(outputType);
+        options.addOption(outputFile);
+
+        CommandLine cmd = null;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+            if (cmd.getArgList().isEmpty()) {
+                throw new ParseException("Missing result log files or directories");
+            }
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("http-performance-client --analyzeResults [options] path...", options);
+            System.exit(1);
+        }
+
+        ResultLogAnalyzer analyzer = new ResultLogAnalyzer(
+                cmd.hasOption("window") ? RunSchedule.parseDuration(cmd.getOptionValue("window")) : DEFAULT_WINDOW,
+                cmd.hasOption("top") ? Integer.valueOf(cmd.getOptionValue("top")) : DEFAULT_TOP,
+                cmd.hasOption("includeWarmup"));
+        ResultLogReport report = analyzer.analyze(
+                cmd.getArgList().stream().map(p -> Paths.get(p)).collect(Collectors.toList()));
+
+        String output = "json".equals(cmd.getOptionValue("outputType")) ? report.toJsonString() : report.toString();
+        if (cmd.hasOption("outputFile")) {
+            FileUtils.writeStringToFile(new File(cmd.getOptionValue("outputFile")), output, StandardCharsets.UTF_8);
+        }
+        System.out.print(output);
+    }
+}
@@ -0,0 +1,61 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.resultlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the records of a {@link ResultLog} file through read-only mapped windows, so logs larger than memory can be
+ * read: only the pages being read need to be resident.
+ */
+public final class ResultLogReader {
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024 / ResultLog.RECORD_SIZE * ResultLog.RECORD_SIZE;
+
+    private ResultLogReader() {
+    }
+
+    /**
+     * Passes every record of the file to the consumer, in file order. The file of a writer that was not closed, eg.
+     * because its process was killed, ends with zeroed space that is skipped.
+     */
+    public static void read(Path file, ResultLog.RecordConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(ResultLog.HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if (header.remaining() < ResultLog.HEADER_SIZE || header.getInt() != ResultLog.MAGIC) {
+                throw new IOException("Not a result log: " + file);
+            }
+            int version = header.getInt();
+            int recordSize = header.getInt();
+            if (version != ResultLog.VERSION || recordSize != ResultLog.RECORD_SIZE) {
+                throw new IOException("Unsupported result log version " + version + ": " + file);
+            }
+
+            long records = (channel.size() - ResultLog.HEADER_SIZE) / ResultLog.RECORD_SIZE;
+            long end = ResultLog.HEADER_SIZE + records * ResultLog.RECORD_SIZE;
+            for (long position = ResultLog.HEADER_SIZE; position < end; position += WINDOW_SIZE) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(WINDOW_SIZE, end - position));
+                while (window.hasRemaining()) {
+                    long startTime = window.getLong();
+                    long latency = window.getLong();
+                    int status = window.getInt();
+                    int requestIndex = window.getInt();
+                    int bytes = window.getInt();
+                    int flags = window.getInt();
+                    if (startTime != 0) {
+                        consumer.accept(startTime, latency, status, requestIndex, bytes, flags);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.resultlog;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a {@link ResultLogAnalyzer} recomputed from result logs. Latencies are in nanoseconds.
+ */
+@Getter
+@AllArgsConstructor
+public class ResultLogReport {
+    private List<String> files;
+    private long requestCount;
+    /**
+     * Requests that failed without a response.
+     */
+    private long failedRequests;
+    private Map<Integer, Long> statusCounts;
+    private double avgLatency;
+    private Map<String, Long> percentiles;
+    private long maxLatency;
+    /**
+     * The latency histogram in compressed base64 HdrHistogram form.
+     */
+    private String latencyHistogram;
+    private long windowLength;
+    private List<Window> windows;
+    private List<SlowRequest> slowest;
+
+    /**
+     * Requests sent during one time window.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Window {
+        /**
+         * Start of the window, in milliseconds since the epoch.
+         */
+        private long start;
+        private long requests;
+        private long failures;
+        private long requestsPerSecond;
+        private long p50Latency;
+        private long p99Latency;
+        private long maxLatency;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class SlowRequest {
+        /**
+         * Start of the request, in nanoseconds since the epoch.
+         */
+        private long startTime;
+        private long latency;
+        private int status;
+        private int requestIndex;
+        private int bytes;
+        private String file;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\nResult log analysis:");
+        sb.append("\nFiles: " + files.size());
+        sb.append("\nRequest Count: " + requestCount);
+        sb.append("\nFailed Requests: " + failedRequests);
+        statusCounts.forEach((status, count) -> sb.append("\nStatus " + status + ": " + count));
+        sb.append("\n\nLatency Metrics in nanoseconds:");
+        sb.append("\nAverage Request Latency: " + avgLatency);
+        percentiles.forEach((percentile, latency) ->
+                sb.append("\nLatency percentile " + percentile + "%: " + latency));
+        sb.append("\nMax Request Latency: " + maxLatency);
+        sb.append("\n\nWindows of " + windowLength + "ns (start, requests, failures, requests per second, p50, p99, " +
+                "max latency):");
+        for (Window window : windows) {
+            sb.append("\n" + Instant.ofEpochMilli(window.start) + ", " + window.requests + ", " + window.failures
+                    + ", " + window.requestsPerSecond + ", " + window.p50Latency + ", " + window.p99Latency
+                    + ", " + window.maxLatency);
+        }
+        sb.append("\n\nSlowest requests (start, latency, status, request index, bytes, file):");
+        for (SlowRequest request : slowest) {
+            sb.append("\n" + Instant.ofEpochSecond(0, request.startTime) + ", " + request.latency + ", "
+                    + request.status + ", " + request.requestIndex + ", " + request.bytes + ", " + request.file);
+        }
+        return sb.toString();
+    }
+
+    public String toJsonString() {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        return gson.toJson(this);
+    }
+}
@@ -0,0 +1,92 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.resultlog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends the result of each request of one worker to a {@link ResultLog} file.
+ *
+ * Records are written straight into a memory-mapped window of the file, so appending one is a few stores and never
+ * waits for the disk; the operating system writes the pages back in the background. When a window is full the next
+ * one is mapped, and the file is truncated to the records written when the log is closed. A writer must only be used
+ * by one thread at a time.
+ */
+public class ResultLogWriter implements Closeable {
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024 / ResultLog.RECORD_SIZE * ResultLog.RECORD_SIZE;
+
+    private final FileChannel channel;
+    /**
+     * Converts {@link System#nanoTime()} to nanoseconds since the epoch.
+     */
+    private final long epochOffset;
+    private MappedByteBuffer window;
+    private long windowStart = ResultLog.HEADER_SIZE;
+    private long recordCount = 0;
+
+    public ResultLogWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(ResultLog.HEADER_SIZE)
+                .putInt(ResultLog.MAGIC)
+                .putInt(ResultLog.VERSION)
+                .putInt(ResultLog.RECORD_SIZE)
+                .putInt(0);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        this.window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WINDOW_SIZE);
+        this.epochOffset = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+    }
+
+    /**
+     * @param start        {@link System#nanoTime()} at which the request was sent.
+     * @param latency      nanoseconds until the response or the failure.
+     * @param status       http status, or 0 if the request failed without a response.
+     * @param requestIndex index of the request in the list of requests sent.
+     * @param bytes        response body length, or -1 if unknown.
+     * @param flags        {@link ResultLog#WARMUP} and {@link ResultLog#FAILED} flags.
+     */
+    public void append(long start, long latency, int status, int requestIndex, int bytes, int flags) {
+        if (!window.hasRemaining()) {
+            nextWindow();
+        }
+        window.putLong(start + epochOffset)
+                .putLong(latency)
+                .putInt(status)
+                .putInt(requestIndex)
+                .putInt(bytes)
+                .putInt(flags);
+        recordCount++;
+    }
+
+    private void nextWindow() {
+        windowStart += WINDOW_SIZE;
+        try {
+            window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WINDOW_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to extend result log", e);
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.truncate(ResultLog.HEADER_SIZE + recordCount * ResultLog.RECORD_SIZE);
+        channel.close();
+    }
+}
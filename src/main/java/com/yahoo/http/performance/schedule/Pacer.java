@@ -0,0 +1,131 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.schedule;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop request schedule for a single worker.
+ *
+ * A global target rate is split across all workers by interleaving: request {@code i} of worker {@code w} out of
+ * {@code n} workers is the {@code (w + i * n)}th request overall, and is intended to start at
+ * {@code startTime + (w + i * n) / rate}. The intended start times do not depend on how long earlier requests took,
+ * so latency measured from the intended start includes any time the request spent queued behind a stalled server
+ * (coordinated omission correction).
+ *
+ * With a rate {@link Scenario} the rate changes from stage to stage, and request {@code k} overall is intended to start
+ * once the scenario has sent {@code k} requests, see {@link Scenario#timeOfRequest(double)}.
+ */
+public class Pacer {
+    /**
+     * Parking is only accurate to some tens of microseconds, so the last stretch before a deadline is spun.
+     */
+    private static final long SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private long startTime;
+    private final double nanosPerRequest;
+    private final int workerIndex;
+    private final int workerCount;
+    private final Scenario scenario;
+
+    /**
+     * @param startTime    {@link System#nanoTime()} at which the first request of the run is intended to start.
+     * @param rate         target number of requests per second across all workers.
+     * @param workerIndex  index of the worker owning this pacer.
+     * @param workerCount  total number of workers sharing the rate.
+     */
+    public Pacer(long startTime, double rate, int workerIndex, int workerCount) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + rate);
+        }
+        this.startTime = startTime;
+        this.nanosPerRequest = TimeUnit.SECONDS.toNanos(1) / rate;
+        this.workerIndex = workerIndex;
+        this.workerCount = workerCount;
+        this.scenario = null;
+    }
+
+    /**
+     * Creates a pacer following the changing rate of the scenario.
+     */
+    public Pacer(long startTime, Scenario scenario, int workerIndex, int workerCount) {
+        if (scenario.getTarget() != Scenario.Target.RATE) {
+            throw new IllegalArgumentException("Only a rate scenario can be paced");
+        }
+        this.startTime = startTime;
+        this.nanosPerRequest = TimeUnit.SECONDS.toNanos(1) / scenario.getPeakTarget();
+        this.workerIndex = workerIndex;
+        this.workerCount = workerCount;
+        this.scenario = scenario;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which this worker's request number {@code i} is intended to start.
+     */
+    public long intendedStartTime(long i) {
+        if (scenario != null) {
+            return startTime + scenario.timeOfRequest(workerIndex + (double) i * workerCount);
+        }
+        return startTime + (long) ((workerIndex + (double) i * workerCount) * nanosPerRequest);
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * @return the target rate, or the peak rate of a scenario.
+     */
+    public double getRate() {
+        return TimeUnit.SECONDS.toNanos(1) / nanosPerRequest;
+    }
+
+    /**
+     * @return the scenario whose rate the pacer follows, or null for a constant rate.
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Waits until {@link System#nanoTime()} reaches the deadline. The thread is parked for most of the wait and only
+     * spins for the final {@link #SPIN_THRESHOLD} nanoseconds, so waiting does not burn a core.
+     */
+    public static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > SPIN_THRESHOLD) {
+            LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+        }
+        while (deadline - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Parses a rate such as {@code 50000}, {@code 50000/s}, {@code 3000/m} or {@code 100/h} into requests per second.
+     */
+    public static double parseRate(String rate) {
+        String value = rate.trim();
+        double divisor = 1;
+        int slash = value.indexOf('/');
+        if (slash >= 0) {
+            String unit = value.substring(slash + 1).trim();
+            value = value.substring(0, slash).trim();
+            switch (unit) {
+                case "s":
+                    break;
+                case "m":
+                    divisor = 60;
+                    break;
+                case "h":
+                    divisor = 3600;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid rate unit: " + rate);
+            }
+        }
+        return Double.parseDouble(value) / divisor;
+    }
+}
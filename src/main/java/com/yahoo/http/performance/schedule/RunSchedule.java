@@ -0,0 +1,85 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.schedule;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The phases of a run shared by all workers: an optional warmup whose samples are kept out of the results, followed
+ * by the measured phase, which lasts for a fixed duration or until the workers have sent all their requests.
+ */
+public class RunSchedule {
+    private final long warmup;
+    private final long duration;
+
+    private volatile long startTime;
+
+    /**
+     * @param warmup   warmup length in nanoseconds, or 0 for no warmup.
+     * @param duration measured phase length in nanoseconds, or 0 to run until the request count is reached.
+     */
+    public RunSchedule(long warmup, long duration) {
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    /**
+     * Sets the {@link System#nanoTime()} at which the run, including warmup, starts.
+     */
+    public void start(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * @return whether a request started at the given {@link System#nanoTime()} belongs to the warmup.
+     */
+    public boolean isWarmup(long time) {
+        return warmup > 0 && time - getMeasurementStartTime() < 0;
+    }
+
+    /**
+     * @return whether the run is over at the given {@link System#nanoTime()}.
+     */
+    public boolean isOver(long time) {
+        return duration > 0 && time - getEndTime() >= 0;
+    }
+
+    public long getMeasurementStartTime() {
+        return startTime + warmup;
+    }
+
+    public long getEndTime() {
+        return startTime + warmup + duration;
+    }
+
+    public long getWarmup() {
+        return warmup;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Parses a duration such as {@code 500ms}, {@code 30s}, {@code 5m} or {@code 1h} into nanoseconds. A number
+     * without unit is taken as seconds.
+     */
+    public static long parseDuration(String duration) {
+        String value = duration.trim();
+        TimeUnit unit = TimeUnit.SECONDS;
+        if (value.endsWith("ms")) {
+            unit = TimeUnit.MILLISECONDS;
+            value = value.substring(0, value.length() - 2);
+        } else if (value.endsWith("s")) {
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("m")) {
+            unit = TimeUnit.MINUTES;
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("h")) {
+            unit = TimeUnit.HOURS;
+            value = value.substring(0, value.length() - 1);
+        }
+        return unit.toNanos(Long.parseLong(value.trim()));
+    }
+}
@@ -0,0 +1,281 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.schedule;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A run made of consecutive stages, each changing the offered load over its duration, eg. to see how a service
+ * scales up under a ramp and recovers after a spike. A scenario file holds one json object per stage, in order:
+ *
+ * <pre>
+ * {"name": "ramp-up", "duration": "2m", "rate": "2000/s", "ramp": "linear"}
+ * {"name": "plateau", "duration": "5m", "rate": 2000}
+ * {"name": "spike", "duration": "30s", "rate": 8000}
+ * {"name": "recovery", "duration": "5m", "rate": 2000}
+ * {"name": "ramp-down", "duration": "1m", "rate": 0, "ramp": "linear"}
+ * </pre>
+ *
+ * Each stage sets either a {@code rate}, see {@link Pacer#parseRate(String)}, or a {@code concurrency}, the number of
+ * workers sending requests back to back, and all stages of a scenario must set the same one. The ramp, see
+ * {@link Stage.Ramp}, defaults to step and the name to the stage's position. Blank lines and lines starting with
+ * {@code #} are skipped.
+ *
+ * The workers and their connections live through the whole run: a rate is shared by all workers through their
+ * {@link Pacer}, and a concurrency is reached by parking the workers above it, see {@link #awaitActive(int)}.
+ */
+public class Scenario {
+    private static final Gson GSON = new Gson();
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    public enum Target {
+        RATE,
+        CONCURRENCY
+    }
+
+    @Getter
+    private final Target target;
+    @Getter
+    private final List<Stage> stages;
+
+    /**
+     * Time from the start of the run at which each stage starts, followed by the end of the last stage.
+     */
+    private final transient long[] stageStarts;
+    /**
+     * Load at the start of each stage, once a step was taken.
+     */
+    private final transient double[] startLevels;
+    /**
+     * Number of requests a rate scenario sends before each stage, followed by the number it sends in total.
+     */
+    private final transient double[] requestCounts;
+
+    private transient volatile long startTime;
+
+    public Scenario(Target target, List<Stage> stages) {
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("A scenario needs at least one stage");
+        }
+        Set<String> names = new HashSet<>();
+        for (Stage stage : stages) {
+            if (!names.add(stage.getName())) {
+                throw new IllegalArgumentException("Duplicate stage name: " + stage.getName());
+            }
+        }
+        this.target = target;
+        this.stages = stages;
+        this.stageStarts = new long[stages.size() + 1];
+        this.startLevels = new double[stages.size()];
+        this.requestCounts = new double[stages.size() + 1];
+        double previousTarget = 0;
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            startLevels[i] = stage.getRamp() == Stage.Ramp.LINEAR ? previousTarget : stage.getTarget();
+            stageStarts[i + 1] = stageStarts[i] + stage.getDuration();
+            requestCounts[i + 1] = requestCounts[i]
+                    + (startLevels[i] + stage.getTarget()) / 2 * (stage.getDuration() / NANOS_PER_SECOND);
+            previousTarget = stage.getTarget();
+        }
+        if (target == Target.RATE && requestCounts[stages.size()] < 1) {
+            throw new IllegalArgumentException("The scenario does not send any request");
+        }
+    }
+
+    public static Scenario read(Path file) throws IOException {
+        Target target = null;
+        List<Stage> stages = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    Entry entry = GSON.fromJson(line, Entry.class);
+                    if (target == null) {
+                        target = entry.target();
+                    } else if (entry.target() != target) {
+                        throw new IllegalArgumentException("All stages must set the same one of rate and concurrency");
+                    }
+                    stages.add(entry.toStage(stages.size()));
+                } catch (JsonParseException | IllegalArgumentException e) {
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("No stages in scenario " + file);
+        }
+        return new Scenario(target, stages);
+    }
+
+    /**
+     * Sets the {@link System#nanoTime()} at which the first stage starts.
+     */
+    public void start(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * @return the length of the whole scenario in nanoseconds.
+     */
+    public long getDuration() {
+        return stageStarts[stages.size()];
+    }
+
+    /**
+     * @return the highest load of any stage.
+     */
+    public double getPeakTarget() {
+        return stages.stream().mapToDouble(Stage::getTarget).max().getAsDouble();
+    }
+
+    /**
+     * @return the index of the stage running at the given {@link System#nanoTime()}, the first or last stage before
+     * or after the scenario.
+     */
+    public int stageAt(long time) {
+        long elapsed = time - startTime;
+        int stage = 0;
+        while (stage < stages.size() - 1 && elapsed >= stageStarts[stage + 1]) {
+            stage++;
+        }
+        return stage;
+    }
+
+    /**
+     * @return the load of the stage at the given time from the start of the run.
+     */
+    private double levelAt(int stage, long elapsed) {
+        Stage s = stages.get(stage);
+        return startLevels[stage] + (s.getTarget() - startLevels[stage])
+                * ((elapsed - stageStarts[stage]) / (double) s.getDuration());
+    }
+
+    /**
+     * Time from the start of the run at which request number {@code k} of a rate scenario is intended to start, that
+     * is when the number of requests sent so far under the changing rate reaches {@code k}. Within a stage the rate
+     * is linear in time, so the number of requests is quadratic and this solves it for the time. Requests past the
+     * end of the scenario are intended for its end, when the run is over.
+     *
+     * @param k number of the request across all workers, from 0.
+     */
+    long timeOfRequest(double k) {
+        int last = stages.size();
+        if (k >= requestCounts[last]) {
+            return stageStarts[last];
+        }
+        // The last stage whose requests start at or before k, skipping stages that send none.
+        int low = 0;
+        int high = last - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (requestCounts[middle] <= k) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        double remaining = k - requestCounts[low];
+        if (remaining <= 0) {
+            return stageStarts[low];
+        }
+        // Solves r0 * t + (r1 - r0) / (2 * d) * t^2 = remaining in the form that stays exact when the rate is flat.
+        double r0 = startLevels[low];
+        double halfSlope = (stages.get(low).getTarget() - r0) / (2 * (stages.get(low).getDuration() / NANOS_PER_SECOND));
+        double seconds = 2 * remaining / (r0 + Math.sqrt(Math.max(0, r0 * r0 + 4 * halfSlope * remaining)));
+        return Math.min(stageStarts[low] + (long) (seconds * NANOS_PER_SECOND), stageStarts[low + 1]);
+    }
+
+    /**
+     * @return the earliest time from the start of the run, not before {@code elapsed}, at which a concurrency
+     * scenario has the worker active, that is when the concurrency is above the worker's index. The end of the
+     * scenario if the worker is not needed again.
+     */
+    long activeFrom(int worker, long elapsed) {
+        for (int stage = stageAt(startTime + elapsed); stage < stages.size(); stage++) {
+            long from = Math.max(elapsed, stageStarts[stage]);
+            if (levelAt(stage, from) > worker) {
+                return from;
+            }
+            double startLevel = startLevels[stage];
+            double endLevel = stages.get(stage).getTarget();
+            if (endLevel > worker) {
+                long crossing = stageStarts[stage] + 1 + (long) Math.ceil(
+                        (worker - startLevel) / (endLevel - startLevel) * stages.get(stage).getDuration());
+                if (crossing < stageStarts[stage + 1]) {
+                    return Math.max(from, crossing);
+                }
+            }
+        }
+        return stageStarts[stages.size()];
+    }
+
+    /**
+     * Parks the worker until the concurrency of the scenario is above its index, or the scenario is over.
+     *
+     * @param worker index of the worker among the workers of all processes.
+     */
+    public void awaitActive(int worker) {
+        while (true) {
+            long elapsed = Math.max(0, System.nanoTime() - startTime);
+            if (elapsed >= getDuration()) {
+                return;
+            }
+            long from = activeFrom(worker, elapsed);
+            if (from <= elapsed) {
+                return;
+            }
+            Pacer.waitUntil(startTime + from);
+        }
+    }
+
+    /**
+     * One line of the scenario file, as parsed by gson.
+     */
+    private static class Entry {
+        String name;
+        String duration;
+        String rate;
+        Double concurrency;
+        String ramp;
+
+        Target target() {
+            if ((rate == null) == (concurrency == null)) {
+                throw new IllegalArgumentException("A stage sets exactly one of rate and concurrency");
+            }
+            return rate != null ? Target.RATE : Target.CONCURRENCY;
+        }
+
+        Stage toStage(int index) {
+            if (duration == null) {
+                throw new IllegalArgumentException("Missing duration");
+            }
+            return new Stage(
+                    name == null ? "stage " + (index + 1) : name,
+                    RunSchedule.parseDuration(duration),
+                    rate != null ? Pacer.parseRate(rate) : concurrency,
+                    ramp == null ? Stage.Ramp.STEP : Stage.Ramp.valueOf(ramp.toUpperCase(Locale.ROOT)));
+        }
+    }
+}
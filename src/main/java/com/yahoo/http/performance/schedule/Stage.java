@@ -0,0 +1,48 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.schedule;
+
+import lombok.Getter;
+
+/**
+ * One stage of a {@link Scenario}: the load moves to its target over its duration, following its ramp.
+ */
+@Getter
+public class Stage {
+    public enum Ramp {
+        /**
+         * The load jumps to the target at the start of the stage and holds it.
+         */
+        STEP,
+        /**
+         * The load moves in a straight line from the previous stage's target, or 0 for the first stage, to the target
+         * at the end of the stage.
+         */
+        LINEAR
+    }
+
+    private final String name;
+    /**
+     * Length of the stage in nanoseconds.
+     */
+    private final long duration;
+    /**
+     * Requests per second or number of active workers, depending on the {@link Scenario.Target}.
+     */
+    private final double target;
+    private final Ramp ramp;
+
+    public Stage(String name, long duration, double target, Ramp ramp) {
+        if (duration <= 0) {
+            throw new IllegalArgumentException("Stage duration must be positive: " + name);
+        }
+        if (target < 0 || Double.isNaN(target) || Double.isInfinite(target)) {
+            throw new IllegalArgumentException("Stage target must be a positive number or 0: " + name);
+        }
+        this.name = name;
+        this.duration = duration;
+        this.target = target;
+        this.ramp = ramp;
+    }
+}
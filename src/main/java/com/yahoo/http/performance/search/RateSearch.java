@@ -0,0 +1,142 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.search;
+
+import com.yahoo.http.performance.Histograms;
+import com.yahoo.http.performance.Metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches for the highest open-loop rate a target sustains while meeting latency objectives.
+ *
+ * Each step holds one offered rate for a whole run, warmup included, and passes if the corrected latencies meet every
+ * {@link Slo}, the error rate stays within its limit and the workers kept up with the offered rate. The
+ * rate is doubled from the start rate until a step fails, then the range between the highest passing and the lowest
+ * failing rate is bisected until it is narrower than {@link #PRECISION} of the failing rate.
+ */
+public class RateSearch {
+    public static final double DEFAULT_START_RATE = 100;
+    public static final double DEFAULT_MAX_ERROR_RATE = 0.01;
+    /**
+     * The search stops once the failing rate is within this fraction of the highest passing rate.
+     */
+    private static final double PRECISION = 0.05;
+    /**
+     * A step that sent fewer than this fraction of the requests scheduled at the offered rate over its duration did
+     * not keep up with it, whatever its latencies: its workers were all busy waiting for responses.
+     */
+    private static final double MIN_THROUGHPUT_RATIO = 0.95;
+    private static final int MAX_STEPS = 30;
+    /**
+     * Gives up once no step passed and the rate was halved below this many requests per second.
+     */
+    private static final double MIN_RATE = 1;
+
+    /**
+     * Runs one step at the given rate, in requests per second, and returns its metrics.
+     */
+    public interface StepRunner {
+        Metrics run(double rate) throws Exception;
+    }
+
+    private final List<Slo> slos;
+    private final double maxErrorRate;
+    private final double startRate;
+    private final long stepDuration;
+    private final StepRunner runner;
+
+    /**
+     * @param stepDuration measured length of each step, in nanoseconds.
+     */
+    public RateSearch(List<Slo> slos, double maxErrorRate, double startRate, long stepDuration, StepRunner runner) {
+        if (startRate <= 0) {
+            throw new IllegalArgumentException("Start rate must be positive: " + startRate);
+        }
+        this.slos = slos;
+        this.maxErrorRate = maxErrorRate;
+        this.startRate = startRate;
+        this.stepDuration = stepDuration;
+        this.runner = runner;
+    }
+
+    public RateSearchResult run() throws Exception {
+        List<RateStep> steps = new ArrayList<>();
+        RateStep best = null;
+        double highestPassed = 0;
+        double lowestFailed = Double.NaN;
+        double rate = startRate;
+        while (steps.size() < MAX_STEPS) {
+            RateStep step = runStep(rate);
+            steps.add(step);
+            System.err.println("Step " + steps.size() + ": " + rate + "/s offered, " + step.getRequestsPerSecond()
+                    + "/s completed, p99 " + step.getP99Latency() + "ns, error rate " + step.getErrorRate()
+                    + (step.isPassed() ? ": passed" : ": failed, " + step.getFailure()));
+
+            if (step.isPassed()) {
+                best = step;
+                highestPassed = rate;
+            } else {
+                lowestFailed = rate;
+            }
+            if (Double.isNaN(lowestFailed)) {
+                rate *= 2;
+            } else if (best != null && lowestFailed - highestPassed <= PRECISION * lowestFailed) {
+                break;
+            } else {
+                rate = (highestPassed + lowestFailed) / 2;
+                if (best == null && rate < MIN_RATE) {
+                    break;
+                }
+            }
+        }
+        return new RateSearchResult(slos, maxErrorRate, best, steps);
+    }
+
+    private RateStep runStep(double rate) throws Exception {
+        Metrics metrics = runner.run(rate);
+        Histogram latencies = Histograms.decode(metrics.getCorrectedLatencyHistogram() != null
+                ? metrics.getCorrectedLatencyHistogram() : metrics.getLatencyHistogram());
+        long requestCount = metrics.getTotalRequestCount();
+        double errorRate = requestCount == 0 ? 1 : metrics.getTotalFailedRequests() / (double) requestCount;
+
+        Map<String, Long> sloLatencies = new HashMap<>();
+        String failure = null;
+        for (Slo slo : slos) {
+            sloLatencies.put(slo.getName(), slo.latency(latencies));
+            if (failure == null && !slo.isMet(latencies)) {
+                failure = slo.getName() + " latency " + slo.latency(latencies) + "ns over " + slo.getLimit() + "ns";
+            }
+        }
+        if (requestCount == 0) {
+            failure = "no requests completed";
+        } else if (errorRate > maxErrorRate) {
+            failure = "error rate " + errorRate + " over " + maxErrorRate;
+        } else {
+            // The requests sent are spread over the step, so the count is only accurate to one request.
+            double scheduled = rate * stepDuration / TimeUnit.SECONDS.toNanos(1);
+            if (requestCount < MIN_THROUGHPUT_RATIO * scheduled - 1) {
+                failure = "sent " + requestCount + " of " + (long) scheduled + " scheduled requests";
+            }
+        }
+
+        return new RateStep(
+                rate,
+                metrics.getRequestsPerSecond(),
+                requestCount,
+                errorRate,
+                latencies.getValueAtPercentile(50),
+                latencies.getValueAtPercentile(99),
+                latencies.getMaxValue(),
+                sloLatencies,
+                failure == null,
+                failure);
+    }
+}
@@ -0,0 +1,65 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.search;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The highest rate found by a {@link RateSearch} and the latency/throughput curve of all its steps, in the order they
+ * were run.
+ */
+@Getter
+public class RateSearchResult {
+    private final List<String> slos;
+    private final double maxErrorRate;
+    /**
+     * Highest offered rate that passed, or null if no step passed.
+     */
+    private final Double maxRate;
+    /**
+     * Requests per second completed at the highest passing rate.
+     */
+    private final Long maxRequestsPerSecond;
+    private final List<RateStep> steps;
+
+    public RateSearchResult(List<Slo> slos, double maxErrorRate, RateStep best, List<RateStep> steps) {
+        this.slos = slos.stream().map(Slo::toString).collect(Collectors.toList());
+        this.maxErrorRate = maxErrorRate;
+        this.maxRate = best == null ? null : best.getOfferedRate();
+        this.maxRequestsPerSecond = best == null ? null : best.getRequestsPerSecond();
+        this.steps = steps;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\nSaturation search:");
+        sb.append("\nSLOs: " + slos);
+        sb.append("\nMax Error Rate: " + maxErrorRate);
+        if (maxRate != null) {
+            sb.append("\nMax Sustainable Rate (requests/sec): " + maxRate);
+            sb.append("\nRequests Per Second At Max Rate: " + maxRequestsPerSecond);
+        } else {
+            sb.append("\nNo rate met the SLOs");
+        }
+        sb.append("\n\nSteps (offered rate, requests per second, error rate, p50, p99, max latency in nanoseconds):");
+        for (RateStep step : steps) {
+            sb.append("\n" + step.getOfferedRate() + ", " + step.getRequestsPerSecond() + ", " + step.getErrorRate()
+                    + ", " + step.getP50Latency() + ", " + step.getP99Latency() + ", " + step.getMaxLatency()
+                    + (step.isPassed() ? ": passed" : ": failed, " + step.getFailure()));
+        }
+        return sb.toString();
+    }
+
+    public String toJsonString() {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        return gson.toJson(this);
+    }
+}
@@ -0,0 +1,40 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * The outcome of holding one offered rate during a {@link RateSearch}. Latencies are coordinated omission corrected,
+ * in nanoseconds.
+ */
+@Getter
+@AllArgsConstructor
+public class RateStep {
+    /**
+     * Requests per second the step was paced at.
+     */
+    private double offeredRate;
+    /**
+     * Requests per second actually completed.
+     */
+    private long requestsPerSecond;
+    private long requestCount;
+    private double errorRate;
+    private long p50Latency;
+    private long p99Latency;
+    private long maxLatency;
+    /**
+     * Latency at the percentile of each objective, by objective name.
+     */
+    private Map<String, Long> sloLatencies;
+    private boolean passed;
+    /**
+     * Why the step failed, or null if it passed.
+     */
+    private String failure;
+}
@@ -0,0 +1,70 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.search;
+
+import com.yahoo.http.performance.schedule.RunSchedule;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A latency objective such as {@code p99<20ms}: the given percentile of the latencies must stay below the limit.
+ */
+@Getter
+public class Slo {
+    private final String name;
+    private final double percentile;
+    private final long limit;
+
+    /**
+     * @param percentile percentile of the latencies the objective applies to, eg. 99.9.
+     * @param limit      latency limit in nanoseconds, excluded.
+     */
+    public Slo(String name, double percentile, long limit) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        this.name = name;
+        this.percentile = percentile;
+        this.limit = limit;
+    }
+
+    /**
+     * Parses comma separated objectives such as {@code p99<20ms} or {@code p50<2ms,p99.9<50ms}. Limits use the
+     * duration units of {@link RunSchedule#parseDuration(String)}.
+     */
+    public static List<Slo> parse(String slos) {
+        List<Slo> parsed = new ArrayList<>();
+        for (String slo : slos.split(",")) {
+            String value = slo.trim();
+            int lessThan = value.indexOf('<');
+            if (!value.startsWith("p") || lessThan < 0) {
+                throw new IllegalArgumentException("Invalid slo, expected eg. p99<20ms: " + slo);
+            }
+            String name = value.substring(0, lessThan).trim();
+            double percentile = Double.parseDouble(name.substring(1));
+            parsed.add(new Slo(name, percentile, RunSchedule.parseDuration(value.substring(lessThan + 1))));
+        }
+        return parsed;
+    }
+
+    /**
+     * @return the latency at this objective's percentile.
+     */
+    public long latency(Histogram latencies) {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    public boolean isMet(Histogram latencies) {
+        return latency(latencies) < limit;
+    }
+
+    @Override
+    public String toString() {
+        return name + "<" + limit + "ns";
+    }
+}
@@ -0,0 +1,179 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.server;
+
+import com.yahoo.http.performance.request.ExpectedResponse;
+import com.yahoo.http.performance.request.Payload;
+import com.yahoo.http.performance.request.PostRequest;
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.request.RequestType;
+import com.yahoo.http.performance.request.WorkloadRequest;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process http server on the loopback interface, to measure the client's own ceiling and to try out the engines
+ * and validations without an outside server.
+ *
+ * It runs on non-blocking I/O reactor threads and speaks HTTP/1.1 as well as h2c with prior knowledge, so all engines
+ * can use it. GET requests get a fixed body of the configured size and POST requests get their own body back. Responses
+ * can be delayed, without holding a reactor thread, and a fraction of them can be answered with a 500 error.
+ */
+public class LoopbackServer implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(LoopbackServer.class);
+    private static final ContentType CONTENT_TYPE = ContentType.APPLICATION_OCTET_STREAM;
+    private static final byte[] ERROR_BODY = "error".getBytes();
+
+    private final byte[] body;
+    private final ResponseDelay delay;
+    private final double errorRate;
+    private final ScheduledExecutorService delayExecutor;
+    private final HttpAsyncServer server;
+    private final int port;
+
+    public LoopbackServer(LoopbackServerConfig config) throws InterruptedException, ExecutionException {
+        if (config.getErrorRate() < 0 || config.getErrorRate() > 1) {
+            throw new IllegalArgumentException("Error rate must be between 0 and 1: " + config.getErrorRate());
+        }
+        this.body = new byte[config.getBodySize()];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        this.delay = config.getDelay() == null ? null : ResponseDelay.parse(config.getDelay());
+        this.errorRate = config.getErrorRate();
+        this.delayExecutor = delay == null ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "loopback-server-delay");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.server = H2ServerBootstrap.bootstrap()
+                .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(config.getIoThreads())
+                        .setTcpNoDelay(true)
+                        .build())
+                .setH2Config(H2Config.custom()
+                        .setPushEnabled(false)
+                        .setMaxConcurrentStreams(config.getMaxConcurrentStreams())
+                        .build())
+                .register("*", new Handler())
+                .create();
+        server.start();
+        ListenerEndpoint endpoint = server.listen(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), URIScheme.HTTP).get();
+        this.port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + port + "/";
+    }
+
+    /**
+     * @return the body this server answers to the request when it does not fail it, or null if it changes from one
+     * request to the next.
+     */
+    public ExpectedResponse expectedResponse(Request request) {
+        if (request instanceof PostRequest) {
+            return ExpectedResponse.of(((PostRequest) request).getPayload());
+        }
+        if (request instanceof WorkloadRequest) {
+            WorkloadRequest workloadRequest = (WorkloadRequest) request;
+            if (workloadRequest.getBodyTemplate() != null) {
+                // The body is echoed back, and differs for each request.
+                return null;
+            }
+            if (workloadRequest.getPayload() != null) {
+                return ExpectedResponse.of(workloadRequest.getPayload());
+            }
+            if (workloadRequest.getType() == RequestType.HEAD) {
+                return ExpectedResponse.of(Payload.of(new byte[0]));
+            }
+        }
+        return ExpectedResponse.of(Payload.of(body));
+    }
+
+    @Override
+    public void close() {
+        server.close(CloseMode.GRACEFUL);
+        if (delayExecutor != null) {
+            delayExecutor.shutdownNow();
+        }
+    }
+
+    private class Handler implements AsyncServerRequestHandler<Message<HttpRequest, byte[]>> {
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, byte[]>> prepare(HttpRequest request,
+                                                                         EntityDetails entityDetails,
+                                                                         HttpContext context) {
+            return new BasicRequestConsumer<>(entityDetails == null ? null : new BasicAsyncEntityConsumer());
+        }
+
+        @Override
+        public void handle(Message<HttpRequest, byte[]> message, ResponseTrigger responseTrigger,
+                           HttpContext context) {
+            BasicResponseProducer response;
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                response = new BasicResponseProducer(HttpStatus.SC_INTERNAL_SERVER_ERROR,
+                        AsyncEntityProducers.create(ERROR_BODY, CONTENT_TYPE));
+            } else {
+                // Bodies are echoed back, whichever method they came with.
+                byte[] responseBody = message.getBody() != null ? message.getBody()
+                        : "POST".equals(message.getHead().getMethod()) ? new byte[0] : body;
+                response = new BasicResponseProducer(HttpStatus.SC_OK,
+                        AsyncEntityProducers.create(responseBody, CONTENT_TYPE));
+            }
+
+            if (delay == null) {
+                submit(responseTrigger, response, context);
+            } else {
+                delayExecutor.schedule(() -> submit(responseTrigger, response, context), delay.next(),
+                        TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void submit(ResponseTrigger responseTrigger, BasicResponseProducer response, HttpContext context) {
+            try {
+                responseTrigger.submitResponse(response, context);
+            } catch (Exception e) {
+                // The client went away before the response was sent.
+                LOG.debug("Failed to send response", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.server;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the {@link LoopbackServer}.
+ */
+@Getter
+@Setter
+public class LoopbackServerConfig {
+    public static final int DEFAULT_BODY_SIZE = 1024;
+    public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 10000;
+
+    /**
+     * Size in bytes of the body answered to GET requests. POST requests get their own body back.
+     */
+    private int bodySize = DEFAULT_BODY_SIZE;
+    /**
+     * Delay before each response, see {@link ResponseDelay#parse(String)}, or null to answer right away.
+     */
+    private String delay;
+    /**
+     * Fraction of the requests answered with a 500 error, from 0 to 1.
+     */
+    private double errorRate = 0;
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+    /**
+     * Concurrent streams the server allows on each HTTP/2 connection.
+     */
+    private int maxConcurrentStreams = DEFAULT_MAX_CONCURRENT_STREAMS;
+}
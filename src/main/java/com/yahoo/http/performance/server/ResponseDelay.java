@@ -0,0 +1,71 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.server;
+
+import com.yahoo.http.performance.schedule.RunSchedule;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How long the {@link LoopbackServer} waits before answering each request, to stand in for server think time.
+ */
+public abstract class ResponseDelay {
+    private final String spec;
+
+    private ResponseDelay(String spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * @return the delay of the next response in nanoseconds.
+     */
+    public abstract long next();
+
+    /**
+     * Parses a fixed delay such as {@code 2ms}, an exponentially distributed delay with the given mean such as
+     * {@code exp:2ms}, or a delay uniformly distributed between two bounds such as {@code uniform:1ms-5ms}. Durations
+     * use the units of {@link RunSchedule#parseDuration(String)}.
+     */
+    public static ResponseDelay parse(String spec) {
+        String value = spec.trim();
+        if (value.startsWith("exp:")) {
+            long mean = RunSchedule.parseDuration(value.substring("exp:".length()));
+            return new ResponseDelay(value) {
+                @Override
+                public long next() {
+                    return (long) (-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+                }
+            };
+        }
+        if (value.startsWith("uniform:")) {
+            String[] bounds = value.substring("uniform:".length()).split("-");
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("Invalid uniform delay, expected eg. uniform:1ms-5ms: " + spec);
+            }
+            long min = RunSchedule.parseDuration(bounds[0]);
+            long max = RunSchedule.parseDuration(bounds[1]);
+            if (max < min) {
+                throw new IllegalArgumentException("Invalid uniform delay, min is over max: " + spec);
+            }
+            return new ResponseDelay(value) {
+                @Override
+                public long next() {
+                    return min + ThreadLocalRandom.current().nextLong(max - min + 1);
+                }
+            };
+        }
+        long delay = RunSchedule.parseDuration(value);
+        return new ResponseDelay(value) {
+            @Override
+            public long next() {
+                return delay;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,179 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.template;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A url, header value or body with placeholders that change from one request to the next, so that requests do not
+ * all hit the same server-side cache entry. The placeholders are:
+ *
+ * <ul>
+ * <li>{@code ${counter}}: number of requests the thread sent before this one;</li>
+ * <li>{@code ${thread}}: number of the thread, which with the counter makes a value unique within the process;</li>
+ * <li>{@code ${timestamp}}: milliseconds since the epoch;</li>
+ * <li>{@code ${uniform:MIN:MAX}}: a random integer from MIN to MAX, both included;</li>
+ * <li>{@code ${zipf:N}} or {@code ${zipf:N:EXPONENT}}: a random key from 1 to N, key k being drawn in proportion to
+ * {@code 1 / k^EXPONENT} (default 1), see {@link ZipfSampler}.</li>
+ * </ul>
+ *
+ * {@code $${} stands for a literal {@code ${}. Each random placeholder draws its own value.
+ *
+ * A template is compiled once into literal byte segments and placeholders, and rendered into the thread's
+ * {@link TemplateContext} buffer without any formatting or intermediate string.
+ */
+public class Template {
+    private static final String START = "${";
+    private static final String ESCAPED_START = "$${";
+
+    private final String source;
+    private final Segment[] segments;
+
+    private Template(String source, Segment[] segments) {
+        this.source = source;
+        this.segments = segments;
+    }
+
+    /**
+     * @return whether the text has any placeholder or escape, and so must be compiled to be sent.
+     */
+    public static boolean isTemplate(String text) {
+        return text.contains(START);
+    }
+
+    public static Template compile(String source) {
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            if (source.startsWith(ESCAPED_START, i)) {
+                literal.append(START);
+                i += ESCAPED_START.length();
+            } else if (source.startsWith(START, i)) {
+                int end = source.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed placeholder in " + source);
+                }
+                if (literal.length() > 0) {
+                    segments.add(new Literal(literal.toString()));
+                    literal.setLength(0);
+                }
+                segments.add(placeholder(source.substring(i + START.length(), end)));
+                i = end + 1;
+            } else {
+                literal.append(source.charAt(i));
+                i++;
+            }
+        }
+        if (literal.length() > 0) {
+            segments.add(new Literal(literal.toString()));
+        }
+        return new Template(source, segments.toArray(new Segment[0]));
+    }
+
+    private static Segment placeholder(String placeholder) {
+        String[] parts = placeholder.split(":");
+        try {
+            switch (parts[0]) {
+                case "counter":
+                    checkArguments(parts, 0, 0);
+                    return context -> context.append(context.getCounter());
+                case "thread":
+                    checkArguments(parts, 0, 0);
+                    return context -> context.append(context.getThread());
+                case "timestamp":
+                    checkArguments(parts, 0, 0);
+                    return context -> context.append(System.currentTimeMillis());
+                case "uniform":
+                    checkArguments(parts, 2, 2);
+                    long min = Long.parseLong(parts[1]);
+                    long max = Long.parseLong(parts[2]);
+                    if (min > max || max == Long.MAX_VALUE) {
+                        throw new IllegalArgumentException("Invalid range");
+                    }
+                    return context -> context.append(ThreadLocalRandom.current().nextLong(min, max + 1));
+                case "zipf":
+                    checkArguments(parts, 1, 2);
+                    ZipfSampler sampler = new ZipfSampler(Long.parseLong(parts[1]),
+                            parts.length > 2 ? Double.parseDouble(parts[2]) : 1);
+                    return context -> context.append(sampler.next());
+                default:
+                    throw new IllegalArgumentException("Unknown placeholder");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid placeholder ${" + placeholder + "}: " + e.getMessage(), e);
+        }
+    }
+
+    private static void checkArguments(String[] parts, int min, int max) {
+        if (parts.length - 1 < min || parts.length - 1 > max) {
+            throw new IllegalArgumentException("Wrong number of arguments");
+        }
+    }
+
+    /**
+     * @return whether the template has no placeholder, and renders to the same value every time.
+     */
+    public boolean isConstant() {
+        for (Segment segment : segments) {
+            if (!(segment instanceof Literal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a rendering with a context of its own, to check what the template renders to before sending it.
+     */
+    public String sample() {
+        return render(new TemplateContext(0));
+    }
+
+    public String render(TemplateContext context) {
+        renderTo(context);
+        return context.toString();
+    }
+
+    /**
+     * @return the rendered UTF-8 bytes, in an array of their own as the request may be sent after the thread's buffer
+     * is reused.
+     */
+    public byte[] renderBytes(TemplateContext context) {
+        renderTo(context);
+        return context.toBytes();
+    }
+
+    private void renderTo(TemplateContext context) {
+        context.reset();
+        for (Segment segment : segments) {
+            segment.render(context);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private interface Segment {
+        void render(TemplateContext context);
+    }
+
+    private static class Literal implements Segment {
+        private final byte[] bytes;
+
+        Literal(String text) {
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void render(TemplateContext context) {
+            context.append(bytes);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.template;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The per-thread state templates are rendered with: the thread's number and request counter, and the buffer the
+ * rendered bytes are written to. The buffer is reused by every render on the thread, and only grows to the largest
+ * rendered value, so rendering itself allocates nothing once warmed up.
+ */
+public class TemplateContext {
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ThreadLocal<TemplateContext> CURRENT = ThreadLocal.withInitial(
+            () -> new TemplateContext(THREADS.getAndIncrement()));
+    private static final int INITIAL_SIZE = 256;
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final int thread;
+    private long counter = -1;
+    private byte[] buffer = new byte[INITIAL_SIZE];
+    private int length;
+
+    TemplateContext(int thread) {
+        this.thread = thread;
+    }
+
+    /**
+     * @return the calling thread's context.
+     */
+    public static TemplateContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Moves on to the next request. Every template of one request sees the same counter.
+     */
+    public void nextRequest() {
+        counter++;
+    }
+
+    public int getThread() {
+        return thread;
+    }
+
+    /**
+     * @return number of requests the thread rendered before the current one.
+     */
+    public long getCounter() {
+        return Math.max(counter, 0);
+    }
+
+    void reset() {
+        length = 0;
+    }
+
+    void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    /**
+     * Writes the decimal digits of the value, without going through a string.
+     */
+    void append(long value) {
+        if (value == Long.MIN_VALUE) {
+            append(MIN_LONG);
+            return;
+        }
+        if (value < 0) {
+            ensureCapacity(1);
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    /**
+     * @return a copy of what was rendered since the last reset.
+     */
+    byte[] toBytes() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -4,14 +4,14 @@
 package com.yahoo.http.performance.validation;
 
 import com.yahoo.http.performance.request.Request;
-import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.HttpResponse;
 
 /**
  * A validation that ensures that the response code is 200.
  */
 public class ResponseCodeValidation implements Validation {
     @Override
-    public boolean isValid(final Request request, final CloseableHttpResponse response) {
+    public boolean isValid(final Request request, final HttpResponse response) {
         return response.getStatusLine().getStatusCode() == 200;
     }
 
@@ -3,34 +3,93 @@
 
 package com.yahoo.http.performance.validation;
 
+import com.yahoo.http.performance.request.ExpectedResponse;
 import com.yahoo.http.performance.request.Request;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.HttpResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 /**
- * Validates that response contains some json map.
+ * Validates that the response body is the request's {@link ExpectedResponse}.
+ *
+ * The body is streamed through a small per-thread buffer and compared chunk by chunk with the expected bytes,
+ * stopping at the first mismatch, or hashed and compared with the expected digest. Nothing is allocated per response.
+ * The rest of a mismatching body is left for the caller to consume. Requests without an expected response, such as
+ * templated bodies echoed back by the self test server, are not checked.
  */
 public class ResponseDataValidation implements Validation {
     private static final Logger LOG = LoggerFactory.getLogger(ResponseDataValidation.class);
+    private static final int CHUNK_SIZE = 8192;
+    private static final ThreadLocal<byte[]> RESPONSE_CHUNK = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+    private static final ThreadLocal<byte[]> EXPECTED_CHUNK = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance(ExpectedResponse.DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
 
     @Override
-    public boolean isValid(final Request request, final CloseableHttpResponse response) {
+    public boolean isValid(final Request request, final HttpResponse response) {
+        ExpectedResponse expected = request.getExpectedResponse();
+        if (expected == null) {
+            return true;
+        }
         HttpEntity entity = response.getEntity();
-        String result = null;
         try {
-            result = IOUtils.toString(entity.getContent(), StandardCharsets.UTF_8);
+            InputStream content = entity == null ? null : entity.getContent();
+            if (expected.getDigest() != null) {
+                return matchesDigest(content, expected.getDigest());
+            }
+            ByteBuffer expectedBody = expected.getBody().getBuffer();
+            if (entity != null && entity.getContentLength() >= 0 && entity.getContentLength() != expectedBody.remaining()) {
+                return false;
+            }
+            return matchesBody(content, expectedBody);
         } catch (IOException e) {
             LOG.error("Failed to read response", e);
             return false;
         }
+    }
+
+    private static boolean matchesBody(InputStream content, ByteBuffer expected) throws IOException {
+        if (content != null) {
+            byte[] chunk = RESPONSE_CHUNK.get();
+            byte[] expectedChunk = EXPECTED_CHUNK.get();
+            int n;
+            while ((n = content.read(chunk)) >= 0) {
+                if (n > expected.remaining()) {
+                    return false;
+                }
+                expected.get(expectedChunk, 0, n);
+                if (!Arrays.equals(chunk, 0, n, expectedChunk, 0, n)) {
+                    return false;
+                }
+            }
+        }
+        return !expected.hasRemaining();
+    }
 
-        return result.equals(request.getExpectedResponseData());
+    private static boolean matchesDigest(InputStream content, byte[] expected) throws IOException {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        if (content != null) {
+            byte[] chunk = RESPONSE_CHUNK.get();
+            int n;
+            while ((n = content.read(chunk)) >= 0) {
+                digest.update(chunk, 0, n);
+            }
+        }
+        return MessageDigest.isEqual(digest.digest(), expected);
     }
 
     @Override
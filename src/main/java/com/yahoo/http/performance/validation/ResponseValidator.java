@@ -0,0 +1,182 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.validation;
+
+import com.yahoo.http.performance.request.Request;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs the validations on the responses of all workers, and consumes each response so its connection can be reused.
+ *
+ * Only a {@code sampleRate} fraction of the responses is validated; the others are consumed unread. With validation
+ * threads, a worker only drains the body into a pooled buffer and goes on with its next request while one of the
+ * threads validates the copy, so validation does not delay the worker's timing. When the validation threads fall
+ * behind, workers wait for a free buffer.
+ */
+public class ResponseValidator implements Closeable {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final int BUFFERS_PER_THREAD = 4;
+
+    private final List<Validation> validations;
+    private final double sampleRate;
+    private final ExecutorService executor;
+    private final BlockingQueue<ResponseBuffer> buffers;
+
+    public ResponseValidator(List<Validation> validations) {
+        this(validations, 1, 0);
+    }
+
+    /**
+     * @param sampleRate fraction of the responses to validate, from 0 to 1.
+     * @param threads    number of threads validating responses, or 0 to validate them on the worker threads.
+     */
+    public ResponseValidator(List<Validation> validations, double sampleRate, int threads) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Validation sample rate must be between 0 and 1: " + sampleRate);
+        }
+        this.validations = validations;
+        this.sampleRate = sampleRate;
+        if (threads > 0 && !validations.isEmpty()) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "response-validator-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.buffers = new ArrayBlockingQueue<>(threads * BUFFERS_PER_THREAD);
+            for (int i = 0; i < threads * BUFFERS_PER_THREAD; i++) {
+                buffers.add(new ResponseBuffer());
+            }
+        } else {
+            this.executor = null;
+            this.buffers = null;
+        }
+    }
+
+    /**
+     * Validates the response, possibly later on another thread, and consumes its entity.
+     *
+     * @param onFailure called with the names of the failed validations if the response is invalid.
+     */
+    public void validate(Request request, HttpResponse response, Consumer<String> onFailure) throws IOException {
+        if (validations.isEmpty() || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            EntityUtils.consume(response.getEntity());
+            return;
+        }
+        if (executor == null) {
+            try {
+                check(request, response, onFailure);
+            } finally {
+                EntityUtils.consume(response.getEntity());
+            }
+            return;
+        }
+
+        ResponseBuffer buffer;
+        try {
+            buffer = buffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a validation buffer");
+        }
+        StatusLine statusLine = response.getStatusLine();
+        try {
+            buffer.readFrom(response.getEntity());
+        } catch (IOException | RuntimeException e) {
+            buffers.add(buffer);
+            throw e;
+        }
+        executor.execute(() -> {
+            try {
+                BasicHttpResponse copy = new BasicHttpResponse(statusLine);
+                copy.setEntity(new ByteArrayEntity(buffer.data, 0, buffer.length));
+                check(request, copy, onFailure);
+            } finally {
+                buffers.add(buffer);
+            }
+        });
+    }
+
+    private void check(Request request, HttpResponse response, Consumer<String> onFailure) {
+        List<String> failedValidations = null;
+        for (Validation v : validations) {
+            if (!v.isValid(request, response)) {
+                if (failedValidations == null) {
+                    failedValidations = new ArrayList<>();
+                }
+                failedValidations.add(v.toString());
+            }
+        }
+        if (failedValidations != null) {
+            onFailure.accept(failedValidations.toString());
+        }
+    }
+
+    /**
+     * Waits for the pending validations to complete.
+     */
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A reusable copy of a response body, grown to fit the largest body it held.
+     */
+    private static class ResponseBuffer {
+        private byte[] data = new byte[INITIAL_BUFFER_SIZE];
+        private int length;
+
+        void readFrom(HttpEntity entity) throws IOException {
+            length = 0;
+            if (entity == null) {
+                return;
+            }
+            InputStream content = entity.getContent();
+            if (content == null) {
+                return;
+            }
+            while (true) {
+                if (length == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+                int n = content.read(data, length, data.length - length);
+                if (n < 0) {
+                    break;
+                }
+                length += n;
+            }
+            EntityUtils.consume(entity);
+        }
+    }
+}
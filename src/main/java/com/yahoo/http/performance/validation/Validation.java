@@ -4,11 +4,11 @@
 package com.yahoo.http.performance.validation;
 
 import com.yahoo.http.performance.request.Request;
-import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.HttpResponse;
 
 /**
  * Super class for all Validations.
  */
 public interface Validation {
-    public abstract boolean isValid(Request request, CloseableHttpResponse response);
+    public abstract boolean isValid(Request request, HttpResponse response);
 }
@@ -0,0 +1,71 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance;
+
+import ch.qos.logback.classic.Level;
+import com.yahoo.http.performance.request.GetRequest;
+import com.yahoo.http.performance.request.Request;
+import com.yahoo.http.performance.schedule.RunSchedule;
+import com.yahoo.http.performance.server.LoopbackServer;
+import com.yahoo.http.performance.server.LoopbackServerConfig;
+import com.yahoo.http.performance.validation.ResponseValidator;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class Http2ClientThreadTest {
+    private static final int REQUESTS = 1000;
+    private static final int MAX_STREAMS = 16;
+
+    @BeforeClass
+    public static void logWarningsOnly() {
+        // The client logs every request and header at debug level, which would cost more than the request itself.
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    @Test
+    public void noServerStreamLimitWhenTheServerAllowsAllStreams() throws Exception {
+        assertEquals(0, serverStreamLimit(LoopbackServerConfig.DEFAULT_MAX_CONCURRENT_STREAMS, 1024));
+    }
+
+    @Test
+    public void noServerStreamLimitWhileLargeResponsesAreRead() throws Exception {
+        // Responses are read, and validated, well after their head arrived.
+        assertEquals(0, serverStreamLimit(LoopbackServerConfig.DEFAULT_MAX_CONCURRENT_STREAMS, 64 * 1024));
+    }
+
+    @Test
+    public void serverStreamLimitBelowMaxStreams() throws Exception {
+        assertEquals(4, serverStreamLimit(4, 1024));
+    }
+
+    private static int serverStreamLimit(int serverMaxStreams, int bodySize) throws Exception {
+        LoopbackServerConfig config = new LoopbackServerConfig();
+        config.setMaxConcurrentStreams(serverMaxStreams);
+        config.setBodySize(bodySize);
+        config.setDelay("1ms");
+        config.setIoThreads(1);
+        try (LoopbackServer server = new LoopbackServer(config)) {
+            Request request = new GetRequest(server.getUrl());
+            request.setExpectedResponse(server.expectedResponse(request));
+            List<Request> requests = Collections.singletonList(request);
+            RunSchedule schedule = new RunSchedule(0, TimeUnit.MINUTES.toNanos(1));
+            Http2ClientThread worker = new Http2ClientThread(REQUESTS, requests,
+                    new ResponseValidator(Collections.emptyList()), 0, false, null, schedule,
+                    Histograms.DEFAULT_PRECISION, MAX_STREAMS);
+            schedule.start(System.nanoTime());
+            worker.run();
+            assertEquals(REQUESTS, worker.getRequestCount());
+            assertEquals(0, worker.getFailedRequest());
+            return worker.getServerStreamLimit();
+        }
+    }
+}
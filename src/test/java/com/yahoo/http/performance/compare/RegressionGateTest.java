@@ -0,0 +1,68 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.compare;
+
+import com.yahoo.http.performance.Histograms;
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class RegressionGateTest {
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void identicalHistogramsDidNotShift() {
+        Histogram latencies = uniform(1, 100, 10);
+        assertEquals(0, RegressionGate.slowerShift(latencies, latencies), DELTA);
+        assertEquals(0, RegressionGate.slowerShift(latencies, uniform(1, 100, 10)), DELTA);
+    }
+
+    @Test
+    public void sameDistributionOfDifferentCountsDidNotShift() {
+        assertEquals(0, RegressionGate.slowerShift(uniform(1, 100, 3), uniform(1, 100, 40)), DELTA);
+    }
+
+    @Test
+    public void uniformLatenciesShiftedByATenthOfTheirRange() {
+        // Up to 10ms only the baseline has requests, after that both gain 1% of their requests per millisecond.
+        assertEquals(0.1, RegressionGate.slowerShift(uniform(1, 100, 10), uniform(11, 110, 10)), DELTA);
+    }
+
+    @Test
+    public void shareOfRequestsThatGotSlower() {
+        Histogram baseline = Histograms.create(Histograms.DEFAULT_PRECISION);
+        baseline.recordValueWithCount(10 * MILLISECOND, 1000);
+        Histogram current = Histograms.create(Histograms.DEFAULT_PRECISION);
+        current.recordValueWithCount(10 * MILLISECOND, 750);
+        current.recordValueWithCount(200 * MILLISECOND, 250);
+        assertEquals(0.25, RegressionGate.slowerShift(baseline, current), DELTA);
+    }
+
+    @Test
+    public void fasterLatenciesDidNotShift() {
+        assertEquals(0, RegressionGate.slowerShift(uniform(11, 110, 10), uniform(1, 100, 10)), DELTA);
+    }
+
+    @Test
+    public void emptyHistogramsDidNotShift() {
+        Histogram empty = Histograms.create(Histograms.DEFAULT_PRECISION);
+        assertEquals(0, RegressionGate.slowerShift(empty, uniform(1, 100, 10)), DELTA);
+        assertEquals(0, RegressionGate.slowerShift(uniform(1, 100, 10), empty), DELTA);
+    }
+
+    /**
+     * @return a histogram with the given count of requests at each whole millisecond from first to last.
+     */
+    private static Histogram uniform(int firstMillis, int lastMillis, long count) {
+        Histogram histogram = Histograms.create(Histograms.DEFAULT_PRECISION);
+        for (int millis = firstMillis; millis <= lastMillis; millis++) {
+            histogram.recordValueWithCount(millis * MILLISECOND, count);
+        }
+        return histogram;
+    }
+}
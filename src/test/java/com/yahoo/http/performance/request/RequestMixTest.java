@@ -0,0 +1,107 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.request;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestMixTest {
+    private static final int SAMPLES = 500_000;
+
+    @Test
+    public void requestsOfEqualWeightAreSentInTurn() {
+        RequestMix mix = new RequestMix(requests(2, 2, 2));
+        assertFalse(mix.isWeighted());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i % 3, mix.next(i));
+        }
+    }
+
+    @Test
+    public void requestsAreDrawnInProportionToTheirWeights() {
+        assertFrequencies(80, 15, 5);
+        assertFrequencies(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        assertFrequencies(1000, 1, 1, 1);
+        assertFrequencies(0.1, 0.2, 0.7);
+    }
+
+    @Test
+    public void requestsWithoutWeightAreNeverDrawn() {
+        RequestMix mix = new RequestMix(requests(0, 3, 0, 1));
+        long[] counts = new long[4];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[mix.next(i)]++;
+        }
+        assertEquals(0, counts[0]);
+        assertEquals(0, counts[2]);
+        assertCount("request 1 of 0, 3, 0, 1", 0.75, counts[1]);
+    }
+
+    @Test
+    public void manyRequestsOfRandomWeights() {
+        double[] weights = new double[200];
+        Random random = new Random(42);
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextDouble() * random.nextDouble() * 100;
+        }
+        assertFrequencies(weights);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNoRequests() {
+        new RequestMix(Collections.emptyList());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeWeight() {
+        new RequestMix(requests(1, -1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWeightsAddingUpToNothing() {
+        new RequestMix(requests(0, 0));
+    }
+
+    /**
+     * Checks the frequency of each request against its share of the total weight, within 5 standard deviations of
+     * the count.
+     */
+    private static void assertFrequencies(double... weights) {
+        RequestMix mix = new RequestMix(requests(weights));
+        assertTrue(mix.isWeighted());
+        long[] counts = new long[weights.length];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[mix.next(i)]++;
+        }
+        double total = Arrays.stream(weights).sum();
+        for (int i = 0; i < weights.length; i++) {
+            assertCount("request " + i + " of " + Arrays.toString(weights), weights[i] / total, counts[i]);
+        }
+    }
+
+    private static void assertCount(String what, double p, long count) {
+        double expected = p * SAMPLES;
+        double tolerance = 5 * Math.sqrt(SAMPLES * p * (1 - p)) + 1;
+        assertEquals(what, expected, count, tolerance);
+    }
+
+    private static List<Request> requests(double... weights) {
+        List<Request> requests = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            Request request = new GetRequest("http://localhost/" + i);
+            request.setWeight(weights[i]);
+            requests.add(request);
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,138 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.schedule;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScenarioTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * Rounding of the solved time to whole nanoseconds, and of the square root.
+     */
+    private static final double TOLERANCE = 1000;
+
+    @Test
+    public void flatStageSpreadsRequestsEvenly() {
+        Scenario scenario = rate(stage("flat", 10, 100, Stage.Ramp.STEP));
+        assertTime(0, scenario, 0);
+        assertTime(SECOND / 100, scenario, 1);
+        assertTime(5 * SECOND, scenario, 500);
+        assertTime(10 * SECOND, scenario, 1000);
+    }
+
+    @Test
+    public void rampUpSendsQuadraticallyMoreRequests() {
+        // 0 to 100/s over 10s sends 5 t^2 requests by time t.
+        Scenario scenario = rate(stage("ramp-up", 10, 100, Stage.Ramp.LINEAR));
+        assertTime(0, scenario, 0);
+        assertTime(SECOND, scenario, 5);
+        assertTime(5 * SECOND, scenario, 125);
+        assertTime(10 * SECOND, scenario, 500);
+    }
+
+    @Test
+    public void rampDownStartsFromThePreviousTarget() {
+        // 100/s for 10s, then 100 to 0/s over 10s, which sends 100 t - 5 t^2 requests by t into the ramp.
+        Scenario scenario = rate(
+                stage("flat", 10, 100, Stage.Ramp.STEP),
+                stage("ramp-down", 10, 0, Stage.Ramp.LINEAR));
+        assertTime(10 * SECOND, scenario, 1000);
+        assertTime(15 * SECOND, scenario, 1375);
+        assertTime(19 * SECOND, scenario, 1495);
+        assertEquals(20 * SECOND, scenario.getDuration());
+        assertEquals(20 * SECOND, scenario.timeOfRequest(1500));
+    }
+
+    @Test
+    public void zeroRateStageIsSkipped() {
+        Scenario scenario = rate(
+                stage("first", 10, 100, Stage.Ramp.STEP),
+                stage("pause", 5, 0, Stage.Ramp.STEP),
+                stage("second", 10, 200, Stage.Ramp.STEP));
+        assertTime(SECOND * 999 / 100, scenario, 999);
+        // The request at the boundary is the first one of the next stage that sends any.
+        assertTime(15 * SECOND, scenario, 1000);
+        assertTime(15 * SECOND + SECOND / 200, scenario, 1001);
+        assertTime(20 * SECOND, scenario, 2000);
+    }
+
+    @Test
+    public void requestsPastTheEndAreIntendedForTheEnd() {
+        Scenario scenario = rate(stage("flat", 10, 100, Stage.Ramp.STEP));
+        assertEquals(10 * SECOND, scenario.timeOfRequest(1000));
+        assertEquals(10 * SECOND, scenario.timeOfRequest(5000));
+    }
+
+    /**
+     * Every request of a scenario mixing all kinds of stages is intended for the time at which the rate, integrated
+     * independently here, adds up to it.
+     */
+    @Test
+    public void requestTimesMatchTheIntegratedRate() {
+        List<Stage> stages = Arrays.asList(
+                stage("ramp-up", 7, 300, Stage.Ramp.LINEAR),
+                stage("plateau", 3, 300, Stage.Ramp.STEP),
+                stage("spike", 2, 1200, Stage.Ramp.STEP),
+                stage("pause", 1, 0, Stage.Ramp.STEP),
+                stage("slow-ramp", 4, 50, Stage.Ramp.LINEAR),
+                stage("ramp-down", 5, 0, Stage.Ramp.LINEAR));
+        Scenario scenario = new Scenario(Scenario.Target.RATE, stages);
+        double total = requestsBefore(stages, scenario.getDuration());
+        long previous = 0;
+        for (int k = 0; k < total; k++) {
+            long time = scenario.timeOfRequest(k);
+            assertTrue("Request " + k + " before request " + (k - 1), time >= previous);
+            assertEquals("Requests before request " + k, k, requestsBefore(stages, time), 1e-3);
+            previous = time;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsScenarioSendingNothing() {
+        rate(stage("idle", 10, 0, Stage.Ramp.STEP));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateStageNames() {
+        rate(stage("a", 1, 10, Stage.Ramp.STEP), stage("a", 1, 10, Stage.Ramp.STEP));
+    }
+
+    private static void assertTime(long expected, Scenario scenario, double k) {
+        assertEquals("Time of request " + k, expected, scenario.timeOfRequest(k), TOLERANCE);
+    }
+
+    /**
+     * Number of requests the stages send by the given time from the start, integrating their rates piece by piece.
+     */
+    private static double requestsBefore(List<Stage> stages, long time) {
+        double requests = 0;
+        double previousTarget = 0;
+        long stageStart = 0;
+        for (Stage stage : stages) {
+            double seconds = Math.max(0, Math.min(time - stageStart, stage.getDuration())) / (double) SECOND;
+            double durationSeconds = stage.getDuration() / (double) SECOND;
+            double from = stage.getRamp() == Stage.Ramp.LINEAR ? previousTarget : stage.getTarget();
+            double slope = (stage.getTarget() - from) / durationSeconds;
+            requests += from * seconds + slope * seconds * seconds / 2;
+            previousTarget = stage.getTarget();
+            stageStart += stage.getDuration();
+        }
+        return requests;
+    }
+
+    private static Scenario rate(Stage... stages) {
+        return new Scenario(Scenario.Target.RATE, Arrays.asList(stages));
+    }
+
+    private static Stage stage(String name, long seconds, double target, Stage.Ramp ramp) {
+        return new Stage(name, seconds * SECOND, target, ramp);
+    }
+}
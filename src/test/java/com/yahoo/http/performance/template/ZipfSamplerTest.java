@@ -0,0 +1,88 @@
+// Copyright 2017 Yahoo Inc.
+// Licensed under the terms of the Apache 2.0 license. Please see LICENSE file in the project root for terms.
+
+package com.yahoo.http.performance.template;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ZipfSamplerTest {
+    private static final int SAMPLES = 500_000;
+
+    @Test
+    public void ranksFollowTheZipfDistribution() {
+        assertFrequencies(10, 1.0);
+        assertFrequencies(10, 0.5);
+        assertFrequencies(50, 1.5);
+        assertFrequencies(1000, 1.2);
+    }
+
+    @Test
+    public void singleKeyIsAlwaysDrawn() {
+        ZipfSampler sampler = new ZipfSampler(1, 1.0);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(1, sampler.next());
+        }
+    }
+
+    @Test
+    public void ranksStayInRangeForManyKeys() {
+        ZipfSampler sampler = new ZipfSampler(1_000_000_000L, 0.8);
+        for (int i = 0; i < 100_000; i++) {
+            long rank = sampler.next();
+            assertTrue("Rank out of range: " + rank, rank >= 1 && rank <= 1_000_000_000L);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNoKeys() {
+        new ZipfSampler(0, 1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveExponent() {
+        new ZipfSampler(10, 0);
+    }
+
+    /**
+     * Checks the frequency of each of the first ranks, and of all the others together, against the expected
+     * probability, within 5 standard deviations of the count.
+     */
+    private static void assertFrequencies(int n, double exponent) {
+        double[] weights = new double[n + 1];
+        double total = 0;
+        for (int k = 1; k <= n; k++) {
+            weights[k] = Math.pow(k, -exponent);
+            total += weights[k];
+        }
+        long[] counts = new long[n + 1];
+        ZipfSampler sampler = new ZipfSampler(n, exponent);
+        for (int i = 0; i < SAMPLES; i++) {
+            long rank = sampler.next();
+            assertTrue("Rank out of range: " + rank, rank >= 1 && rank <= n);
+            counts[(int) rank]++;
+        }
+
+        int checked = Math.min(n, 20);
+        double restProbability = 1;
+        long restCount = SAMPLES;
+        for (int k = 1; k <= checked; k++) {
+            double p = weights[k] / total;
+            assertCount("rank " + k + " of " + n + " with exponent " + exponent, p, counts[k]);
+            restProbability -= p;
+            restCount -= counts[k];
+        }
+        if (checked < n) {
+            assertCount("ranks above " + checked + " of " + n + " with exponent " + exponent, restProbability,
+                    restCount);
+        }
+    }
+
+    private static void assertCount(String what, double p, long count) {
+        double expected = p * SAMPLES;
+        double tolerance = 5 * Math.sqrt(SAMPLES * p * (1 - p)) + 1;
+        assertEquals(what, expected, count, tolerance);
+    }
+}